@@ -0,0 +1,57 @@
+package at.technikum_wien.accesslog.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger-Eintrag pro importierter Logdatei, eindeutig über den SHA-256 des Dateiinhalts.
+ * COMPLETED wird in derselben Transaktion gesetzt wie die Zähler – ein erneuter Lauf überspringt die Datei
+ * dann, auch wenn sie z.B. wegen eines Fehlers beim Archivieren noch im Input-Ordner liegt.
+ */
+@Entity
+@Table(name = "access_log_imports", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"content_hash"})
+})
+@Getter
+@Setter
+public class AccessLogImport {
+
+    public enum Status { IN_PROGRESS, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private int attempts;
+
+    private Long entries;
+
+    @Column(name = "upserted_rows")
+    private Integer upsertedRows;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public AccessLogImport() {}
+
+    public AccessLogImport(String contentHash, String fileName) {
+        this.contentHash = contentHash;
+        this.fileName = fileName;
+    }
+}
@@ -0,0 +1,34 @@
+package at.technikum_wien.accesslog.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Wochensumme der Zugriffe pro Dokument, wird beim Import zusammen mit {@link AccessStat} hochgezählt.
+ * Der Index deckt die Top-N-Abfrage im DocumentDAL ab (Index-Only-Scan über den Zeitraum).
+ */
+@Entity
+@Table(name = "document_access_stats_weekly",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"document_id", "week_start"}),
+        indexes = @Index(name = "idx_access_stats_weekly_top", columnList = "week_start, document_id, access_count"))
+@Getter
+@Setter
+public class AccessStatWeekly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Integer documentId;
+
+    /** Montag der ISO-Woche */
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    @Column(name = "access_count", nullable = false)
+    private Long accessCount;
+}
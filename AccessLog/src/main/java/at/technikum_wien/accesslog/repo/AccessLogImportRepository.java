@@ -0,0 +1,30 @@
+package at.technikum_wien.accesslog.repo;
+
+import at.technikum_wien.accesslog.model.AccessLogImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface AccessLogImportRepository extends JpaRepository<AccessLogImport, Long> {
+
+    Optional<AccessLogImport> findByContentHash(String contentHash);
+
+    // Bedingt: ist die Datei schon COMPLETED (paralleler Lauf), wird nichts geändert -> 0
+    @Modifying
+    @Query("update AccessLogImport i set i.status = :status, i.entries = :entries, i.upsertedRows = :rows, " +
+            "i.completedAt = :at, i.lastError = null where i.contentHash = :hash and i.status <> :status")
+    int markCompleted(@Param("hash") String contentHash, @Param("entries") long entries, @Param("rows") int rows,
+                      @Param("at") LocalDateTime completedAt,
+                      @Param("status") AccessLogImport.Status status);
+
+    @Modifying
+    @Query("update AccessLogImport i set i.status = :failed, i.lastError = :error " +
+            "where i.contentHash = :hash and i.status <> :completed")
+    int markFailed(@Param("hash") String contentHash, @Param("error") String error,
+                   @Param("failed") AccessLogImport.Status failed,
+                   @Param("completed") AccessLogImport.Status completed);
+}
@@ -0,0 +1,108 @@
+package at.technikum_wien.accesslog.service;
+
+import at.technikum_wien.accesslog.model.AccessLogsXml;
+import com.ctc.wstx.stax.WstxInputFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Liest {@code <accessLogs date="..."><entry documentId=".." count=".."/>...</accessLogs>} per StAX (Woodstox)
+ * Eintrag für Eintrag, statt die ganze Datei als {@link AccessLogsXml} in den Speicher zu laden.
+ * Der Speicherbedarf hängt nur von der Chunk-Größe ab, nicht von der Dateigröße.
+ */
+class AccessLogStreamReader implements AutoCloseable {
+
+    private static final String ROOT = "accessLogs";
+    private static final String ENTRY = "entry";
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final InputStream in;
+    private final XMLStreamReader xml;
+    private final String date;
+    private boolean finished;
+
+    private AccessLogStreamReader(InputStream in, XMLStreamReader xml, String date) {
+        this.in = in;
+        this.xml = xml;
+        this.date = date;
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = new WstxInputFactory();
+        // Keine DTDs/externen Entities (XXE) – Logdateien brauchen beides nicht
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /** Öffnet die Datei und liest bis zum Wurzelelement (inkl. date-Attribut) */
+    static AccessLogStreamReader open(Path file) throws IOException, XMLStreamException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        try {
+            XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+            while (xml.hasNext() && xml.next() != XMLStreamConstants.START_ELEMENT) {
+                // Prolog, Kommentare überspringen
+            }
+            if (!xml.isStartElement() || !ROOT.equals(xml.getLocalName())) {
+                throw new XMLStreamException("Expected <" + ROOT + "> as root element", xml.getLocation());
+            }
+            return new AccessLogStreamReader(in, xml, xml.getAttributeValue(null, "date"));
+        } catch (XMLStreamException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** date-Attribut des Wurzelelements, {@code null} wenn nicht gesetzt */
+    String date() {
+        return date;
+    }
+
+    /** Die nächsten bis zu {@code max} Einträge; leere Liste am Dateiende */
+    List<AccessLogsXml.LogEntry> next(int max) throws XMLStreamException {
+        List<AccessLogsXml.LogEntry> chunk = new ArrayList<>(Math.min(max, 1024));
+        while (!finished && chunk.size() < max && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && ENTRY.equals(xml.getLocalName())) {
+                chunk.add(entry());
+            } else if (event == XMLStreamConstants.END_ELEMENT && ROOT.equals(xml.getLocalName())) {
+                finished = true;
+            }
+        }
+        return chunk;
+    }
+
+    private AccessLogsXml.LogEntry entry() {
+        AccessLogsXml.LogEntry entry = new AccessLogsXml.LogEntry();
+        entry.setDocumentId(intAttribute("documentId"));
+        entry.setCount(intAttribute("count"));
+        return entry;
+    }
+
+    private Integer intAttribute(String name) {
+        String value = xml.getAttributeValue(null, name);
+        return value != null ? Integer.valueOf(value.trim()) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException ignore) {
+            // der Stream wird unten ohnehin geschlossen
+        } finally {
+            in.close();
+        }
+    }
+}
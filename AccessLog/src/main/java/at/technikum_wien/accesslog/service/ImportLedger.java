@@ -0,0 +1,102 @@
+package at.technikum_wien.accesslog.service;
+
+import at.technikum_wien.accesslog.model.AccessLogImport;
+import at.technikum_wien.accesslog.model.AccessLogImport.Status;
+import at.technikum_wien.accesslog.repo.AccessLogImportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Idempotenz des Imports über {@link AccessLogImport}: eine Datei wird pro Inhalt (SHA-256) genau einmal gezählt.
+ * <ol>
+ *   <li>{@link #claim} in eigener Transaktion: IN_PROGRESS setzen, COMPLETED-Dateien überspringen</li>
+ *   <li>{@link #complete} in der Import-Transaktion der Datei, atomar mit den Zählern</li>
+ *   <li>{@link #fail} nach einem Rollback, nur zur Nachverfolgung</li>
+ * </ol>
+ * Da die Zähler einer Datei in einer Transaktion landen, gibt es keine halb importierten Dateien:
+ * eine abgebrochene Datei (FAILED oder nach Absturz IN_PROGRESS) wird beim nächsten Lauf komplett neu importiert.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ImportLedger {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AccessLogImportRepository repository;
+    private final TransactionTemplate tx;
+
+    /** SHA-256 des Dateiinhalts, gestreamt */
+    public static String sha256(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Meldet den Import einer Datei an.
+     *
+     * @return {@code false}, wenn der Inhalt bereits vollständig importiert wurde
+     *         oder ein anderer Importer den Ledger-Eintrag gerade anlegt
+     */
+    public boolean claim(String contentHash, String fileName) {
+        try {
+            return Boolean.TRUE.equals(tx.execute(status -> {
+                AccessLogImport entry = repository.findByContentHash(contentHash)
+                        .orElseGet(() -> new AccessLogImport(contentHash, fileName));
+                if (entry.getStatus() == Status.COMPLETED) {
+                    return false;
+                }
+                entry.setFileName(fileName);
+                entry.setStatus(Status.IN_PROGRESS);
+                entry.setAttempts(entry.getAttempts() + 1);
+                entry.setStartedAt(LocalDateTime.now());
+                repository.saveAndFlush(entry);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Unique-Constraint auf content_hash: eine zweite Instanz hat dieselbe Datei gleichzeitig angemeldet
+            log.info("Import of {} already claimed elsewhere, skipping", fileName);
+            return false;
+        }
+    }
+
+    /**
+     * Markiert den Inhalt als importiert; muss in der Transaktion laufen, die auch die Zähler schreibt.
+     *
+     * @return {@code false}, wenn ein paralleler Lauf ihn inzwischen abgeschlossen hat – dann zurückrollen
+     */
+    public boolean complete(String contentHash, long entries, int rows) {
+        return repository.markCompleted(contentHash, entries, rows, LocalDateTime.now(), Status.COMPLETED) == 1;
+    }
+
+    public void fail(String contentHash, Exception error) {
+        String message = String.valueOf(error.getMessage());
+        String truncated = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        try {
+            tx.executeWithoutResult(status -> repository.markFailed(contentHash, truncated, Status.FAILED, Status.COMPLETED));
+        } catch (RuntimeException e) {
+            log.warn("Could not record failed import {}: {}", contentHash, e.getMessage());
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package at.technikum_wien.accesslog.service;
 
-import at.technikum_wien.accesslog.model.AccessStat;
 import at.technikum_wien.accesslog.model.AccessLogsXml;
-import at.technikum_wien.accesslog.repo.AccessStatRepository;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.nio.file.*;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 @Service
@@ -20,8 +29,9 @@ import java.util.stream.Stream;
 @RequiredArgsConstructor
 public class LogImporterService {
 
-    private final AccessStatRepository repository;
-    private final XmlMapper xmlMapper = new XmlMapper();
+    private final AccessStatBatchRepository statRepository;
+    private final TransactionTemplate tx;
+    private final ImportLedger ledger;
 
     @Value("${import.folder.input:/data/input}")
     private String inputFolder;
@@ -32,50 +42,173 @@ public class LogImporterService {
     @Value("${import.file.pattern:*.xml}")
     private String filePattern;
 
+    // Einträge pro gelesenem Chunk und max. Schlüssel in der Aggregations-Map, bevor vorzeitig geschrieben wird
+    @Value("${import.batch.read-chunk-size:10000}")
+    private int readChunkSize = 10_000;
+
+    @Value("${import.batch.max-pending-keys:200000}")
+    private int maxPendingKeys = 200_000;
+
+    // Dateien parallel; jede belegt während des Imports eine DB-Verbindung (<= Hikari-Pool lassen)
+    @Value("${import.parallelism:4}")
+    private int parallelism = 4;
+
+    // Scheduler und manueller Trigger sollen sich nicht überlappen
+    private final AtomicBoolean running = new AtomicBoolean();
+
     // Läuft täglich um 01:00 Uhr
     @Scheduled(cron = "${import.schedule.cron:0 0 1 * * *}")
     public void importAccessLogs() {
-        log.info("Starting batch import from {}", inputFolder);
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Batch import already running, skipping trigger");
+            return;
+        }
+        try {
+            log.info("Starting batch import from {}", inputFolder);
+            List<Path> files;
+            try (Stream<Path> paths = Files.list(Paths.get(inputFolder))) {
+                files = paths.filter(p -> p.toString().endsWith(".xml")) // Einfacher Pattern-Check
+                        .sorted()
+                        .toList();
+            } catch (IOException e) {
+                log.error("Error accessing input folder", e);
+                return;
+            }
+            importFiles(files);
+        } finally {
+            running.set(false);
+        }
+    }
 
-        try (Stream<Path> paths = Files.list(Paths.get(inputFolder))) {
-            paths.filter(p -> p.toString().endsWith(".xml")) // Einfacher Pattern-Check
-                    .forEach(this::processFile);
-        } catch (IOException e) {
-            log.error("Error accessing input folder", e);
+    private void importFiles(List<Path> files) {
+        if (files.isEmpty()) return;
+        int threads = Math.max(1, Math.min(parallelism, files.size()));
+        if (threads == 1) {
+            files.forEach(this::processFile);
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, "log-import-" + counter.incrementAndGet()));
+        try {
+            List<Future<?>> futures = files.stream().<Future<?>>map(f -> pool.submit(() -> processFile(f))).toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Batch import interrupted");
+        } catch (ExecutionException e) {
+            // processFile fängt selbst alles ab
+            log.error("Unexpected error in batch import", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
     }
 
     private void processFile(Path path) {
         log.info("Found file: {}", path); // Logge den vollen Pfad
+        String hash = null;
         try {
-            AccessLogsXml logs = xmlMapper.readValue(path.toFile(), AccessLogsXml.class);
-            log.info("XML parsed successfully. Date: {}, Entries: {}", logs.getDate(), logs.getEntries() != null ? logs.getEntries().size() : 0);
+            long start = System.nanoTime();
+            hash = ImportLedger.sha256(path);
+            if (!ledger.claim(hash, path.getFileName().toString())) {
+                log.info("File {} was already imported (sha256 {}), archiving without counting", path, hash);
+                archive(path);
+                return;
+            }
+            String contentHash = hash;
+            // Eine Transaktion pro Datei: Zähler und Ledger-Eintrag COMPLETED, entweder alles oder nichts
+            FileResult result = tx.execute(status -> {
+                FileResult r = importFile(path);
+                if (!ledger.complete(contentHash, r.entries(), r.rows())) {
+                    throw new IllegalStateException("File " + path + " was completed concurrently, rolling back");
+                }
+                return r;
+            });
+            log.info("Database update finished: date {}, {} entries -> {} upserted rows in {} ms",
+                    result.date(), result.entries(), result.rows(), (System.nanoTime() - start) / 1_000_000);
+
+            archive(path);
+        } catch (Exception e) {
+            log.error("CRITICAL ERROR processing file " + path, e);
+            if (hash != null) ledger.fail(hash, e);
+        }
+    }
 
-            LocalDate date = (logs.getDate() != null)
-                    ? LocalDate.parse(logs.getDate())
-                    : LocalDate.now();
+    // Archivieren NUR bei Erfolg verschieben
+    private void archive(Path path) throws IOException {
+        Path archivePath = Paths.get(archiveFolder);
+        if (!Files.exists(archivePath)) Files.createDirectories(archivePath);
 
-            for (AccessLogsXml.LogEntry entry : logs.getEntries()) {
-                log.info("Saving stat: DocID={}, Count={}", entry.getDocumentId(), entry.getCount()); // Debug Log
+        Path target = archivePath.resolve(path.getFileName());
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+        log.info("File moved to archive: {}", target);
+    }
 
-                AccessStat stat = repository.findByDocumentIdAndAccessDate(entry.getDocumentId(), date)
-                        .orElse(new AccessStat(entry.getDocumentId(), date, 0));
+    private record FileResult(LocalDate date, long entries, int rows) {}
+
+    /**
+     * Streamt die Datei in Chunks zu je {@code readChunkSize} Einträgen und summiert sie pro (documentId, Datum).
+     * Erreicht die Map {@code maxPendingKeys} Schlüssel, werden die Tageszeilen vorzeitig geschrieben – die Upserts
+     * addieren, mehrere Teil-Upserts in derselben Transaktion ergeben also dasselbe Ergebnis.
+     * Wochen- und Monatssummen werden erst am Ende einmal geschrieben: ihre Zeilen teilen sich alle parallel
+     * importierten Dateien, ihre Sperren sollen so kurz wie möglich und in einheitlicher Reihenfolge gehalten werden.
+     * Dafür bleiben die Dateisummen bis zum Ende im Speicher (eine Datei hat ein Datum: ein Eintrag pro Dokument).
+     */
+    private FileResult importFile(Path path) {
+        try (AccessLogStreamReader reader = AccessLogStreamReader.open(path)) {
+            LocalDate date = (reader.date() != null)
+                    ? LocalDate.parse(reader.date())
+                    : LocalDate.now();
 
-                stat.setAccessCount(stat.getAccessCount() + entry.getCount());
-                repository.save(stat);
+            Map<AccessStatBatchRepository.Key, Integer> pending = new HashMap<>();
+            Map<AccessStatBatchRepository.Key, Long> fileTotals = new HashMap<>();
+            long entries = 0;
+            int skipped = 0;
+            int rows = 0;
+            List<AccessLogsXml.LogEntry> chunk;
+            while (!(chunk = reader.next(readChunkSize)).isEmpty()) {
+                entries += chunk.size();
+                skipped += aggregate(chunk, date, pending);
+                if (pending.size() >= maxPendingKeys) {
+                    rows += flushDaily(pending, fileTotals);
+                    pending = new HashMap<>();
+                }
             }
-            log.info("Database update finished.");
-
-            // Archivieren NUR bei Erfolg verschieben
-            Path archivePath = Paths.get(archiveFolder);
-            if (!Files.exists(archivePath)) Files.createDirectories(archivePath);
+            rows += flushDaily(pending, fileTotals);
+            statRepository.upsertRollups(fileTotals);
+            if (skipped > 0) {
+                log.warn("Skipped {} entries without documentId or count in {}", skipped, path);
+            }
+            return new FileResult(date, entries, rows);
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Failed to read " + path, e);
+        }
+    }
 
-            Path target = archivePath.resolve(path.getFileName());
-            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
-            log.info("File moved to archive: {}", target);
+    private int flushDaily(Map<AccessStatBatchRepository.Key, Integer> pending,
+                           Map<AccessStatBatchRepository.Key, Long> fileTotals) {
+        pending.forEach((key, count) -> fileTotals.merge(key, (long) count, Long::sum));
+        return statRepository.upsertDaily(pending);
+    }
 
-        } catch (Exception e) {
-            log.error("CRITICAL ERROR processing file " + path, e);
+    /**
+     * Summiert die Einträge pro (documentId, Datum) in {@code counts};
+     * die Map wächst mit der Zahl verschiedener Dokumente, nicht mit der Zahl der Einträge.
+     *
+     * @return Anzahl übersprungener Einträge ohne documentId oder count
+     */
+    static int aggregate(List<AccessLogsXml.LogEntry> entries, LocalDate date,
+                         Map<AccessStatBatchRepository.Key, Integer> counts) {
+        int skipped = 0;
+        for (AccessLogsXml.LogEntry entry : entries) {
+            if (entry.getDocumentId() == null || entry.getCount() == null) {
+                skipped++;
+                continue;
+            }
+            counts.merge(new AccessStatBatchRepository.Key(entry.getDocumentId(), date), entry.getCount(), Math::addExact);
         }
+        return skipped;
     }
-}
\ No newline at end of file
+}
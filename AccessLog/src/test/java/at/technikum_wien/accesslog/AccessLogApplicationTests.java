@@ -1,5 +1,7 @@
 package at.technikum_wien.accesslog;
 
+import at.technikum_wien.accesslog.repo.AccessLogImportRepository;
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository;
 import at.technikum_wien.accesslog.repo.AccessStatRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -7,6 +9,7 @@ import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfigur
 import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @SpringBootTest
 // Wir nutzen EnableAutoConfiguration, um spezifische Configs hart auszuschließen
@@ -19,6 +22,16 @@ class AccessLogApplicationTests {
     @MockitoBean
     private AccessStatRepository accessStatRepository;
 
+    // Ohne DataSource gibt es weder JdbcTemplate noch Transaktionsmanager
+    @MockitoBean
+    private AccessStatBatchRepository accessStatBatchRepository;
+
+    @MockitoBean
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private AccessLogImportRepository accessLogImportRepository;
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,219 @@
+package at.technikum_wien.accesslog.benchmark;
+
+import at.technikum_wien.accesslog.model.AccessLogsXml;
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository;
+import at.technikum_wien.accesslog.service.ImportLedger;
+import at.technikum_wien.accesslog.service.LogImporterService;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import einer synthetischen Logdatei: alter Pfad (findBy + save pro Eintrag, hier per JDBC nachgestellt)
+ * gegen Vorab-Aggregation + Batch-Upsert. Läuft gegen H2 im Speicher, d.h. ohne Netzwerk-Roundtrips;
+ * gegen Postgres über das Netz ist der Abstand deutlich größer.
+ * Nur manuell: mvn test -Dtest=AccessLogImportBenchmarkTest -Dbenchmark=true [-Dbenchmark.entries=1000000 -Dbenchmark.documents=50000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AccessLogImportBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogImportBenchmarkTest.class);
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 21);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareRowByRowWithBatchUpsert() throws Exception {
+        int entries = Integer.getInteger("benchmark.entries", 1_000_000);
+        int documents = Integer.getInteger("benchmark.documents", 50_000);
+        Path input = Files.createDirectories(tempDir.resolve("input"));
+        Path file = input.resolve("access-" + DAY + ".xml");
+        writeLogFile(file, entries, documents);
+        log.info(String.format("Datei: %d Einträge, %d Dokumente, %.1f MB", entries, documents, Files.size(file) / 1e6));
+
+        JdbcTemplate jdbc = database("row-by-row");
+        long start = System.nanoTime();
+        rowByRow(jdbc, file);
+        report("findBy + save (alt)", start, jdbc);
+
+        jdbc = database("batch");
+        LogImporterService service = service(jdbc, input, 1);
+        start = System.nanoTime();
+        service.importAccessLogs();
+        report("Batch-Upsert", start, jdbc);
+    }
+
+    /**
+     * Heap beim Einlesen: Streaming-Import gegen das alte readValue (ganze Liste im Speicher).
+     * Aussagekräftig mit kleinem Heap, dort läuft der alte Pfad ab einer gewissen Dateigröße in einen OOM:
+     * -DargLine=-Xmx64m [-Dbenchmark.heap-entries=1000000,4000000,10000000]
+     */
+    @Test
+    void compareHeapOfFullParseWithStreaming() throws Exception {
+        int documents = Integer.getInteger("benchmark.documents", 50_000);
+        log.info(String.format("%10s | %-24s | %14s | %10s", "entries", "variant", "Heap-Spitze MB", "ms"));
+        for (String size : System.getProperty("benchmark.heap-entries", "1000000,4000000,10000000").split(",")) {
+            int entries = Integer.parseInt(size.trim());
+            Path input = Files.createDirectories(tempDir.resolve("heap-" + entries));
+            Path file = input.resolve("access-" + DAY + ".xml");
+            writeLogFile(file, entries, documents);
+            Path copy = Files.copy(file, tempDir.resolve("heap-" + entries + ".xml"));
+
+            JdbcTemplate jdbc = database("heap-" + entries);
+            LogImporterService service = service(jdbc, input, 1);
+            resetHeapPeak();
+            long start = System.nanoTime();
+            service.importAccessLogs();
+            printHeap(entries, "StAX-Import inkl. DB", start);
+            jdbc.execute("drop all objects");
+
+            resetHeapPeak();
+            start = System.nanoTime();
+            try {
+                new XmlMapper().readValue(copy.toFile(), AccessLogsXml.class);
+                printHeap(entries, "readValue (alt, ohne DB)", start);
+            } catch (OutOfMemoryError e) {
+                log.info(String.format("%10d | %-24s | %14s | %10s", entries, "readValue (alt, ohne DB)", "OOM", "-"));
+            }
+            Files.delete(copy);
+        }
+    }
+
+    private static void printHeap(int entries, String variant, long start) {
+        log.info(String.format("%10d | %-24s | %14.0f | %10d", entries, variant, heapPeak() / 1e6,
+                (System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Mehrere Tagesdateien mit 1..n parallelen Importen. Skaliert mit Kernen (XML-Parsing) und DB-Verbindungen.
+     * [-Dbenchmark.files=8 -Dbenchmark.file-entries=250000 -Dbenchmark.parallelism=1,2,4,8]
+     */
+    @Test
+    void compareParallelism() throws Exception {
+        int files = Integer.getInteger("benchmark.files", 8);
+        int entries = Integer.getInteger("benchmark.file-entries", 250_000);
+        int documents = Integer.getInteger("benchmark.documents", 50_000);
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        for (int i = 0; i < files; i++) {
+            writeLogFile(source.resolve("access-" + DAY.plusDays(i) + ".xml"), entries, documents, DAY.plusDays(i), i);
+        }
+        log.info(String.format("%d Dateien à %d Einträge, %d Kerne", files, entries, Runtime.getRuntime().availableProcessors()));
+        for (String p : System.getProperty("benchmark.parallelism", "1,2,4,8").split(",")) {
+            int parallelism = Integer.parseInt(p.trim());
+            Path input = Files.createDirectories(tempDir.resolve("parallel-" + parallelism));
+            try (var paths = Files.list(source)) {
+                for (Path f : paths.toList()) Files.copy(f, input.resolve(f.getFileName()));
+            }
+            JdbcTemplate jdbc = database("parallel-" + parallelism);
+            LogImporterService service = service(jdbc, input, parallelism);
+            long start = System.nanoTime();
+            service.importAccessLogs();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info(String.format("parallelism %2d: %6.1f s  %10.0f Einträge/s", parallelism, seconds, files * (double) entries / seconds));
+        }
+    }
+
+    private LogImporterService service(JdbcTemplate jdbc, Path input, int parallelism) {
+        // Ledger ohne JPA: jede Datei gilt als neu
+        ImportLedger ledger = mock(ImportLedger.class);
+        when(ledger.claim(anyString(), anyString())).thenReturn(true);
+        when(ledger.complete(anyString(), anyLong(), anyInt())).thenReturn(true);
+        LogImporterService service = new LogImporterService(new AccessStatBatchRepository(jdbc),
+                new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())), ledger);
+        ReflectionTestUtils.setField(service, "inputFolder", input.toString());
+        ReflectionTestUtils.setField(service, "archiveFolder", tempDir.resolve("archive-" + input.getFileName()).toString());
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        return service;
+    }
+
+    private static void resetHeapPeak() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long heapPeak() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .mapToLong(p -> p.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    /** Nachbau der alten Schleife: ein SELECT und ein INSERT/UPDATE pro Eintrag */
+    private static void rowByRow(JdbcTemplate jdbc, Path file) throws Exception {
+        AccessLogsXml logs = new XmlMapper().readValue(file.toFile(), AccessLogsXml.class);
+        for (AccessLogsXml.LogEntry entry : logs.getEntries()) {
+            List<Integer> existing = jdbc.queryForList(
+                    "select access_count from document_access_stats where document_id = ? and access_date = ?",
+                    Integer.class, entry.getDocumentId(), DAY);
+            if (existing.isEmpty()) {
+                jdbc.update("insert into document_access_stats (document_id, access_date, access_count) values (?, ?, ?)",
+                        entry.getDocumentId(), DAY, entry.getCount());
+            } else {
+                jdbc.update("update document_access_stats set access_count = ? where document_id = ? and access_date = ?",
+                        existing.get(0) + entry.getCount(), entry.getDocumentId(), DAY);
+            }
+        }
+    }
+
+    private static JdbcTemplate database(String name) {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1"));
+        jdbc.execute("create table document_access_stats (id bigint generated by default as identity primary key, " +
+                "document_id int not null, access_date date not null, access_count int not null, " +
+                "unique (document_id, access_date))");
+        for (String period : new String[] {"weekly:week_start", "monthly:month_start"}) {
+            String[] p = period.split(":");
+            jdbc.execute("create table document_access_stats_" + p[0] + " (id bigint generated by default as identity " +
+                    "primary key, document_id int not null, " + p[1] + " date not null, access_count bigint not null, " +
+                    "unique (document_id, " + p[1] + "))");
+        }
+        return jdbc;
+    }
+
+    private static void writeLogFile(Path file, int entries, int documents) throws Exception {
+        writeLogFile(file, entries, documents, DAY, 42);
+    }
+
+    private static void writeLogFile(Path file, int entries, int documents, LocalDate date, long seed) throws Exception {
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("<accessLogs date=\"" + date + "\">\n");
+            for (int i = 0; i < entries; i++) {
+                out.write("  <entry documentId=\"" + (1 + random.nextInt(documents)) + "\" count=\"" + (1 + random.nextInt(20)) + "\"/>\n");
+            }
+            out.write("</accessLogs>\n");
+        }
+    }
+
+    private static void report(String variant, long start, JdbcTemplate jdbc) {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Long total = jdbc.queryForObject("select sum(access_count) from document_access_stats", Long.class);
+        Integer rows = jdbc.queryForObject("select count(*) from document_access_stats", Integer.class);
+        log.info(String.format("%-22s %8d ms   %6d Zeilen, Summe %d", variant, millis, rows, total));
+    }
+}
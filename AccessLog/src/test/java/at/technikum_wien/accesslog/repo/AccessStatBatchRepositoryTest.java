@@ -0,0 +1,109 @@
+package at.technikum_wien.accesslog.repo;
+
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository.Key;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upsert gegen H2 (MERGE-Variante); die Postgres-Variante (ON CONFLICT) hat dieselbe Semantik.
+ */
+class AccessStatBatchRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 21);
+
+    private JdbcTemplate jdbc;
+    private AccessStatBatchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:upsert-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1"));
+        jdbc.execute("create table document_access_stats (id bigint generated by default as identity primary key, " +
+                "document_id int not null, access_date date not null, access_count int not null, " +
+                "unique (document_id, access_date))");
+        for (String period : new String[] {"weekly:week_start", "monthly:month_start"}) {
+            String[] p = period.split(":");
+            jdbc.execute("create table document_access_stats_" + p[0] + " (id bigint generated by default as identity " +
+                    "primary key, document_id int not null, " + p[1] + " date not null, access_count bigint not null, " +
+                    "unique (document_id, " + p[1] + "))");
+        }
+        repository = new AccessStatBatchRepository(jdbc);
+        ReflectionTestUtils.setField(repository, "chunkSize", 2);
+    }
+
+    private Integer count(int documentId, LocalDate date) {
+        return jdbc.queryForObject("select access_count from document_access_stats where document_id = ? and access_date = ?",
+                Integer.class, documentId, date);
+    }
+
+    private Long rollup(String period, String column, int documentId, LocalDate start) {
+        return jdbc.queryForObject("select access_count from document_access_stats_" + period +
+                " where document_id = ? and " + column + " = ?", Long.class, documentId, start);
+    }
+
+    @Test
+    void upsert_ShouldInsertNewRowsAcrossChunks() {
+        Map<Key, Integer> counts = new HashMap<>();
+        for (int id = 1; id <= 5; id++) {
+            counts.put(new Key(id, DAY), id * 10);
+        }
+
+        assertThat(repository.upsert(counts)).isEqualTo(5);
+
+        assertThat(jdbc.queryForObject("select count(*) from document_access_stats", Integer.class)).isEqualTo(5);
+        assertThat(count(3, DAY)).isEqualTo(30);
+    }
+
+    @Test
+    void upsert_ShouldAddToExistingRows() {
+        repository.upsert(Map.of(new Key(1, DAY), 20));
+
+        repository.upsert(Map.of(new Key(1, DAY), 5, new Key(1, DAY.plusDays(1)), 7));
+
+        assertThat(count(1, DAY)).isEqualTo(25);
+        assertThat(count(1, DAY.plusDays(1))).isEqualTo(7);
+    }
+
+    @Test
+    void upsert_ShouldAddCountsToWeeklyAndMonthlyRollups() {
+        // 2026-01-21 ist ein Mittwoch: Woche ab 19.01., der 26.01. liegt in der nächsten Woche, der 02.02. im Februar
+        repository.upsert(Map.of(new Key(1, DAY), 10, new Key(1, DAY.plusDays(1)), 5, new Key(2, DAY), 1));
+        repository.upsert(Map.of(new Key(1, LocalDate.of(2026, 1, 26)), 3, new Key(1, LocalDate.of(2026, 2, 2)), 4));
+
+        assertThat(rollup("weekly", "week_start", 1, LocalDate.of(2026, 1, 19))).isEqualTo(15);
+        assertThat(rollup("weekly", "week_start", 1, LocalDate.of(2026, 1, 26))).isEqualTo(3);
+        assertThat(rollup("weekly", "week_start", 2, LocalDate.of(2026, 1, 19))).isEqualTo(1);
+        assertThat(rollup("monthly", "month_start", 1, LocalDate.of(2026, 1, 1))).isEqualTo(18);
+        assertThat(rollup("monthly", "month_start", 1, LocalDate.of(2026, 2, 1))).isEqualTo(4);
+    }
+
+    @Test
+    void upsertDaily_ShouldLeaveRollupsToUpsertRollups() {
+        repository.upsertDaily(Map.of(new Key(1, DAY), 10));
+        assertThat(jdbc.queryForObject("select count(*) from document_access_stats_weekly", Long.class)).isZero();
+
+        repository.upsertRollups(Map.of(new Key(1, DAY), 10L));
+        assertThat(rollup("weekly", "week_start", 1, LocalDate.of(2026, 1, 19))).isEqualTo(10);
+        assertThat(rollup("monthly", "month_start", 1, LocalDate.of(2026, 1, 1))).isEqualTo(10);
+    }
+
+    @Test
+    void weekStart_ShouldBeMondayOfIsoWeek() {
+        assertThat(AccessStatBatchRepository.weekStart(LocalDate.of(2026, 1, 19))).isEqualTo(LocalDate.of(2026, 1, 19));
+        assertThat(AccessStatBatchRepository.weekStart(LocalDate.of(2026, 1, 25))).isEqualTo(LocalDate.of(2026, 1, 19));
+        assertThat(AccessStatBatchRepository.weekStart(LocalDate.of(2026, 1, 1))).isEqualTo(LocalDate.of(2025, 12, 29));
+    }
+
+    @Test
+    void upsert_WithNoCounts_ShouldNotTouchDatabase() {
+        assertThat(repository.upsert(Map.of())).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package at.technikum_wien.accesslog.service;
+
+import at.technikum_wien.accesslog.model.AccessLogsXml;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogStreamReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file(String xml) throws Exception {
+        Path file = tempDir.resolve("log.xml");
+        Files.writeString(file, xml);
+        return file;
+    }
+
+    @Test
+    void next_ShouldReturnEntriesInBoundedChunks() throws Exception {
+        Path file = file("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!-- Export vom 21.01. -->
+            <accessLogs date="2026-01-21">
+                <entry documentId="1" count="50" />
+                <entry documentId="2" count="120"></entry>
+                <entry documentId="3" count=" 7 " />
+            </accessLogs>
+            """);
+
+        try (AccessLogStreamReader reader = AccessLogStreamReader.open(file)) {
+            assertThat(reader.date()).isEqualTo("2026-01-21");
+
+            List<AccessLogsXml.LogEntry> first = reader.next(2);
+            assertThat(first).extracting(AccessLogsXml.LogEntry::getDocumentId).containsExactly(1, 2);
+            assertThat(first.get(1).getCount()).isEqualTo(120);
+
+            List<AccessLogsXml.LogEntry> second = reader.next(2);
+            assertThat(second).singleElement().extracting(AccessLogsXml.LogEntry::getCount).isEqualTo(7);
+
+            assertThat(reader.next(2)).isEmpty();
+        }
+    }
+
+    @Test
+    void open_ShouldHandleEmptyRootWithoutDate() throws Exception {
+        try (AccessLogStreamReader reader = AccessLogStreamReader.open(file("<accessLogs/>"))) {
+            assertThat(reader.date()).isNull();
+            assertThat(reader.next(10)).isEmpty();
+        }
+    }
+
+    @Test
+    void next_ShouldKeepMissingAttributesAsNull() throws Exception {
+        try (AccessLogStreamReader reader = AccessLogStreamReader.open(file("<accessLogs><entry count='3'/></accessLogs>"))) {
+            AccessLogsXml.LogEntry entry = reader.next(10).get(0);
+            assertThat(entry.getDocumentId()).isNull();
+            assertThat(entry.getCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void open_ShouldRejectUnexpectedRootAndDtds() throws Exception {
+        assertThatThrownBy(() -> AccessLogStreamReader.open(file("<logs/>")))
+                .isInstanceOf(XMLStreamException.class);
+
+        Path xxe = file("""
+            <?xml version="1.0"?>
+            <!DOCTYPE accessLogs [<!ENTITY x SYSTEM "file:///etc/passwd">]>
+            <accessLogs date="&x;"/>
+            """);
+        assertThatThrownBy(() -> {
+            try (AccessLogStreamReader reader = AccessLogStreamReader.open(xxe)) {
+                reader.next(10);
+            }
+        }).isInstanceOf(XMLStreamException.class);
+    }
+}
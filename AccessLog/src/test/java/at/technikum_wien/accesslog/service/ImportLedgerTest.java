@@ -0,0 +1,99 @@
+package at.technikum_wien.accesslog.service;
+
+import at.technikum_wien.accesslog.model.AccessLogImport;
+import at.technikum_wien.accesslog.model.AccessLogImport.Status;
+import at.technikum_wien.accesslog.repo.AccessLogImportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportLedgerTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @Mock
+    private AccessLogImportRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ImportLedger ledger;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new ImportLedger(repository, new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void claim_WhenNew_ShouldInsertInProgress() {
+        when(repository.findByContentHash(HASH)).thenReturn(Optional.empty());
+
+        assertThat(ledger.claim(HASH, "day.xml")).isTrue();
+
+        ArgumentCaptor<AccessLogImport> captor = ArgumentCaptor.forClass(AccessLogImport.class);
+        verify(repository).saveAndFlush(captor.capture());
+        assertThat(captor.getValue().getStatus()).isEqualTo(Status.IN_PROGRESS);
+        assertThat(captor.getValue().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void claim_WhenFailedBefore_ShouldRetryAndCountAttempt() {
+        AccessLogImport failed = new AccessLogImport(HASH, "day.xml");
+        failed.setStatus(Status.FAILED);
+        failed.setAttempts(1);
+        when(repository.findByContentHash(HASH)).thenReturn(Optional.of(failed));
+
+        assertThat(ledger.claim(HASH, "day.xml")).isTrue();
+        assertThat(failed.getStatus()).isEqualTo(Status.IN_PROGRESS);
+        assertThat(failed.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void claim_WhenCompletedOrClaimedElsewhere_ShouldSkip() {
+        AccessLogImport done = new AccessLogImport(HASH, "day.xml");
+        done.setStatus(Status.COMPLETED);
+        when(repository.findByContentHash(HASH)).thenReturn(Optional.of(done));
+        assertThat(ledger.claim(HASH, "day-copy.xml")).isFalse();
+        verify(repository, never()).saveAndFlush(any());
+
+        when(repository.findByContentHash(HASH)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate content_hash"));
+        assertThat(ledger.claim(HASH, "day.xml")).isFalse();
+    }
+
+    @Test
+    void complete_ShouldReportConcurrentCompletion() {
+        when(repository.markCompleted(eq(HASH), eq(10L), eq(2), any(), eq(Status.COMPLETED))).thenReturn(1, 0);
+
+        assertThat(ledger.complete(HASH, 10, 2)).isTrue();
+        assertThat(ledger.complete(HASH, 10, 2)).isFalse();
+    }
+
+    @Test
+    void sha256_ShouldHashFileContent() throws Exception {
+        Path file = tempDir.resolve("a.xml");
+        Files.writeString(file, "abc");
+
+        assertThat(ImportLedger.sha256(file))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+}
@@ -1,33 +1,40 @@
 package at.technikum_wien.accesslog.service;
 
-import at.technikum_wien.accesslog.model.AccessStat;
-import at.technikum_wien.accesslog.repo.AccessStatRepository;
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository;
+import at.technikum_wien.accesslog.repo.AccessStatBatchRepository.Key;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class LogImporterServiceTest {
 
     @Mock
-    private AccessStatRepository repository;
+    private AccessStatBatchRepository statRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ImportLedger ledger;
 
-    @InjectMocks
     private LogImporterService importerService;
 
     @TempDir
@@ -35,6 +42,9 @@ class LogImporterServiceTest {
 
     @BeforeEach
     void setUp() {
+        importerService = new LogImporterService(statRepository, new TransactionTemplate(transactionManager), ledger);
+        lenient().when(ledger.claim(anyString(), anyString())).thenReturn(true);
+        lenient().when(ledger.complete(anyString(), anyLong(), anyInt())).thenReturn(true);
         // Wir injizieren die Pfade manuell, da @Value ohne Spring Context nicht funktioniert
         ReflectionTestUtils.setField(importerService, "inputFolder", tempDir.toString());
         ReflectionTestUtils.setField(importerService, "archiveFolder", tempDir.resolve("archive").toString());
@@ -42,7 +52,7 @@ class LogImporterServiceTest {
     }
 
     @Test
-    void importAccessLogs_ShouldPickUpXmlFile_AndSaveToRepo() throws Exception {
+    void importAccessLogs_ShouldPickUpXmlFile_AndUpsertInOneTransaction() throws Exception {
         // 1. Setup: XML-Datei im simulierten Input-Ordner erstellen
         Path xmlFile = tempDir.resolve("test-log.xml");
         String xmlContent = """
@@ -51,40 +61,121 @@ class LogImporterServiceTest {
             </accessLogs>
             """;
         Files.writeString(xmlFile, xmlContent);
+        when(statRepository.upsertDaily(any())).thenReturn(1);
 
-        // 2. Mock: Repository findet noch keinen Eintrag für ID 99 am 2026-01-21
-        when(repository.findByDocumentIdAndAccessDate(eq(99), any(LocalDate.class)))
-                .thenReturn(Optional.empty());
+        // 2. Ausführen
+        importerService.importAccessLogs();
+
+        // 3. Verifizieren: ein Upsert mit dem Zähler, eine Transaktion, Datei archiviert
+        verify(statRepository).upsertDaily(Map.of(new Key(99, LocalDate.of(2026, 1, 21)), 10));
+        verify(statRepository).upsertRollups(Map.of(new Key(99, LocalDate.of(2026, 1, 21)), 10L));
+        verify(transactionManager).commit(any());
+        assertThat(xmlFile).doesNotExist();
+        assertThat(tempDir.resolve("archive").resolve("test-log.xml")).exists();
+    }
+
+    @Test
+    void importAccessLogs_ShouldSumDuplicateEntriesBeforeWriting() throws Exception {
+        // 1. XML mit mehreren Einträgen für dasselbe Dokument
+        Path xmlFile = tempDir.resolve("update-log.xml");
+        Files.writeString(xmlFile, """
+            <accessLogs date="2026-01-21">
+                <entry documentId="1" count="5"/>
+                <entry documentId="2" count="7"/>
+                <entry documentId="1" count="20"/>
+                <entry count="3"/>
+            </accessLogs>
+            """);
 
-        // 3. Ausführen
+        // 2. Ausführen
         importerService.importAccessLogs();
 
-        // 4. Verifizieren: Wurde save() aufgerufen?
-        ArgumentCaptor<AccessStat> statCaptor = ArgumentCaptor.forClass(AccessStat.class);
-        verify(repository, times(1)).save(statCaptor.capture());
+        // 3. Prüfen: vorab summiert (5 + 20 = 25), Eintrag ohne documentId übersprungen
+        LocalDate date = LocalDate.of(2026, 1, 21);
+        verify(statRepository).upsertDaily(Map.of(new Key(1, date), 25, new Key(2, date), 7));
+    }
 
-        AccessStat savedStat = statCaptor.getValue();
-        assertThat(savedStat.getDocumentId()).isEqualTo(99);
-        assertThat(savedStat.getAccessCount()).isEqualTo(10);
-        assertThat(savedStat.getAccessDate()).isEqualTo(LocalDate.of(2026, 1, 21));
+    @Test
+    void importAccessLogs_WhenManyDocuments_ShouldFlushDailyInChunksAndRollupsOnce() throws Exception {
+        ReflectionTestUtils.setField(importerService, "readChunkSize", 2);
+        ReflectionTestUtils.setField(importerService, "maxPendingKeys", 2);
+        StringBuilder xml = new StringBuilder("<accessLogs date='2026-01-21'>");
+        for (int id = 1; id <= 5; id++) {
+            xml.append("<entry documentId='").append(id).append("' count='1'/>");
+        }
+        Files.writeString(tempDir.resolve("many.xml"), xml.append("</accessLogs>").toString());
+
+        importerService.importAccessLogs();
+
+        ArgumentCaptor<Map<Key, Integer>> captor = ArgumentCaptor.captor();
+        InOrder order = inOrder(statRepository);
+        order.verify(statRepository, times(3)).upsertDaily(captor.capture());
+        // Summenzeilen erst nach allen Tageszeilen, einmal für die ganze Datei
+        order.verify(statRepository).upsertRollups(argThat(totals -> totals.size() == 5));
+        assertThat(captor.getAllValues()).extracting(Map::size).containsExactly(2, 2, 1);
+        verify(transactionManager, times(1)).commit(any());
     }
 
     @Test
-    void importAccessLogs_ShouldUpdateExistingStat() throws Exception {
-        // 1. XML erstellen
-        Path xmlFile = tempDir.resolve("update-log.xml");
-        Files.writeString(xmlFile, "<accessLogs><entry documentId='1' count='5'/></accessLogs>");
+    void importAccessLogs_WhenUpsertFails_ShouldRollbackAndKeepFile() throws Exception {
+        Path xmlFile = tempDir.resolve("broken.xml");
+        Files.writeString(xmlFile, "<accessLogs date='2026-01-21'><entry documentId='1' count='5'/></accessLogs>");
+        when(statRepository.upsertDaily(any())).thenThrow(new IllegalStateException("db down"));
 
-        // 2. Mock: Es gibt schon einen Eintrag mit Count = 20
-        AccessStat existingStat = new AccessStat(1, LocalDate.now(), 20);
-        when(repository.findByDocumentIdAndAccessDate(eq(1), any(LocalDate.class)))
-                .thenReturn(Optional.of(existingStat));
+        importerService.importAccessLogs();
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(ledger).fail(eq(ImportLedger.sha256(xmlFile)), any());
+        assertThat(xmlFile).exists();
+    }
+
+    @Test
+    void importAccessLogs_WhenFileAlreadyInLedger_ShouldArchiveWithoutCounting() throws Exception {
+        Path xmlFile = tempDir.resolve("again.xml");
+        Files.writeString(xmlFile, "<accessLogs date='2026-01-21'><entry documentId='1' count='5'/></accessLogs>");
+        when(ledger.claim(ImportLedger.sha256(xmlFile), "again.xml")).thenReturn(false);
+
+        importerService.importAccessLogs();
+
+        verifyNoInteractions(statRepository, transactionManager);
+        assertThat(xmlFile).doesNotExist();
+        assertThat(tempDir.resolve("archive").resolve("again.xml")).exists();
+    }
+
+    @Test
+    void importAccessLogs_WhenCompletedConcurrently_ShouldRollbackCounts() throws Exception {
+        Path xmlFile = tempDir.resolve("race.xml");
+        Files.writeString(xmlFile, "<accessLogs date='2026-01-21'><entry documentId='1' count='5'/></accessLogs>");
+        when(ledger.complete(anyString(), anyLong(), anyInt())).thenReturn(false);
+
+        importerService.importAccessLogs();
+
+        verify(statRepository).upsertRollups(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void importAccessLogs_WithSeveralFiles_ShouldImportAllInParallel() throws Exception {
+        ReflectionTestUtils.setField(importerService, "parallelism", 3);
+        for (int i = 1; i <= 6; i++) {
+            Files.writeString(tempDir.resolve("day-" + i + ".xml"),
+                    "<accessLogs date='2026-01-0" + i + "'><entry documentId='1' count='" + i + "'/></accessLogs>");
+        }
+        java.util.Set<String> threads = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        when(statRepository.upsertDaily(any())).thenAnswer(inv -> {
+            threads.add(Thread.currentThread().getName());
+            return 1;
+        });
 
-        // 3. Ausführen
         importerService.importAccessLogs();
 
-        // 4. Prüfen: Wurde addiert? (20 + 5 = 25)
-        assertThat(existingStat.getAccessCount()).isEqualTo(25);
-        verify(repository).save(existingStat);
+        verify(statRepository, times(6)).upsertDaily(any());
+        verify(ledger, times(6)).complete(anyString(), eq(1L), eq(1));
+        assertThat(threads).allMatch(name -> name.startsWith("log-import-"));
+        try (var remaining = Files.list(tempDir)) {
+            assertThat(remaining.filter(p -> p.toString().endsWith(".xml"))).isEmpty();
+        }
     }
-}
\ No newline at end of file
+}
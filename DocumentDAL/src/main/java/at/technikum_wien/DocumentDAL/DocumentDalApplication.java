@@ -2,10 +2,12 @@ package at.technikum_wien.DocumentDAL;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.TimeZone;
 
 @SpringBootApplication
+@EnableScheduling
 public class DocumentDalApplication {
 
 	public static void main(String[] args) {
@@ -18,6 +18,8 @@ public class RabbitConfig {
     public RabbitTemplate rabbitTemplate(ConnectionFactory cf, Jackson2JsonMessageConverter conv) {
         RabbitTemplate tpl = new RabbitTemplate(cf);
         tpl.setMessageConverter(conv);
+        // Unroutable Nachrichten zurückmelden, damit der Outbox-Relay sie nicht als zugestellt markiert
+        tpl.setMandatory(true);
         return tpl;
     }
 }
@@ -1,12 +1,20 @@
 package at.technikum_wien.DocumentDAL.controller;
 
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
-import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
 import at.technikum_wien.DocumentDAL.exceptions.DocumentNotFoundException;
 import at.technikum_wien.DocumentDAL.model.Document;
 import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import at.technikum_wien.DocumentDAL.services.AccessStatsService;
+import at.technikum_wien.DocumentDAL.services.DocumentAccessStats;
+import at.technikum_wien.DocumentDAL.services.DocumentBatchUpdate;
+import at.technikum_wien.DocumentDAL.services.DocumentCache;
+import at.technikum_wien.DocumentDAL.services.DocumentPage;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchPage;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchService;
 import at.technikum_wien.DocumentDAL.services.DocumentService;
 import at.technikum_wien.DocumentDAL.services.PdfPreviewService;
+import at.technikum_wien.DocumentDAL.services.PopularDocument;
+import at.technikum_wien.DocumentDAL.services.PreviewSize;
 import at.technikum_wien.DocumentDAL.validation.AllowedMime;
 import at.technikum_wien.DocumentDAL.validation.MaxFileSize;
 import jakarta.validation.Valid;
@@ -15,31 +23,49 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/documents")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-Cursor")
 public class DocumentController {
 
     private final DocumentRepository repo;
-    private final DocumentIndexRepository indexRepo;
+    private final DocumentSearchService searchService;
     private final DocumentService service;
     private final PdfPreviewService pdfPreviewService;
+    private final DocumentCache documentCache;
+    private final AccessStatsService accessStats;
     private static final Logger log = LoggerFactory.getLogger(DocumentController.class);
     private static final long MAX_FILE_SIZE = 50L * 1024 * 1024;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_STATS_DAYS = 366;
+    private static final int MAX_TOP_LIMIT = 1000;
 
-    public DocumentController(DocumentRepository repo, DocumentIndexRepository indexRepo, DocumentService documentService, PdfPreviewService pdfPreviewService) {
+    public DocumentController(DocumentRepository repo, DocumentSearchService searchService, DocumentService documentService, PdfPreviewService pdfPreviewService,
+                              DocumentCache documentCache, AccessStatsService accessStats) {
         this.repo = repo;
-        this.indexRepo = indexRepo;
+        this.searchService = searchService;
         this.service = documentService;
         this.pdfPreviewService = pdfPreviewService;
+        this.documentCache = documentCache;
+        this.accessStats = accessStats;
     }
 
     // JSON-Metadaten speichern (ohne Datei)
@@ -80,38 +106,127 @@ public class DocumentController {
         return ResponseEntity.ok(saved);
     }
 
-    // Datei herunterladen aus MinIO
+    // Datei herunterladen aus MinIO (gestreamt, mit Range/If-Range und bedingten Requests)
     @GetMapping("/{id}/file")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable int id) {
-        var doc = repo.findById(id).orElse(null);
-        if (doc == null) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable int id,
+                                                              @RequestHeader HttpHeaders requestHeaders,
+                                                              WebRequest webRequest) {
+        var doc = documentCache.find(id).orElse(null);
+        if (doc == null || doc.getStorageKey() == null) {
             return ResponseEntity.notFound().build();
         }
-        byte[] data = service.getFileBytes(id);
+
+        String etag = fileETag(doc);
+        long lastModified = fileLastModified(doc);
+        // 304 direkt aus den Metadaten, ohne MinIO anzufassen
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
 
         String fileName = doc.getFileName() != null ? doc.getFileName() : ("document-" + id);
         String contentType = doc.getMimeType() != null ? doc.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
         String contentDisposition = "attachment; filename*=UTF-8''" +
                 java.net.URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+        long size = doc.getSize();
+
+        long[] range = null;
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(requestHeaders.getFirst(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multi-Range wird nicht unterstützt -> vollständige Antwort (RFC 9110 erlaubt das)
+                if (ranges.size() == 1) {
+                    long start = ranges.get(0).getRangeStart(size);
+                    long end = ranges.get(0).getRangeEnd(size);
+                    if (start >= size || end < start) {
+                        throw new IllegalArgumentException("Range outside of file size " + size);
+                    }
+                    range = new long[] { start, end };
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
 
-        return ResponseEntity.ok()
+        // Viewer laden PDFs in vielen Range-Requests: nur den Anfang der Datei als Zugriff zählen, 304 gar nicht
+        if (range == null || range[0] == 0) {
+            accessStats.record(id);
+        }
+
+        ResponseEntity.BodyBuilder response;
+        InputStream in;
+        if (range != null) {
+            long length = range[1] - range[0] + 1;
+            in = service.openFileStream(doc, range[0], length);
+            response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/" + size)
+                    .contentLength(length);
+        } else {
+            in = service.openFileStream(doc, 0, null);
+            response = ResponseEntity.ok().contentLength(size);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (in) {
+                in.transferTo(out);
+            }
+        };
+        return response
                 .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
                 .header(HttpHeaders.CONTENT_TYPE, contentType)
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(data.length))
-                .body(data);
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(etag)
+                .lastModified(lastModified)
+                .body(body);
     }
 
-    // Suche (q optional)
+    private static String fileETag(Document doc) {
+        if (doc.getContentHash() != null) {
+            return "\"" + doc.getContentHash() + "\"";
+        }
+        // Altbestand ohne Hash: aus Metadaten ableiten
+        return "\"" + doc.getId() + "-" + doc.getSize() + "-" + Integer.toHexString(doc.getStorageKey().hashCode()) + "\"";
+    }
+
+    private static long fileLastModified(Document doc) {
+        LocalDateTime ts = doc.getFileModifiedAt() != null ? doc.getFileModifiedAt() : doc.getUploadDate();
+        if (ts == null) return -1;
+        // HTTP-Datumswerte haben Sekundengenauigkeit
+        return ts.atZone(ZoneId.systemDefault()).toInstant().getEpochSecond() * 1000;
+    }
+
+    private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false; // schwache ETags sind für If-Range nicht zulässig
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModified >= 0 && date == lastModified;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Suche (q optional): GET /api/documents/search?q=...&size=100&cursor=...
+    // Seitenweise über DocumentSearchService, Treffer ohne content; Cursor für die nächste Seite im Header X-Next-Cursor
     @GetMapping("/search")
-    public List<DocumentIndex> search(@RequestParam(required = false) String q) {
-        if (q == null || q.isBlank()) {
-            java.util.List<DocumentIndex> all = new java.util.ArrayList<>();
-            indexRepo.findAll().forEach(all::add);
-            return all;
+    public ResponseEntity<List<DocumentIndex>> search(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "" + DocumentSearchService.MAX_SIZE) int size,
+            @RequestParam(required = false) String cursor
+    ) {
+        DocumentSearchPage page = searchService.search(q, size, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
         }
-        
-        // FIX: Aufruf der neuen, kürzeren Methode
-        return indexRepo.search(q);
+        return response.body(page.hits().stream().map(DocumentSearchPage.Hit::document).toList());
     }
 
     @PatchMapping("/{id}")
@@ -120,16 +235,43 @@ public class DocumentController {
         return ResponseEntity.ok(updatedDoc);
     }
 
-    // GET /api/documents/
+    // PUT /api/documents/{id}/ocr-result – Ergebnis des OCR-Workers; 204 ohne Body, damit der (große) Text nicht zurückgeht
+    @PutMapping("/{id}/ocr-result")
+    public ResponseEntity<Void> ocrResult(@PathVariable int id, @RequestBody Map<String, String> body) {
+        service.applyOcrResult(id, body.get("content"));
+        return ResponseEntity.noContent().build();
+    }
+
+    // POST /api/documents/batch – viele content-/summary-Updates der Worker in einem Request, Ergebnis pro Eintrag
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchUpdate(@RequestBody List<DocumentBatchUpdate.Item> items) {
+        if (items.size() > DocumentBatchUpdate.MAX_ITEMS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "At most " + DocumentBatchUpdate.MAX_ITEMS + " updates per batch"));
+        }
+        return ResponseEntity.ok(service.applyBatch(items));
+    }
+
+    // GET /api/documents?limit=50&cursor=...&fields=summary,content
+    // Keyset-paginiert; der Cursor für die nächste Seite steht im Header X-Next-Cursor
     @GetMapping
-    public ResponseEntity<List<Document>> getAll() {
-        return ResponseEntity.ok(repo.findAll());
+    public ResponseEntity<List<Document>> getAll(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DocumentService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields
+    ) {
+        DocumentPage page = service.listPage(cursor, limit, fields);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
     // GET /api/documents/{id}
     @GetMapping("/{id}")
     public ResponseEntity<Document> getById(@PathVariable int id) {
-        return repo.findById(id)
+        return documentCache.find(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -137,23 +279,7 @@ public class DocumentController {
     // PUT /api/documents/{id}
     @PutMapping("/{id}")
     public ResponseEntity<Document> update(@PathVariable int id, @RequestBody Document incoming) {
-        return repo.findById(id)
-                .map(existing -> {
-                    existing.setTitle(incoming.getTitle());
-                    existing.setContent(incoming.getContent());
-
-                    // Summary darf nicht überschrieben werden, wenn sie bereits durch GenAI gesetzt wurde
-                    if (!"GENAI_DONE".equals(existing.getSummaryStatus())) {
-                        existing.setSummary(incoming.getSummary());
-                    }
-
-                    if (incoming.getUploadDate() != null) {
-                        existing.setUploadDate(incoming.getUploadDate());
-                    }
-                    Document saved = repo.save(existing);
-                    return ResponseEntity.ok(saved);
-                })
-                .orElseGet(() -> ResponseEntity.notFound().build());
+        return ResponseEntity.ok(service.update(id, incoming));
     }
 
     // DELETE /api/documents/{id} (MinIO + DB)
@@ -166,29 +292,76 @@ public class DocumentController {
         return ResponseEntity.noContent().build();
     }
 
-    // PDF-Preview (erste Seite als PNG) aus MinIO
+    // PDF-Preview (erste Seite, JPEG) in thumbnail/card/full.
+    // Mit ?v=<contentHash> ist die URL versioniert und die Antwort unveränderlich cachebar,
+    // ohne v revalidiert der Browser per ETag (304 ohne MinIO-Zugriff).
     @GetMapping("/{id}/preview")
-    public ResponseEntity<?> preview(@PathVariable int id) {
-        return repo.findById(id).map(doc -> {
-            if (doc.getMimeType() == null || !doc.getMimeType().equalsIgnoreCase("application/pdf")) {
-                return ResponseEntity.notFound().build();
-            }
-            try {
-                byte[] src = service.getFileBytes(id);
-                byte[] png = pdfPreviewService.getPreview(doc, src);
-                return ResponseEntity.ok()
-                        .cacheControl(CacheControl.noStore())
-                        .contentType(MediaType.IMAGE_PNG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"preview-" + doc.getId() + ".png\"")
-                        .body(png);
-            } catch (IOException e) {
-                log.error("Preview rendering failed for id={}", id, e);
-                return ResponseEntity.internalServerError().body(null);
-            } catch (Exception e) {
-                log.error("Storage load failed for id={}", id, e);
-                return ResponseEntity.internalServerError().body(null);
+    public ResponseEntity<?> preview(@PathVariable int id,
+                                     @RequestParam(value = "size", defaultValue = "full") String size,
+                                     @RequestParam(value = "v", required = false) String version,
+                                     WebRequest webRequest) {
+        PreviewSize previewSize;
+        try {
+            previewSize = PreviewSize.parse(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unknown preview size: " + size));
+        }
+        var doc = documentCache.find(id).orElse(null);
+        if (doc == null || doc.getMimeType() == null || !doc.getMimeType().equalsIgnoreCase("application/pdf")) {
+            return ResponseEntity.notFound().build();
+        }
+        String currentVersion = PdfPreviewService.version(doc);
+        String etag = "\"" + currentVersion + "-" + previewSize.key() + "\"";
+        // 304 direkt aus den Metadaten, ohne MinIO anzufassen
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        CacheControl cacheControl = currentVersion.equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        try {
+            byte[] jpeg = pdfPreviewService.getPreview(doc, previewSize);
+            // Thumbnails/Karten der Listenansicht sind kein Zugriff auf das Dokument
+            if (previewSize == PreviewSize.FULL) {
+                accessStats.record(id);
             }
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .eTag(etag)
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "inline; filename=\"preview-" + doc.getId() + "-" + previewSize.key() + ".jpg\"")
+                    .body(jpeg);
+        } catch (IOException e) {
+            log.error("Preview rendering failed for id={}", id, e);
+            return ResponseEntity.internalServerError().body(null);
+        } catch (Exception e) {
+            log.error("Storage load failed for id={}", id, e);
+            return ResponseEntity.internalServerError().body(null);
+        }
+    }
+
+    // GET /api/documents/{id}/stats?days=30 – Zugriffe (Downloads, Previews, XML-Import) pro Tag
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<DocumentAccessStats> stats(@PathVariable int id,
+                                                     @RequestParam(value = "days", defaultValue = "30") int days) {
+        if (days < 1 || days > MAX_STATS_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (documentCache.find(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(accessStats.stats(id, days));
+    }
+
+    // GET /api/documents/top?days=90&limit=100 – meistaufgerufene Dokumente im Zeitraum
+    @GetMapping("/top")
+    public ResponseEntity<List<PopularDocument>> top(@RequestParam(value = "days", defaultValue = "90") int days,
+                                                     @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (days < 1 || days > MAX_STATS_DAYS || limit < 1 || limit > MAX_TOP_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(accessStats.top(days, limit));
     }
 
     @PutMapping("/{id}/summary")
@@ -1,7 +1,8 @@
 package at.technikum_wien.DocumentDAL.controller;
 
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
-import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchPage;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchService;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -10,14 +11,27 @@ import java.util.List;
 @RequestMapping("/api/elastic")
 public class ElasticSearchController {
 
-    private final DocumentIndexRepository repo;
+    private final DocumentSearchService searchService;
 
-    public ElasticSearchController(DocumentIndexRepository repo) {
-        this.repo = repo;
+    public ElasticSearchController(DocumentSearchService searchService) {
+        this.searchService = searchService;
     }
 
+    // Erste Seite als einfache Liste (GUI-Suchfeld), begrenzt und ohne content; weiterblättern über /search/paged
     @GetMapping("/search")
-    public List<DocumentIndex> search(@RequestParam String q) {
-        return repo.search(q);
+    public List<DocumentIndex> search(@RequestParam String q,
+                                      @RequestParam(defaultValue = "" + DocumentSearchService.MAX_SIZE) int size) {
+        return searchService.search(q, size, null).hits().stream().map(DocumentSearchPage.Hit::document).toList();
     }
-}
\ No newline at end of file
+
+    // Paginierte Suche: GET /api/elastic/search/paged?q=...&size=20&cursor=...
+    // Liefert Highlights statt content, Total-Hits (ggf. gedeckelt) und den Cursor für die nächste Seite
+    @GetMapping("/search/paged")
+    public DocumentSearchPage searchPaged(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "" + DocumentSearchService.DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String cursor
+    ) {
+        return searchService.search(q, size, cursor);
+    }
+}
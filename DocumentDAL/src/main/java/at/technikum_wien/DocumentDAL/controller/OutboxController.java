@@ -0,0 +1,38 @@
+package at.technikum_wien.DocumentDAL.controller;
+
+import at.technikum_wien.DocumentDAL.messaging.OutboxRelay;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+
+    private final OutboxRelay relay;
+
+    public OutboxController(OutboxRelay relay) {
+        this.relay = relay;
+    }
+
+    @GetMapping("/pending")
+    public Map<String, Long> pending() {
+        return Map.of("pending", relay.pendingCount(), "failed", relay.failedCount());
+    }
+
+    // Replay: POST /api/outbox/replay?since=2025-01-01T00:00:00 oder ?documentId=42
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Integer>> replay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Integer documentId
+    ) {
+        if ((since == null) == (documentId == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int requeued = documentId != null ? relay.replayDocument(documentId) : relay.replaySince(since);
+        return ResponseEntity.accepted().body(Map.of("requeued", requeued));
+    }
+}
@@ -4,8 +4,13 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
-@Document(indexName = "documents")
+// "documents" ist ein Alias auf den versionierten Index (siehe DocumentIndexMigration im DocumentDAL)
+@Document(indexName = "documents", createIndex = false)
+@Setting(settingPath = "elasticsearch/documents-settings.json")
+@Mapping(mappingPath = "elasticsearch/documents-mapping.json")
 @Getter
 @Setter
 public class DocumentIndex {
@@ -24,4 +29,6 @@ public class DocumentIndex {
     private String storageKey;
     private String previewKey;
     private String ocrJobStatus;
+    // Version für die Preview-URL (?v=...) in Trefferlisten
+    private String contentHash;
 }
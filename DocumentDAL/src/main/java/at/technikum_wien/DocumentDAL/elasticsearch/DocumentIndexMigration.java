@@ -0,0 +1,153 @@
+package at.technikum_wien.DocumentDAL.elasticsearch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.reindex.ReindexRequest;
+import org.springframework.data.elasticsearch.core.reindex.ReindexResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Legt beim Start den versionierten Index (z.B. documents_v2) mit Settings/Mapping aus
+ * {@code elasticsearch/documents-*.json} an und lässt den Alias {@code documents} darauf zeigen.
+ * Existiert noch ein alter Index (Alias auf ältere Version oder ein konkreter Index "documents"),
+ * werden die Daten per _reindex übernommen und der Alias in einem einzigen _aliases-Request umgehängt
+ * (ein konkreter Index "documents" wird darin per {@code remove_index} gelöscht) – Leser sehen zu jedem
+ * Zeitpunkt einen vollständigen Index.
+ * Von Reindex-Beginn bis zum Umhängen ist die {@link DocumentIndexQueue} pausiert: Änderungen aus dieser Zeit
+ * landen nicht mehr im alten Index (sie fehlten sonst im neuen) und erst danach über den Alias im neuen.
+ * Meldet der Reindex Fehler oder enthält das Ziel weniger Dokumente als eine Quelle, wird abgebrochen:
+ * Alias und alter Index bleiben unverändert.
+ */
+@Component
+@ConditionalOnProperty(name = "elasticsearch.index.migrate-on-startup", havingValue = "true", matchIfMissing = true)
+public class DocumentIndexMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIndexMigration.class);
+
+    // Bei Änderungen an Settings/Mapping erhöhen -> neuer Index + Reindex + Alias-Swap
+    static final int MAPPING_VERSION = 3;
+
+    private final ElasticsearchOperations operations;
+    // Ohne Queue (elasticsearch.indexing.async=false) schreibt der DocumentService synchron, nichts zu pausieren
+    private final DocumentIndexQueue indexQueue;
+    private final String alias;
+
+    public DocumentIndexMigration(ElasticsearchOperations operations,
+                                  @Nullable DocumentIndexQueue indexQueue,
+                                  @Value("${elasticsearch.index.alias:documents}") String alias) {
+        this.operations = operations;
+        this.indexQueue = indexQueue;
+        this.alias = alias;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            migrate();
+        } catch (Exception e) {
+            // Suche ist optional (siehe DocumentService) -> Start nicht blockieren
+            log.error("Elasticsearch index migration for alias '{}' failed: {}", alias, e.getMessage(), e);
+        }
+    }
+
+    void migrate() {
+        String target = alias + "_v" + MAPPING_VERSION;
+        IndexOperations targetOps = operations.indexOps(IndexCoordinates.of(target));
+        if (!targetOps.exists()) {
+            IndexOperations entityOps = operations.indexOps(DocumentIndex.class);
+            targetOps.create(entityOps.createSettings(), entityOps.createMapping());
+            log.info("Created index '{}' with explicit settings and mapping", target);
+        }
+
+        Set<String> aliasedIndices = indicesForAlias();
+        if (aliasedIndices.equals(Set.of(target))) {
+            log.info("Alias '{}' already points to '{}'", alias, target);
+            return;
+        }
+
+        boolean legacyConcreteIndex = aliasedIndices.isEmpty() && operations.indexOps(IndexCoordinates.of(alias)).exists();
+        List<String> sources = new ArrayList<>(aliasedIndices);
+        sources.remove(target);
+        if (legacyConcreteIndex) {
+            sources.add(alias);
+        }
+
+        if (indexQueue != null) {
+            indexQueue.pause();
+        }
+        try {
+            for (String source : sources) {
+                ReindexResponse res = operations.reindex(ReindexRequest
+                        .builder(IndexCoordinates.of(source), IndexCoordinates.of(target))
+                        .withRefresh(true)
+                        .build());
+                log.info("Reindexed {} documents from '{}' to '{}' (failures={})",
+                        res.getTotal(), source, target, res.getFailures().size());
+                verifyReindex(source, target, res);
+            }
+
+            // Ein einziger _aliases-Request -> atomarer Wechsel ohne Lücke für Leser und Schreiber
+            List<AliasAction> actions = new ArrayList<>();
+            actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                    .withIndices(target).withAliases(alias).withIsWriteIndex(true).build()));
+            if (legacyConcreteIndex) {
+                actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                        .withIndices(alias).build()));
+            }
+            for (String old : aliasedIndices) {
+                if (!old.equals(target)) {
+                    actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                            .withIndices(old).withAliases(alias).build()));
+                }
+            }
+            operations.indexOps(IndexCoordinates.of(target)).alias(new AliasActions(actions.toArray(AliasAction[]::new)));
+            log.info("Alias '{}' now points to '{}' (previous: {})", alias, target, legacyConcreteIndex ? alias : aliasedIndices);
+        } finally {
+            if (indexQueue != null) {
+                indexQueue.resume();
+            }
+        }
+    }
+
+    /** Wirft bei Reindex-Fehlern oder fehlenden Dokumenten im Ziel -> kein Alias-Swap, alter Index bleibt */
+    private void verifyReindex(String source, String target, ReindexResponse res) {
+        if (!res.getFailures().isEmpty()) {
+            throw new IllegalStateException("Reindex from '" + source + "' to '" + target + "' reported "
+                    + res.getFailures().size() + " failures, keeping alias '" + alias + "' unchanged");
+        }
+        long sourceCount = operations.count(Query.findAll(), IndexCoordinates.of(source));
+        long targetCount = operations.count(Query.findAll(), IndexCoordinates.of(target));
+        if (targetCount < sourceCount) {
+            throw new IllegalStateException("Index '" + target + "' holds " + targetCount + " documents but '"
+                    + source + "' holds " + sourceCount + ", keeping alias '" + alias + "' unchanged");
+        }
+    }
+
+    private Set<String> indicesForAlias() {
+        try {
+            Map<String, Set<AliasData>> aliases = operations.indexOps(IndexCoordinates.of(alias)).getAliases(alias);
+            return aliases.keySet();
+        } catch (Exception e) {
+            // ES antwortet mit 404, wenn es den Alias (noch) nicht gibt
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package at.technikum_wien.DocumentDAL.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchrone Indexierung: Schreibzugriffe im DocumentService landen hier statt direkt in Elasticsearch.
+ * Updates werden pro Dokument-ID zusammengefasst (nur die jeweils letzte Version bleibt stehen) und
+ * von einem einzigen Flush-Thread per _bulk geschrieben – Index- und Löschoperationen im selben Request –,
+ * sobald {@code batchSize} erreicht ist oder spätestens nach {@code flushIntervalMs}.
+ * <p>
+ * Reihenfolge: Ein fehlgeschlagener Eintrag wird nur dann erneut eingereiht, wenn für die ID nicht
+ * inzwischen eine neuere Version ansteht – die neueste Version gewinnt immer.
+ * Backpressure: Bei {@code maxPending} offenen IDs blockieren neue IDs den Aufrufer bis {@code offerTimeoutMs};
+ * ist danach immer noch kein Platz, wird die Operation abgelehnt ({@code false}) statt die Queue zu überfüllen.
+ * Pause: Während {@link DocumentIndexMigration} reindexiert, sammelt die Queue nur (bis {@code maxPending})
+ * und schreibt nach {@link #resume()} über den umgehängten Alias in den neuen Index.
+ */
+@Component
+@ConditionalOnProperty(name = "elasticsearch.indexing.async", havingValue = "true", matchIfMissing = true)
+public class DocumentIndexQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIndexQueue.class);
+
+    private final ElasticsearchClient client;
+    private final ElasticsearchConverter converter;
+    private final String index;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxPending;
+    private final long offerTimeoutMs;
+    private final int maxRetries;
+
+    private final Map<Integer, PendingOp> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread flusher;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean running = true;
+    private volatile boolean paused;
+
+    /** {@code doc == null} bedeutet Löschen */
+    record PendingOp(int id, DocumentIndex doc, int attempts) {}
+
+    public DocumentIndexQueue(ElasticsearchOperations operations,
+                              ElasticsearchClient client,
+                              @Value("${elasticsearch.index.alias:documents}") String alias,
+                              @Value("${elasticsearch.indexing.batch-size:500}") int batchSize,
+                              @Value("${elasticsearch.indexing.flush-interval-ms:1000}") long flushIntervalMs,
+                              @Value("${elasticsearch.indexing.max-pending:10000}") int maxPending,
+                              @Value("${elasticsearch.indexing.offer-timeout-ms:5000}") long offerTimeoutMs,
+                              @Value("${elasticsearch.indexing.max-retries:5}") int maxRetries) {
+        // Gleiche Abbildung Entity -> _source wie ElasticsearchOperations.bulkIndex()
+        this.converter = operations.getElasticsearchConverter();
+        this.client = client;
+        this.index = alias;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPending = maxPending;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.flusher = new Thread(this::runFlusher, "es-index-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /** @return false, wenn die Queue auch nach {@code offerTimeoutMs} voll ist */
+    public boolean enqueue(DocumentIndex doc) {
+        return submit(new PendingOp(doc.getId(), doc, 0));
+    }
+
+    /** @return false, wenn die Queue auch nach {@code offerTimeoutMs} voll ist */
+    public boolean enqueueDelete(int id) {
+        return submit(new PendingOp(id, null, 0));
+    }
+
+    /** Hält das Schreiben an und wartet, bis ein gerade laufender Bulk-Request fertig ist */
+    public void pause() {
+        paused = true;
+        flushLock.lock();
+        flushLock.unlock();
+        log.info("Index queue paused ({} pending)", pending.size());
+    }
+
+    public void resume() {
+        paused = false;
+        signal(flushRequested);
+        log.info("Index queue resumed ({} pending)", pending.size());
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private boolean submit(PendingOp op) {
+        if (!awaitCapacity(op.id())) {
+            log.error("Index queue full ({} pending), rejected {} for id={}; reindex to repair",
+                    pending.size(), op.doc() == null ? "delete" : "update", op.id());
+            return false;
+        }
+        pending.put(op.id(), op);
+        if (pending.size() >= batchSize) {
+            signal(flushRequested);
+        }
+        return true;
+    }
+
+    /** @return false, wenn innerhalb von {@code offerTimeoutMs} kein Platz frei wurde */
+    private boolean awaitCapacity(int id) {
+        // Zusammenfassbare Updates (ID schon offen) belegen keinen zusätzlichen Platz
+        if (pending.size() < maxPending || pending.containsKey(id)) return true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        lock.lock();
+        try {
+            flushRequested.signal();
+            while (pending.size() >= maxPending && !pending.containsKey(id)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                notFull.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (running || !pending.isEmpty()) {
+            lock.lock();
+            try {
+                if (running && (paused || pending.size() < batchSize)) {
+                    flushRequested.await(flushIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: Restbestand wird unten noch geschrieben
+            } finally {
+                lock.unlock();
+            }
+            boolean ok = flushOnce();
+            if (!ok && running) {
+                // Einfache Pause, damit ein nicht erreichbares ES nicht im Takt der Schleife angefragt wird
+                try { Thread.sleep(flushIntervalMs); } catch (InterruptedException ignored) {}
+            }
+            if (!ok && !running) {
+                log.error("Discarding {} pending index operations on shutdown", pending.size());
+                pending.clear();
+            }
+        }
+    }
+
+    /** @return false, wenn mindestens eine Operation fehlgeschlagen ist */
+    boolean flushOnce() {
+        flushLock.lock();
+        try {
+            // Beim Shutdown wird auch pausiert geschrieben, sonst gingen die offenen Operationen verloren
+            return paused && running || flush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean flush() {
+        List<PendingOp> batch = drain();
+        if (batch.isEmpty()) return true;
+
+        BulkRequest.Builder request = new BulkRequest.Builder().index(index);
+        for (PendingOp op : batch) {
+            String id = String.valueOf(op.id());
+            if (op.doc() == null) {
+                request.operations(o -> o.delete(d -> d.id(id)));
+            } else {
+                Document source = converter.mapObject(op.doc());
+                request.operations(o -> o.index(i -> i.id(id).document(source)));
+            }
+        }
+
+        BulkResponse response;
+        try {
+            response = client.bulk(request.build());
+        } catch (Exception e) {
+            batch.forEach(op -> retry(op, e.getMessage()));
+            return false;
+        }
+        log.debug("Bulk wrote {} index operations", batch.size());
+        if (!response.errors()) return true;
+
+        // Items kommen in Request-Reihenfolge zurück; nur tatsächlich abgelehnte Operationen erneut einreihen
+        // (Löschen einer nicht vorhandenen ID liefert 404 ohne error)
+        boolean ok = true;
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < batch.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            if (item.error() != null) {
+                ok = false;
+                retry(batch.get(i), item.error().reason());
+            }
+        }
+        return ok;
+    }
+
+    private List<PendingOp> drain() {
+        List<PendingOp> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Integer> ids = pending.keySet().iterator();
+        while (ids.hasNext() && batch.size() < batchSize) {
+            PendingOp op = pending.remove(ids.next());
+            if (op != null) batch.add(op);
+        }
+        signal(notFull);
+        return batch;
+    }
+
+    private void retry(PendingOp op, String reason) {
+        if (op.attempts() + 1 > maxRetries) {
+            log.error("Giving up indexing id={} after {} attempts: {}", op.id(), op.attempts() + 1, reason);
+            return;
+        }
+        // putIfAbsent: eine inzwischen eingereihte neuere Version hat Vorrang
+        PendingOp previous = pending.putIfAbsent(op.id(), new PendingOp(op.id(), op.doc(), op.attempts() + 1));
+        log.warn("Indexing id={} failed (attempt {}), {}: {}", op.id(), op.attempts() + 1,
+                previous == null ? "requeued" : "newer version pending", reason);
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -1,11 +1,16 @@
 package at.technikum_wien.DocumentDAL.elasticsearch;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.annotations.Query;
+import org.springframework.data.elasticsearch.annotations.SourceFilters;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import java.util.List;
 
 public interface DocumentIndexRepository extends ElasticsearchRepository<DocumentIndex, Integer> {
+    // Edge-N-Gram-Subfelder statt führender Wildcards (siehe elasticsearch/documents-mapping.json).
+    // Begrenzt über pageable, ohne OCR-Volltext; für die API siehe DocumentSearchService
+    @SourceFilters(excludes = "content")
     @Query("""
-    {"query_string": {"query": "*?0*", "fields": ["title^3", "summary^2", "content"], "analyze_wildcard": true, "default_operator": "AND"}}""")
-    List<DocumentIndex> search(String q);
+    {"multi_match": {"query": "?0", "type": "best_fields", "operator": "and", "tie_breaker": 0.3, "fields": ["title^3", "title.autocomplete^2", "fileName.autocomplete", "summary^2", "summary.en^2", "content", "content.en"]}}""")
+    List<DocumentIndex> search(String q, Pageable pageable);
 }
\ No newline at end of file
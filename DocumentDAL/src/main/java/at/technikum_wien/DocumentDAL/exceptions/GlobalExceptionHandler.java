@@ -38,6 +38,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(body(ex.getMessage(), HttpStatus.BAD_REQUEST));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<?> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity.badRequest().body(body(ex.getMessage(), HttpStatus.BAD_REQUEST));
+    }
+
     @ExceptionHandler(PreviewGenerationException.class)
     public ResponseEntity<?> handlePreview(PreviewGenerationException ex) {
         log.error("Preview generation failed: {}", ex.getMessage(), ex);
@@ -0,0 +1,7 @@
+package at.technikum_wien.DocumentDAL.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor '" + cursor + "'");
+    }
+}
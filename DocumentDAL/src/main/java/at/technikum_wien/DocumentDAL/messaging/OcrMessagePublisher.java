@@ -1,18 +1,32 @@
 package at.technikum_wien.DocumentDAL.messaging;
 
 import at.technikum_wien.DocumentDAL.messaging.events.DocumentUploadedEvent;
+import at.technikum_wien.DocumentDAL.model.OutboxEvent;
+import at.technikum_wien.DocumentDAL.repo.OutboxEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Schreibt DocumentUploadedEvents in die Outbox-Tabelle. Muss innerhalb der Transaktion aufgerufen werden,
+ * die auch das Dokument speichert – die eigentliche Zustellung an RabbitMQ übernimmt {@link OutboxRelay}.
+ */
 @Component
 public class OcrMessagePublisher {
 
     private static final Logger log = LoggerFactory.getLogger(OcrMessagePublisher.class);
 
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxEventRepository outbox;
+    private final MessageConverter converter;
 
     @Value("${DOC_EVENTS_EXCHANGE:documents.exchange}")
     private String exchange;
@@ -20,17 +34,19 @@ public class OcrMessagePublisher {
     @Value("${DOC_EVENTS_ROUTING_KEY:document.uploaded}")
     private String routingKey;
 
-    public OcrMessagePublisher(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public OcrMessagePublisher(OutboxEventRepository outbox, MessageConverter converter) {
+        this.outbox = outbox;
+        this.converter = converter;
     }
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publish(DocumentUploadedEvent event) {
-        try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, event);
-            log.info("Published DocumentUploadedEvent id={} file='{}' exch='{}' rk='{}'",
-                    event.id(), event.fileName(), exchange, routingKey);
-        } catch (Exception e) {
-            log.error("Failed to publish DocumentUploadedEvent id={}: {}", event.id(), e.getMessage(), e);
-        }
+        // Gleiche Serialisierung wie beim direkten convertAndSend, damit das Wire-Format unverändert bleibt
+        Message message = converter.toMessage(event, new MessageProperties());
+        String typeId = (String) message.getMessageProperties().getHeaders()
+                .get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        OutboxEvent saved = outbox.save(new OutboxEvent(event.id(), typeId, exchange, routingKey,
+                new String(message.getBody(), StandardCharsets.UTF_8)));
+        log.debug("Stored DocumentUploadedEvent id={} in outbox (entry {})", event.id(), saved.getId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package at.technikum_wien.DocumentDAL.messaging;
+
+import at.technikum_wien.DocumentDAL.model.OutboxEvent;
+import at.technikum_wien.DocumentDAL.repo.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Überträgt offene Outbox-Einträge in Batches an RabbitMQ (at-least-once).
+ * Ein Eintrag gilt erst als veröffentlicht, wenn der Broker ihn per Publisher-Confirm bestätigt hat
+ * und er nicht als unroutable zurückgekommen ist. Consumer können über die Message-ID
+ * ({@code outbox-<id>}) Duplikate erkennen.
+ * Nach einem Fehlversuch wird ein Eintrag erst nach exponentiell wachsender Wartezeit erneut versucht
+ * ({@code nextAttemptAt}, ab {@code backoffInitialMs} verdoppelt bis {@code backoffMaxMs}), damit ein
+ * Broker-Neustart nicht in Sekunden alle Versuche aufbraucht.
+ * Nach {@code maxAttempts} Fehlversuchen wird ein Eintrag als fehlgeschlagen markiert ({@code failedAt}),
+ * geloggt und im Zähler {@code outbox.events.failed} erfasst; erneut zugestellt wird er nur per Replay.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outbox;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long confirmTimeoutMs;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+    private final Counter failedEvents;
+
+    // Deaktiviert nur das zeitgesteuerte Abarbeiten; Replay bleibt möglich
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    public OutboxRelay(OutboxEventRepository outbox, RabbitTemplate rabbitTemplate, TransactionTemplate tx,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.max-attempts:20}") int maxAttempts,
+                       @Value("${outbox.relay.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${outbox.relay.backoff-initial-ms:1000}") long backoffInitialMs,
+                       @Value("${outbox.relay.backoff-max-ms:300000}") long backoffMaxMs) {
+        this.outbox = outbox;
+        this.rabbitTemplate = rabbitTemplate;
+        this.tx = tx;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.failedEvents = meterRegistry.counter("outbox.events.failed");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void drain() {
+        if (!enabled) return;
+        try {
+            // Volle Batches direkt nacheinander abarbeiten, danach bis zum nächsten Intervall warten
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            log.warn("Outbox relay run failed: {}", e.getMessage());
+        }
+    }
+
+    /** @return Anzahl der bestätigten Einträge dieses Batches */
+    public int relayBatch() {
+        Integer confirmed = tx.execute(status -> {
+            List<OutboxEvent> batch = outbox.lockPending(LocalDateTime.now(), Limit.of(batchSize));
+            if (batch.isEmpty()) return 0;
+
+            List<CorrelationData> confirms = new ArrayList<>(batch.size());
+            for (OutboxEvent e : batch) {
+                CorrelationData cd = new CorrelationData(String.valueOf(e.getId()));
+                try {
+                    rabbitTemplate.send(e.getExchange(), e.getRoutingKey(), toMessage(e), cd);
+                } catch (Exception ex) {
+                    cd.getFuture().completeExceptionally(ex);
+                }
+                confirms.add(cd);
+            }
+
+            // Auf alle Confirms des Batches gemeinsam warten (eine Broker-Runde statt einer pro Nachricht)
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+            LocalDateTime now = LocalDateTime.now();
+            int ok = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxEvent e = batch.get(i);
+                String error = awaitConfirm(confirms.get(i), deadline);
+                if (error == null) {
+                    e.setPublishedAt(now);
+                    e.setNextAttemptAt(null);
+                    e.setLastError(null);
+                    ok++;
+                } else {
+                    e.setAttempts(e.getAttempts() + 1);
+                    e.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+                    if (e.getAttempts() >= maxAttempts) {
+                        e.setFailedAt(now);
+                        failedEvents.increment();
+                        log.error("Outbox entry {} (document {}) failed after {} attempts, giving up until replay: {}",
+                                e.getId(), e.getAggregateId(), e.getAttempts(), error);
+                    } else {
+                        e.setNextAttemptAt(now.plus(backoff(e.getAttempts()), ChronoUnit.MILLIS));
+                        log.warn("Outbox entry {} (document {}) not confirmed, attempt {}, next at {}: {}",
+                                e.getId(), e.getAggregateId(), e.getAttempts(), e.getNextAttemptAt(), error);
+                    }
+                }
+            }
+            outbox.saveAll(batch);
+            return ok;
+        });
+        if (confirmed != null && confirmed > 0) {
+            log.info("Outbox relay published {} event(s)", confirmed);
+        }
+        return confirmed != null ? confirmed : 0;
+    }
+
+    /** Setzt alle Einträge ab {@code since} zurück, damit sie erneut zugestellt werden */
+    public int replaySince(LocalDateTime since) {
+        Integer n = tx.execute(status -> outbox.resetSince(since));
+        log.info("Outbox replay since {}: {} event(s) requeued", since, n);
+        return n != null ? n : 0;
+    }
+
+    public int replayDocument(int documentId) {
+        Integer n = tx.execute(status -> outbox.resetForAggregate(documentId));
+        log.info("Outbox replay for document {}: {} event(s) requeued", documentId, n);
+        return n != null ? n : 0;
+    }
+
+    public long pendingCount() {
+        return outbox.countByPublishedAtIsNullAndFailedAtIsNull();
+    }
+
+    public long failedCount() {
+        return outbox.countByFailedAtIsNotNull();
+    }
+
+    @Scheduled(cron = "${outbox.cleanup.cron:0 30 3 * * *}")
+    public void cleanup() {
+        if (!enabled) return;
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        Integer n = tx.execute(status -> outbox.deletePublishedBefore(before));
+        log.info("Outbox cleanup removed {} published event(s) older than {}", n, before);
+    }
+
+    /** backoffInitialMs * 2^(attempts-1), gedeckelt auf backoffMaxMs */
+    long backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(backoffMaxMs, backoffInitialMs << doublings);
+    }
+
+    private static Message toMessage(OutboxEvent e) {
+        MessageProperties props = new MessageProperties();
+        props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        props.setContentEncoding(StandardCharsets.UTF_8.name());
+        props.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        props.setMessageId("outbox-" + e.getId());
+        props.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, e.getEventType());
+        return new Message(e.getPayload().getBytes(StandardCharsets.UTF_8), props);
+    }
+
+    /** @return null bei erfolgreichem Confirm, sonst eine Fehlerbeschreibung */
+    private static String awaitConfirm(CorrelationData cd, long deadlineNanos) {
+        try {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            CorrelationData.Confirm confirm = cd.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+            if (!confirm.isAck()) return "nack: " + confirm.getReason();
+            // Returned wird garantiert vor dem Confirm gesetzt (mandatory=true)
+            if (cd.getReturned() != null) return "unroutable: " + cd.getReturned().getReplyText();
+            return null;
+        } catch (TimeoutException e) {
+            return "confirm timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage();
+        }
+    }
+}
@@ -8,6 +8,10 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // Keyset-Pagination der Dokumentliste: order by upload_date desc, id desc
+        @Index(name = "idx_document_upload_date_id", columnList = "uploadDate DESC, id DESC")
+})
 @Getter
 @Setter
 public class Document {
@@ -37,6 +41,20 @@ public class Document {
         this.size = size;
     }
 
+    // Leichtgewichtige Projektion für die Listenansicht (ohne text-Spalten)
+    public Document(Integer id, String title, LocalDateTime uploadDate, String fileName, String mimeType, long size,
+                    String summaryStatus, String ocrJobStatus, String contentHash) {
+        this.id = id;
+        this.title = title;
+        this.uploadDate = uploadDate;
+        this.fileName = fileName;
+        this.mimeType = mimeType;
+        this.size = size;
+        this.summaryStatus = summaryStatus;
+        this.ocrJobStatus = ocrJobStatus;
+        this.contentHash = contentHash;
+    }
+
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
     private String title;
@@ -59,6 +77,10 @@ public class Document {
     private String storageKey;
     private String previewKey;
 
+    // SHA-256 der gespeicherten Datei, dient u.a. als ETag für Downloads
+    private String contentHash;
+    private LocalDateTime fileModifiedAt;
+
     // Neuer Status: PENDING, COMPLETED, FAILED
     private String ocrJobStatus;
 }
@@ -9,6 +9,9 @@ import java.time.LocalDate;
 @Entity
 @Table(name = "document_access_stats", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"document_id", "access_date"})
+}, indexes = {
+        // Tage am Rand des Zeitraums in der Top-N-Abfrage, ohne Tabellenzugriff
+        @Index(name = "idx_access_stats_date_top", columnList = "access_date, document_id, access_count")
 })
 @Getter
 @Setter
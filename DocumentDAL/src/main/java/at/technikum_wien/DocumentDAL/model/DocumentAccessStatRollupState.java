@@ -0,0 +1,24 @@
+package at.technikum_wien.DocumentDAL.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Markierung, dass die Wochen-/Monatssummen einmalig aus den Tageszeilen aufgebaut wurden.
+ * Genau eine Zeile ({@code id = 1}), geschrieben in derselben Transaktion wie der Aufbau.
+ */
+@Entity
+@Table(name = "document_access_stats_rollup_state")
+@Getter
+@Setter
+public class DocumentAccessStatRollupState {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "backfilled_at", nullable = false)
+    private LocalDateTime backfilledAt;
+}
@@ -0,0 +1,69 @@
+package at.technikum_wien.DocumentDAL.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transactional Outbox: Ereignisse werden in derselben Transaktion wie das Dokument gespeichert
+ * und vom {@code OutboxRelay} asynchron an RabbitMQ übergeben.
+ * Veröffentlichte Einträge bleiben (mit {@code publishedAt}) erhalten und können erneut abgespielt werden.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "publishedAt, id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregateId")
+})
+@Getter
+@Setter
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer aggregateId;
+
+    // Wert des __TypeId__-Headers, wie ihn der Jackson2JsonMessageConverter setzt
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt;
+
+    private int attempts;
+
+    // Frühester nächster Versuch nach einem Fehlschlag (exponentieller Backoff), null = sofort
+    private LocalDateTime nextAttemptAt;
+
+    // Gesetzt, sobald max-attempts erreicht ist: wird nicht mehr zugestellt, bis ein Replay zurücksetzt
+    private LocalDateTime failedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(Integer aggregateId, String eventType, String exchange, String routingKey, String payload) {
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+}
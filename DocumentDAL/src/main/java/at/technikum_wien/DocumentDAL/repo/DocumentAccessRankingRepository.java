@@ -0,0 +1,90 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.DAILY;
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.MONTHLY;
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.WEEKLY;
+
+/**
+ * Meistaufgerufene Dokumente in einem Zeitraum. Der Zeitraum wird in ganze Monate, ganze Wochen und die
+ * restlichen Randtage zerlegt; summiert werden dann die passenden Zeilen der Monats-/Wochen-/Tagestabellen.
+ * Für ein Jahr sind das ~12 Monats- statt ~365 Tageszeilen pro Dokument, jeweils per Index-Only-Scan
+ * über (Periode, document_id, access_count).
+ */
+@Repository
+public class DocumentAccessRankingRepository {
+
+    public record Ranked(int documentId, long accessCount) {}
+
+    /** Zeilen aus {@code table} mit {@code dateColumn} in [from, until) */
+    record Segment(String table, String dateColumn, LocalDate from, LocalDate until) {}
+
+    private final JdbcTemplate jdbc;
+
+    public DocumentAccessRankingRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Top {@code limit} Dokumente nach Zugriffen von {@code from} bis einschließlich {@code to} */
+    public List<Ranked> top(LocalDate from, LocalDate to, int limit) {
+        List<Segment> segments = segments(from, to);
+        if (segments.isEmpty()) return List.of();
+        List<Object> args = new ArrayList<>();
+        String union = segments.stream()
+                .map(s -> {
+                    args.add(s.from());
+                    args.add(s.until());
+                    return "select document_id, access_count from " + s.table() +
+                            " where " + s.dateColumn() + " >= ? and " + s.dateColumn() + " < ?";
+                })
+                .collect(Collectors.joining(" union all "));
+        args.add(limit);
+        return jdbc.query("select document_id, sum(access_count) as total from (" + union + ") s " +
+                        "group by document_id order by total desc, document_id limit ?",
+                (rs, rowNum) -> new Ranked(rs.getInt(1), rs.getLong(2)), args.toArray());
+    }
+
+    /** Zerlegt [from, to] in ganze Monate, davor/danach ganze Wochen und die übrigen Tage */
+    static List<Segment> segments(LocalDate from, LocalDate to) {
+        List<Segment> segments = new ArrayList<>();
+        LocalDate end = to.plusDays(1);
+        if (!from.isBefore(end)) return segments;
+        LocalDate firstMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate endMonth = end.withDayOfMonth(1);
+        if (firstMonth.isBefore(endMonth)) {
+            weeksAndDays(from, firstMonth, segments);
+            segments.add(new Segment(MONTHLY, "month_start", firstMonth, endMonth));
+            weeksAndDays(endMonth, end, segments);
+        } else {
+            weeksAndDays(from, end, segments);
+        }
+        return segments;
+    }
+
+    private static void weeksAndDays(LocalDate from, LocalDate until, List<Segment> segments) {
+        LocalDate firstWeek = from.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        LocalDate endWeek = until.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        if (firstWeek.isBefore(endWeek)) {
+            days(from, firstWeek, segments);
+            segments.add(new Segment(WEEKLY, "week_start", firstWeek, endWeek));
+            days(endWeek, until, segments);
+        } else {
+            days(from, until, segments);
+        }
+    }
+
+    private static void days(LocalDate from, LocalDate until, List<Segment> segments) {
+        if (from.isBefore(until)) {
+            segments.add(new Segment(DAILY, "access_date", from, until));
+        }
+    }
+}
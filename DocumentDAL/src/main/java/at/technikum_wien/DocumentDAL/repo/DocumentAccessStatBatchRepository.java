@@ -0,0 +1,155 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Addiert Zugriffszähler per JDBC-Batch-Upsert auf {@code document_access_stats}
+ * (gleiche Tabelle und Semantik wie der Import im AccessLog-Service) und in derselben Transaktion
+ * auf die Wochen- und Monatssummen {@code document_access_stats_weekly/_monthly}.
+ */
+@Repository
+public class DocumentAccessStatBatchRepository {
+
+    public record Key(int documentId, LocalDate accessDate) {}
+
+    static final String DAILY = "document_access_stats";
+    static final String WEEKLY = "document_access_stats_weekly";
+    static final String MONTHLY = "document_access_stats_monthly";
+    static final String ROLLUP_STATE = "document_access_stats_rollup_state";
+
+    private static final Comparator<Key> KEY_ORDER =
+            Comparator.comparingInt(Key::documentId).thenComparing(Key::accessDate);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    public DocumentAccessStatBatchRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Montag der ISO-Woche, Schlüssel der Wochensummen */
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /** Erster des Monats, Schlüssel der Monatssummen */
+    public static LocalDate monthStart(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    /** Sortiert nach Schlüssel schreiben, damit parallele Upserts Zeilensperren in gleicher Reihenfolge nehmen */
+    @Transactional
+    public int upsert(Map<Key, Integer> counts) {
+        if (counts.isEmpty()) return 0;
+        write(DAILY, "access_date", counts);
+        write(WEEKLY, "week_start", rollUp(counts, DocumentAccessStatBatchRepository::weekStart));
+        write(MONTHLY, "month_start", rollUp(counts, DocumentAccessStatBatchRepository::monthStart));
+        return counts.size();
+    }
+
+    /**
+     * Baut die Wochen- und Monatssummen einmalig aus den Tageszeilen auf (bestehende Daten vor Einführung
+     * der Summentabellen). Erledigt ist der Aufbau erst mit der Zeile in {@code document_access_stats_rollup_state},
+     * nicht schon, wenn ein Zähler-Flush oder Import die ersten Summenzeilen geschrieben hat.
+     * Unter PostgreSQL sperrt {@code SHARE} die Tageszeilen gegen Schreiber: laufende Upserts werden abgewartet,
+     * neue warten bis zum Commit. Die Summen werden dann vollständig aus den Tageszeilen neu berechnet,
+     * damit bereits inkrementell gezählte Zeiträume nicht doppelt eingehen.
+     *
+     * @return Anzahl aufgebauter Wochen und Monate, 0 wenn nichts zu tun war
+     */
+    @Transactional
+    public int backfillRollups() {
+        if (isBackfilled()) return 0;
+        if (isPostgres()) {
+            jdbc.execute("lock table " + DAILY + " in share mode");
+            // Ein paralleler Start kann den Aufbau inzwischen abgeschlossen haben
+            if (isBackfilled()) return 0;
+        }
+        jdbc.update("delete from " + WEEKLY);
+        jdbc.update("delete from " + MONTHLY);
+        int periods = 0;
+        LocalDate first = jdbc.queryForObject("select min(access_date) from " + DAILY, LocalDate.class);
+        LocalDate last = jdbc.queryForObject("select max(access_date) from " + DAILY, LocalDate.class);
+        if (first != null) {
+            for (LocalDate week = weekStart(first); !week.isAfter(last); week = week.plusWeeks(1)) {
+                backfill(WEEKLY, "week_start", week, week.plusWeeks(1));
+                periods++;
+            }
+            for (LocalDate month = monthStart(first); !month.isAfter(last); month = month.plusMonths(1)) {
+                backfill(MONTHLY, "month_start", month, month.plusMonths(1));
+                periods++;
+            }
+        }
+        // Zwei gleichzeitige Aufbauten ohne Sperre (H2) scheitern hier am Primärschlüssel und werden zurückgerollt
+        jdbc.update("insert into " + ROLLUP_STATE + " (id, backfilled_at) values (1, ?)", LocalDateTime.now());
+        return periods;
+    }
+
+    private boolean isBackfilled() {
+        return !jdbc.queryForList("select 1 from " + ROLLUP_STATE + " where id = 1").isEmpty();
+    }
+
+    private void backfill(String table, String dateColumn, LocalDate from, LocalDate until) {
+        jdbc.update("insert into " + table + " (document_id, " + dateColumn + ", access_count) " +
+                "select document_id, ?, sum(access_count) from " + DAILY + " " +
+                "where access_date >= ? and access_date < ? group by document_id", from, from, until);
+    }
+
+    static Map<Key, Long> rollUp(Map<Key, Integer> counts, UnaryOperator<LocalDate> period) {
+        Map<Key, Long> rolled = new HashMap<>();
+        counts.forEach((key, count) ->
+                rolled.merge(new Key(key.documentId(), period.apply(key.accessDate())), (long) count, Long::sum));
+        return rolled;
+    }
+
+    private void write(String table, String dateColumn, Map<Key, ? extends Number> counts) {
+        List<? extends Map.Entry<Key, ? extends Number>> rows = counts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .toList();
+        jdbc.batchUpdate(upsertSql(table, dateColumn), rows, BATCH_SIZE, (ps, row) -> {
+            ps.setInt(1, row.getKey().documentId());
+            ps.setObject(2, row.getKey().accessDate());
+            ps.setLong(3, row.getValue().longValue());
+        });
+    }
+
+    private String upsertSql(String table, String dateColumn) {
+        if (isPostgres()) {
+            return "insert into " + table + " (document_id, " + dateColumn + ", access_count) values (?, ?, ?) " +
+                    "on conflict (document_id, " + dateColumn + ") " +
+                    "do update set access_count = " + table + ".access_count + excluded.access_count";
+        }
+        // H2 (Tests) kennt kein ON CONFLICT ... DO UPDATE -> Standard-SQL MERGE
+        return "merge into " + table + " t " +
+                "using (values (cast(? as int), cast(? as date), cast(? as bigint))) s(document_id, d, access_count) " +
+                "on t.document_id = s.document_id and t." + dateColumn + " = s.d " +
+                "when matched then update set access_count = t.access_count + s.access_count " +
+                "when not matched then insert (document_id, " + dateColumn + ", access_count) " +
+                "values (s.document_id, s.d, s.access_count)";
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import at.technikum_wien.DocumentDAL.model.DocumentAccessStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Nicht über Spring Data REST exportieren: Zähler werden nur über AccessStatsService geschrieben
+@RepositoryRestResource(exported = false)
+public interface DocumentAccessStatRepository extends JpaRepository<DocumentAccessStat, Long> {
+
+    List<DocumentAccessStat> findByDocumentIdAndAccessDateGreaterThanEqualOrderByAccessDateAsc(Integer documentId,
+                                                                                              LocalDate from);
+}
@@ -1,10 +1,15 @@
 package at.technikum_wien.DocumentDAL.repo;
 
 import at.technikum_wien.DocumentDAL.model.Document;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface DocumentRepository extends JpaRepository<Document, Integer> {
@@ -16,4 +21,38 @@ public interface DocumentRepository extends JpaRepository<Document, Integer> {
             "where lower(d.title) like lower(concat('%', :q, '%')) " +
             "   or lower(d.summary) like lower(concat('%', :q, '%'))")
     List<Document> searchWithoutFileData(@Param("q") String q);
+
+    // Keyset-Pagination auf (uploadDate, id), neueste zuerst; nutzt idx_document_upload_date_id.
+    // Nur datierte Dokumente, die undatierten liefert findUndatedPageAfter im Anschluss
+    @Query("select new Document(d.id, d.title, d.uploadDate, d.fileName, d.mimeType, d.size, d.summaryStatus, d.ocrJobStatus, d.contentHash) " +
+            "from Document d where d.uploadDate is not null " +
+            "order by d.uploadDate desc, d.id desc")
+    List<Document> findFirstPage(Limit limit);
+
+    @Query("select new Document(d.id, d.title, d.uploadDate, d.fileName, d.mimeType, d.size, d.summaryStatus, d.ocrJobStatus, d.contentHash) " +
+            "from Document d where d.uploadDate < :uploadDate or (d.uploadDate = :uploadDate and d.id < :id) " +
+            "order by d.uploadDate desc, d.id desc")
+    List<Document> findPageAfter(@Param("uploadDate") LocalDateTime uploadDate, @Param("id") Integer id, Limit limit);
+
+    // Dokumente ohne uploadDate kommen nach allen datierten ans Ende der Liste, absteigend nach id
+    @Query("select new Document(d.id, d.title, d.uploadDate, d.fileName, d.mimeType, d.size, d.summaryStatus, d.ocrJobStatus, d.contentHash) " +
+            "from Document d where d.uploadDate is null and d.id < :id " +
+            "order by d.id desc")
+    List<Document> findUndatedPageAfter(@Param("id") Integer id, Limit limit);
+
+    // Schwere text-Spalten nur für die Dokumente der aktuellen Seite nachladen
+    @Query("select d.id, d.summary from Document d where d.id in :ids")
+    List<Object[]> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("select d.id, d.content from Document d where d.id in :ids")
+    List<Object[]> findContentsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("select d.id, d.title from Document d where d.id in :ids")
+    List<Object[]> findTitlesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Nur previewKey setzen – das asynchrone Rendern soll parallele Änderungen am Dokument nicht überschreiben
+    @Transactional
+    @Modifying
+    @Query("update Document d set d.previewKey = :previewKey where d.id = :id")
+    int updatePreviewKey(@Param("id") Integer id, @Param("previewKey") String previewKey);
 }
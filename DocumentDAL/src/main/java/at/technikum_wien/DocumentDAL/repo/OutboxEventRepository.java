@@ -0,0 +1,38 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import at.technikum_wien.DocumentDAL.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // FOR UPDATE SKIP LOCKED: mehrere Instanzen können parallel abarbeiten, ohne Einträge doppelt zu greifen
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    // Nur fällige Einträge: nach Fehlschlägen erst wieder ab nextAttemptAt
+    @Query("select e from OutboxEvent e where e.publishedAt is null and e.failedAt is null " +
+            "and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) order by e.id")
+    List<OutboxEvent> lockPending(@Param("now") LocalDateTime now, Limit limit);
+
+    long countByPublishedAtIsNullAndFailedAtIsNull();
+
+    long countByFailedAtIsNotNull();
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = null, e.attempts = 0, e.nextAttemptAt = null, e.failedAt = null, e.lastError = null where e.createdAt >= :since")
+    int resetSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = null, e.attempts = 0, e.nextAttemptAt = null, e.failedAt = null, e.lastError = null where e.aggregateId = :aggregateId")
+    int resetForAggregate(@Param("aggregateId") int aggregateId);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,40 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Baut beim Start die Wochen-/Monatssummen aus bestehenden Tageszeilen auf, solange der Aufbau
+ * nicht als erledigt markiert ist (siehe {@link DocumentAccessStatBatchRepository#backfillRollups()}).
+ * Danach pflegen Zähler-Flush und XML-Import die Summen inkrementell.
+ */
+@Component
+@ConditionalOnProperty(name = "access-stats.rollups.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+public class AccessStatsRollupBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessStatsRollupBackfill.class);
+
+    private final DocumentAccessStatBatchRepository batchRepository;
+
+    public AccessStatsRollupBackfill(DocumentAccessStatBatchRepository batchRepository) {
+        this.batchRepository = batchRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int periods = batchRepository.backfillRollups();
+            if (periods > 0) {
+                log.info("Backfilled access stats rollups for {} weeks/months", periods);
+            }
+        } catch (RuntimeException e) {
+            // Nicht fatal: Top-N zählt ältere Zeiträume dann zu niedrig, der nächste Start versucht es erneut
+            log.warn("Backfilling access stats rollups failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.model.DocumentAccessStat;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.Key;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zählt Downloads/Previews im Speicher und schreibt sie periodisch gesammelt nach {@code document_access_stats}.
+ * Im Request-Pfad passiert nur ein {@link LongAdder#increment()} (gestreift, ohne Lock und ohne DB-Zugriff);
+ * der Flush addiert per Batch-Upsert, verträgt sich also mit dem nächtlichen XML-Import.
+ * Bei einem Absturz gehen höchstens die Zähler seit dem letzten Flush verloren.
+ */
+@Service
+public class AccessStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessStatsService.class);
+
+    private final DocumentAccessStatRepository statRepository;
+    private final DocumentAccessStatBatchRepository batchRepository;
+    private final DocumentAccessRankingRepository rankingRepository;
+    private final DocumentRepository documentRepository;
+    private final Clock clock;
+    private final ConcurrentHashMap<Key, LongAdder> counters = new ConcurrentHashMap<>();
+    private final LoadingCache<TopQuery, List<PopularDocument>> topCache;
+    private final List<TopQuery> warmQueries;
+
+    // Ohne Datum: der Tageswechsel läuft über den Refresh, nicht über einen neuen (kalten) Schlüssel
+    private record TopQuery(int days, int limit) {}
+
+    @Autowired
+    public AccessStatsService(DocumentAccessStatRepository statRepository,
+                              DocumentAccessStatBatchRepository batchRepository,
+                              DocumentAccessRankingRepository rankingRepository,
+                              DocumentRepository documentRepository,
+                              @Value("${access-stats.top.refresh-seconds:60}") long topRefreshSeconds,
+                              @Value("${access-stats.top.warm-days:30,90,365}") List<Integer> warmDays,
+                              @Value("${access-stats.top.warm-limit:100}") int warmLimit) {
+        this(statRepository, batchRepository, rankingRepository, documentRepository, Clock.systemDefaultZone(),
+                ForkJoinPool.commonPool(), topRefreshSeconds, warmDays, warmLimit);
+    }
+
+    AccessStatsService(DocumentAccessStatRepository statRepository,
+                       DocumentAccessStatBatchRepository batchRepository,
+                       DocumentAccessRankingRepository rankingRepository,
+                       DocumentRepository documentRepository, Clock clock, Executor refreshExecutor,
+                       long topRefreshSeconds, List<Integer> warmDays, int warmLimit) {
+        this.statRepository = statRepository;
+        this.batchRepository = batchRepository;
+        this.rankingRepository = rankingRepository;
+        this.documentRepository = documentRepository;
+        this.clock = clock;
+        // Refresh-Ahead: nach Ablauf wird im Hintergrund neu geladen, Aufrufer bekommen bis dahin die alte Liste
+        this.topCache = Caffeine.newBuilder()
+                .maximumSize(64)
+                .executor(refreshExecutor)
+                .refreshAfterWrite(Duration.ofSeconds(topRefreshSeconds))
+                .expireAfterAccess(Duration.ofHours(1))
+                .build(query -> loadTop(LocalDate.now(clock), query.days(), query.limit()));
+        this.warmQueries = warmDays.stream().map(days -> new TopQuery(days, warmLimit)).toList();
+    }
+
+    /** Ein Zugriff auf das Dokument, heute */
+    public void record(int documentId) {
+        counters.computeIfAbsent(new Key(documentId, LocalDate.now(clock)), k -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${access-stats.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Key, Integer> batch = drain();
+        if (batch.isEmpty()) return;
+        try {
+            batchRepository.upsert(batch);
+        } catch (Exception e) {
+            // Zurücklegen, der nächste Flush versucht es erneut
+            batch.forEach((key, count) -> counters.computeIfAbsent(key, k -> new LongAdder()).add(count));
+            log.warn("Flushing {} access counters failed: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Nimmt die bisherigen Zählerstände heraus. Einträge von heute bleiben in der Map (nur zurückgesetzt),
+     * ältere Tage werden entfernt, damit die Map nicht wächst.
+     */
+    private Map<Key, Integer> drain() {
+        LocalDate today = LocalDate.now(clock);
+        Map<Key, Integer> batch = new HashMap<>();
+        counters.forEach((key, adder) -> {
+            if (key.accessDate().isBefore(today)) {
+                // erst entfernen, dann lesen: spätere Zugriffe landen in einem neuen Adder
+                counters.remove(key, adder);
+            }
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                batch.put(key, (int) Math.min(Integer.MAX_VALUE, count));
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * Zugriffe pro Tag der letzten {@code days} Tage inkl. heute, zusammen mit den noch ungeschriebenen Zählern.
+     * Während eines laufenden Flushs können die gerade geschriebenen Zugriffe kurz fehlen.
+     */
+    public DocumentAccessStats stats(int documentId, int days) {
+        LocalDate from = LocalDate.now(clock).minusDays(Math.max(1, days) - 1L);
+        TreeMap<LocalDate, Long> perDay = new TreeMap<>();
+        for (DocumentAccessStat stat : statRepository
+                .findByDocumentIdAndAccessDateGreaterThanEqualOrderByAccessDateAsc(documentId, from)) {
+            perDay.merge(stat.getAccessDate(), stat.getAccessCount().longValue(), Long::sum);
+        }
+        counters.forEach((key, adder) -> {
+            long pending = adder.sum();
+            if (key.documentId() == documentId && !key.accessDate().isBefore(from) && pending > 0) {
+                perDay.merge(key.accessDate(), pending, Long::sum);
+            }
+        });
+        List<DocumentAccessStats.Day> result = new ArrayList<>(perDay.size());
+        long total = 0;
+        for (Map.Entry<LocalDate, Long> e : perDay.entrySet()) {
+            result.add(new DocumentAccessStats.Day(e.getKey(), e.getValue()));
+            total += e.getValue();
+        }
+        return new DocumentAccessStats(documentId, from, total, result);
+    }
+
+    /**
+     * Meistaufgerufene Dokumente der letzten {@code days} Tage inkl. heute, aus den Wochen-/Monatssummen.
+     * Das Ergebnis ist bis zu {@code access-stats.top.refresh-seconds} alt (nach Mitternacht kurz noch das
+     * des Vortags); noch nicht geschriebene Zähler fehlen, gelöschte Dokumente werden ausgelassen.
+     * Nur ein noch nie geladenes (days, limit)-Paar wartet auf die Abfrage; die häufigen Paare hält
+     * {@link #warmTop()} vorgeladen.
+     */
+    public List<PopularDocument> top(int days, int limit) {
+        return topCache.get(new TopQuery(Math.max(1, days), limit));
+    }
+
+    /**
+     * Lädt die Standard-Abfragen ({@code access-stats.top.warm-days} × {@code warm-limit}) im Hintergrund neu –
+     * beim Start und danach im Refresh-Takt, damit auch nach einem Neustart oder ohne Verkehr kein Request
+     * auf die Aggregation wartet.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${access-stats.top.refresh-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void warmTop() {
+        topCache.refreshAll(warmQueries);
+    }
+
+    private List<PopularDocument> loadTop(LocalDate today, int days, int limit) {
+        List<DocumentAccessRankingRepository.Ranked> ranked =
+                rankingRepository.top(today.minusDays(days - 1L), today, limit);
+        if (ranked.isEmpty()) return List.of();
+        Map<Integer, String> titles = new HashMap<>();
+        for (Object[] row : documentRepository.findTitlesByIdIn(
+                ranked.stream().map(DocumentAccessRankingRepository.Ranked::documentId).toList())) {
+            titles.put((Integer) row[0], (String) row[1]);
+        }
+        List<PopularDocument> result = new ArrayList<>(ranked.size());
+        for (DocumentAccessRankingRepository.Ranked r : ranked) {
+            if (titles.containsKey(r.documentId())) {
+                result.add(new PopularDocument(r.documentId(), titles.get(r.documentId()), r.accessCount()));
+            }
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
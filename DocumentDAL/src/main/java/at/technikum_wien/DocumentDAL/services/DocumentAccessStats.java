@@ -0,0 +1,12 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Zugriffe auf ein Dokument je Tag ab {@code from}; enthält auch die noch nicht geschriebenen Zähler.
+ */
+public record DocumentAccessStats(int documentId, LocalDate from, long total, List<Day> days) {
+
+    public record Day(LocalDate date, long count) {}
+}
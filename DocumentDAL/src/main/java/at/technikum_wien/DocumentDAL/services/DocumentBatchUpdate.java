@@ -0,0 +1,21 @@
+package at.technikum_wien.DocumentDAL.services;
+
+/**
+ * Sammel-Update der Worker: mehrere content-/summary-Updates in einem Request.
+ * Jedes Element bekommt ein eigenes Ergebnis mit HTTP-Statuscode, ein Fehler bricht den Batch nicht ab.
+ */
+public final class DocumentBatchUpdate {
+
+    public static final int MAX_ITEMS = 500;
+
+    private DocumentBatchUpdate() {}
+
+    /** null-Felder bleiben unverändert */
+    public record Item(int id, String content, String summary) {}
+
+    public record Result(int id, int status, String message) {
+        static Result ok(int id) {
+            return new Result(id, 200, null);
+        }
+    }
+}
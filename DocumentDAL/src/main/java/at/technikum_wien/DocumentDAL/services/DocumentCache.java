@@ -0,0 +1,108 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.model.Document;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * In-Process-Cache für Dokument-Metadaten (GET /{id}, Download, Preview) und häufig abgerufene Preview-JPEGs.
+ * Beide Caches sind nach geschätzter Größe in Bytes begrenzt (W-TinyLFU von Caffeine), nicht nach Anzahl:
+ * ein Dokument mit 2 MB OCR-Text verdrängt entsprechend mehr als eines ohne.
+ * <p>
+ * Schreibende Methoden von {@link DocumentService} entfernen den Eintrag nach dem Speichern.
+ * Schreibzugriffe an der Service-Schicht vorbei (Spring Data REST) deckt nur das Ablaufdatum ab.
+ * Gecachte Dokumente werden von mehreren Requests geteilt und dürfen nicht verändert werden.
+ * <p>
+ * Metriken unter {@code cache.gets{cache=documents|previews,result=hit|miss}}, {@code cache.evictions} usw.
+ */
+@Component
+public class DocumentCache {
+
+    // Grobe Schätzung für Objekt-Header, Zahlen/Zeitstempel und die kurzen String-Felder
+    private static final int DOCUMENT_OVERHEAD_BYTES = 512;
+
+    private final DocumentRepository repo;
+    private final boolean enabled;
+    private final Cache<Integer, Document> documents;
+    private final Cache<String, byte[]> previews;
+
+    public DocumentCache(DocumentRepository repo, MeterRegistry meterRegistry,
+                         @Value("${cache.enabled:true}") boolean enabled,
+                         @Value("${cache.documents.max-bytes:67108864}") long documentMaxBytes,
+                         @Value("${cache.documents.expire-after-write-seconds:600}") long documentTtlSeconds,
+                         @Value("${cache.previews.max-bytes:134217728}") long previewMaxBytes) {
+        this.repo = repo;
+        this.enabled = enabled;
+        this.documents = Caffeine.newBuilder()
+                .maximumWeight(documentMaxBytes)
+                .weigher((Integer id, Document d) -> weight(d))
+                .expireAfterWrite(Duration.ofSeconds(documentTtlSeconds))
+                .recordStats()
+                .build();
+        // Preview-Schlüssel enthalten die Dateiversion, alte Einträge werden nie gelesen und nur verdrängt
+        this.previews = Caffeine.newBuilder()
+                .maximumWeight(previewMaxBytes)
+                .weigher((String key, byte[] jpeg) -> jpeg.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "documents");
+        CaffeineCacheMetrics.monitor(meterRegistry, previews, "previews");
+    }
+
+    /** Dokument aus dem Cache oder der Datenbank; nicht vorhandene IDs werden nicht gecacht */
+    public Optional<Document> find(int id) {
+        if (!enabled) return repo.findById(id);
+        return Optional.ofNullable(documents.get(id, key -> repo.findById(key).orElse(null)));
+    }
+
+    public void evict(int id) {
+        documents.invalidate(id);
+    }
+
+    /** Preview-JPEG aus dem Cache oder per {@code loader} (MinIO) laden */
+    public byte[] preview(String objectKey, Callable<byte[]> loader) throws Exception {
+        if (!enabled) return loader.call();
+        byte[] cached = previews.getIfPresent(objectKey);
+        if (cached != null) return cached;
+        // Kein previews.get(key, fn): der Loader wirft checked Exceptions, doppeltes Laden ist hier unkritisch
+        byte[] loaded = loader.call();
+        previews.put(objectKey, loaded);
+        return loaded;
+    }
+
+    /** Frisch gerenderte Previews direkt ablegen, der erste Abruf muss dann nicht zu MinIO */
+    public void putPreview(String objectKey, byte[] jpeg) {
+        if (enabled) previews.put(objectKey, jpeg);
+    }
+
+    public void evictPreview(String objectKey) {
+        previews.invalidate(objectKey);
+    }
+
+    /** Ausstehende Verdrängungen sofort ausführen (Caffeine erledigt das sonst asynchron); für Tests */
+    void cleanUp() {
+        documents.cleanUp();
+        previews.cleanUp();
+    }
+
+    /** Java-Strings mit Latin-1-Inhalt belegen 1 Byte/Zeichen, mit Umlauten o.ä. 2 – wir rechnen konservativ mit 2 */
+    static int weight(Document d) {
+        long chars = length(d.getContent()) + length(d.getSummary()) + length(d.getTitle())
+                + length(d.getFileName()) + length(d.getStorageKey()) + length(d.getPreviewKey())
+                + length(d.getContentHash());
+        return (int) Math.min(Integer.MAX_VALUE, DOCUMENT_OVERHEAD_BYTES + 2 * chars);
+    }
+
+    private static long length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
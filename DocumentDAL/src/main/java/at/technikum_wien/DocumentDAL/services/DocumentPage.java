@@ -0,0 +1,35 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.exceptions.InvalidCursorException;
+import at.technikum_wien.DocumentDAL.model.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Eine Seite der Dokumentliste. {@code nextCursor} ist {@code null}, wenn es keine weiteren Einträge gibt.
+ */
+public record DocumentPage(List<Document> items, String nextCursor) {
+
+    /** Opaque Cursor-Token: Base64url von "uploadDate|id" des letzten Eintrags, "|id" ohne uploadDate */
+    public static String encodeCursor(Document last) {
+        String raw = (last.getUploadDate() != null ? last.getUploadDate().toString() : "") + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodeCursor(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            String date = raw.substring(0, sep);
+            return new Cursor(date.isEmpty() ? null : LocalDateTime.parse(date), Integer.parseInt(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    /** {@code uploadDate == null}: Cursor liegt bereits im Block der undatierten Dokumente */
+    public record Cursor(LocalDateTime uploadDate, int id) {}
+}
@@ -0,0 +1,16 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Eine Seite Suchergebnisse. {@code totalHits} ist ab {@code totalIsLowerBound = true} nur eine Untergrenze,
+ * {@code nextCursor} ist {@code null}, wenn keine weiteren Treffer folgen.
+ */
+public record DocumentSearchPage(List<Hit> hits, long totalHits, boolean totalIsLowerBound, String nextCursor) {
+
+    /** Treffer ohne OCR-Volltext; statt {@code content} gibt es Highlight-Fragmente je Feld */
+    public record Hit(DocumentIndex document, float score, Map<String, List<String>> highlights) {}
+}
@@ -0,0 +1,128 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
+import at.technikum_wien.DocumentDAL.exceptions.InvalidCursorException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.mapping.FieldType;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Paginierte Volltextsuche über Elasticsearch mit search_after-Cursor.
+ * Der OCR-Text ({@code content}) wird nie ausgeliefert, nur Highlight-Fragmente daraus.
+ */
+@Service
+public class DocumentSearchService {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+    // Zählen über diese Grenze hinaus kostet bei breiten Queries unnötig Zeit
+    private static final int TRACK_TOTAL_HITS_UP_TO = 10_000;
+    private static final String[] EXCLUDED_SOURCE = { "content" };
+    // Präfix-Treffer über Edge-N-Gram-Subfelder, Volltext über deutsche + englische Analyse
+    private static final List<String> SEARCH_FIELDS = List.of(
+            "title^3", "title.autocomplete^2", "fileName.autocomplete",
+            "summary^2", "summary.en^2", "content", "content.en");
+
+    private final ElasticsearchOperations operations;
+    private final ObjectMapper objectMapper;
+
+    public DocumentSearchService(ElasticsearchOperations operations, ObjectMapper objectMapper) {
+        this.operations = operations;
+        this.objectMapper = objectMapper;
+    }
+
+    public DocumentSearchPage search(String q, int size, String cursor) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SIZE));
+
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(buildQuery(q))
+                .withSourceFilter(new FetchSourceFilter(true, null, EXCLUDED_SOURCE))
+                .withHighlightQuery(highlight())
+                // Score + eindeutiger Tiebreaker, sonst ist search_after nicht stabil
+                .withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Desc).unmappedType(FieldType.Long)))
+                .withMaxResults(pageSize)
+                .withTrackTotalHitsUpTo(TRACK_TOTAL_HITS_UP_TO);
+        if (cursor != null && !cursor.isBlank()) {
+            builder.withSearchAfter(decodeCursor(cursor));
+        }
+
+        SearchHits<DocumentIndex> result = operations.search(builder.build(), DocumentIndex.class);
+
+        List<DocumentSearchPage.Hit> hits = result.getSearchHits().stream()
+                .map(h -> new DocumentSearchPage.Hit(h.getContent(), h.getScore(), h.getHighlightFields()))
+                .toList();
+        String next = null;
+        if (hits.size() == pageSize) {
+            SearchHit<DocumentIndex> last = result.getSearchHits().get(hits.size() - 1);
+            next = encodeCursor(last.getSortValues());
+        }
+        boolean lowerBound = result.getTotalHitsRelation() == TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO;
+        return new DocumentSearchPage(hits, result.getTotalHits(), lowerBound, next);
+    }
+
+    private Query buildQuery(String q) {
+        if (q == null || q.isBlank()) {
+            return Query.of(b -> b.matchAll(m -> m));
+        }
+        return Query.of(b -> b.multiMatch(mm -> mm
+                .query(q)
+                .type(TextQueryType.BestFields)
+                .operator(Operator.And)
+                .tieBreaker(0.3)
+                .fields(SEARCH_FIELDS)));
+    }
+
+    private HighlightQuery highlight() {
+        HighlightParameters params = HighlightParameters.builder()
+                .withPreTags("<em>")
+                .withPostTags("</em>")
+                .withFragmentSize(150)
+                .withNumberOfFragments(3)
+                .withEncoder("html")
+                .build();
+        List<HighlightField> fields = List.of(
+                new HighlightField("title"),
+                new HighlightField("summary"),
+                new HighlightField("content"));
+        return new HighlightQuery(new Highlight(params, fields), DocumentIndex.class);
+    }
+
+    private String encodeCursor(List<Object> sortValues) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(sortValues));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode search cursor", e);
+        }
+    }
+
+    private List<Object> decodeCursor(String cursor) {
+        try {
+            List<Object> values = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), new TypeReference<>() {});
+            if (values.size() != 2) throw new IllegalArgumentException("Unexpected sort values");
+            return values;
+        } catch (Exception e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
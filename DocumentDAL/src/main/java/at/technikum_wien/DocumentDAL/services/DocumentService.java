@@ -1,6 +1,7 @@
 package at.technikum_wien.DocumentDAL.services;
 
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
+import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexQueue;
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
 import at.technikum_wien.DocumentDAL.exceptions.DocumentNotFoundException;
 import at.technikum_wien.DocumentDAL.exceptions.FileValidationException;
@@ -9,12 +10,21 @@ import at.technikum_wien.DocumentDAL.messaging.events.DocumentUploadedEvent;
 import at.technikum_wien.DocumentDAL.model.Document;
 import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
 import at.technikum_wien.DocumentDAL.storage.MinioFileStorage;
+import at.technikum_wien.DocumentDAL.storage.StoredObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -24,16 +34,32 @@ public class DocumentService {
     private static final String SUMMARY_STATUS_DONE = "GENAI_DONE";
     private static final String SUMMARY_STATUS_FAILED = "GENAI_FAILED";
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final String FIELD_SUMMARY = "summary";
+    public static final String FIELD_CONTENT = "content";
+
     private final DocumentRepository repo;
     private final OcrMessagePublisher publisher;
     private final MinioFileStorage storage;
     private final String documentBucket;
+    private final TransactionTemplate tx;
+    private final PdfPreviewService previews;
+    private final DocumentCache cache;
 
     @Autowired(required = false)
     private DocumentIndexRepository elasticRepo;
 
-    public DocumentService(DocumentRepository repo, OcrMessagePublisher publisher, MinioFileStorage storage) {
+    // Gepufferte Bulk-Indexierung; ohne Queue (elasticsearch.indexing.async=false) wird synchron geschrieben
+    @Autowired(required = false)
+    private DocumentIndexQueue indexQueue;
+
+    public DocumentService(DocumentRepository repo, OcrMessagePublisher publisher, MinioFileStorage storage,
+                           TransactionTemplate tx, PdfPreviewService previews, DocumentCache cache) {
         this.repo = repo;
+        this.cache = cache;
+        this.tx = tx;
+        this.previews = previews;
         this.publisher = publisher;
         this.storage = storage;
         this.documentBucket = storage.getDefaultBucket();
@@ -45,9 +71,8 @@ public class DocumentService {
         }
         doc.setOcrJobStatus("PENDING");
         
-        Document saved = repo.save(doc);
+        Document saved = saveAndPublish(doc);
         indexToElastic(saved);
-        publishUploaded(saved);
         return saved;
     }
 
@@ -60,16 +85,16 @@ public class DocumentService {
             doc.setUploadDate(LocalDateTime.now());
             doc.setFileName(file.getOriginalFilename());
             doc.setMimeType(file.getContentType());
-            doc.setSize(file.getSize());
 
             String key = UUID.randomUUID() + "-" + (file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload");
-            storage.put(documentBucket, key, file.getBytes(), file.getContentType());
+            StoredObject stored = putStreaming(documentBucket, key, file);
+            applyStoredFile(doc, stored);
             doc.setStorageBucket(documentBucket);
             doc.setStorageKey(key);
 
-            Document saved = repo.save(doc);
+            Document saved = saveAndPublish(doc);
             indexToElastic(saved);
-            publishUploaded(saved);
+            previews.prerenderAsync(saved);
             return saved;
         } catch (Exception e) {
             throw new FileValidationException("Failed to upload to storage: " + e.getMessage(), e);
@@ -84,19 +109,47 @@ public class DocumentService {
                 doc.setStorageKey(UUID.randomUUID() + "-" + (file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload"));
                 doc.setStorageBucket(documentBucket);
             }
-            storage.put(doc.getStorageBucket(), doc.getStorageKey(), file.getBytes(), file.getContentType());
+            StoredObject stored = putStreaming(doc.getStorageBucket(), doc.getStorageKey(), file);
             doc.setFileName(file.getOriginalFilename());
             doc.setMimeType(file.getContentType());
-            doc.setSize(file.getSize());
-            Document saved = repo.save(doc);
+            applyStoredFile(doc, stored);
+            Document saved = saveAndPublish(doc);
+            cache.evict(id);
             indexToElastic(saved);
-            publishUploaded(saved);
+            previews.deleteStalePreviews(saved);
+            previews.prerenderAsync(saved);
             return saved;
         } catch (Exception e) {
             throw new FileValidationException("Failed to upload to storage: " + e.getMessage(), e);
         }
     }
 
+    /** Streamt den Multipart-Upload direkt nach MinIO, ohne die Datei als byte[] zu laden */
+    private StoredObject putStreaming(String bucket, String key, MultipartFile file) throws Exception {
+        try (InputStream in = file.getInputStream()) {
+            return storage.put(bucket, key, in, file.getSize(), file.getContentType());
+        }
+    }
+
+    private void applyStoredFile(Document doc, StoredObject stored) {
+        doc.setSize(stored.size());
+        doc.setContentHash(stored.sha256());
+        doc.setFileModifiedAt(LocalDateTime.now());
+    }
+
+    /**
+     * Öffnet die gespeicherte Datei als Stream (optional nur einen Byte-Bereich).
+     * Der Aufrufer ist für das Schließen verantwortlich.
+     */
+    public InputStream openFileStream(Document doc, long offset, Long length) {
+        if (doc.getStorageKey() == null) throw new DocumentNotFoundException(doc.getId());
+        try {
+            return storage.openStream(doc.getStorageBucket(), doc.getStorageKey(), offset, length);
+        } catch (Exception e) {
+            throw new FileValidationException("Failed to load from storage", e);
+        }
+    }
+
     public byte[] getFileBytes(int id) {
         var doc = repo.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
         if (doc.getStorageKey() == null) throw new DocumentNotFoundException(id);
@@ -107,6 +160,57 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Keyset-Pagination über (uploadDate, id), neueste zuerst. Geladen wird nur die leichte Projektion;
+     * die text-Spalten summary/content kommen nur per {@code fields} und nur für die aktuelle Seite dazu.
+     */
+    public DocumentPage listPage(String cursor, int limit, Set<String> fields) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Einen Eintrag mehr laden, um zu wissen, ob es eine nächste Seite gibt
+        Limit fetch = Limit.of(size + 1);
+        List<Document> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = withUndatedTail(repo.findFirstPage(fetch), size + 1);
+        } else {
+            DocumentPage.Cursor c = DocumentPage.decodeCursor(cursor);
+            rows = c.uploadDate() == null
+                    ? repo.findUndatedPageAfter(c.id(), fetch)
+                    : withUndatedTail(repo.findPageAfter(c.uploadDate(), c.id(), fetch), size + 1);
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<Document> items = hasMore ? rows.subList(0, size) : rows;
+        if (!items.isEmpty()) {
+            loadHeavyFields(items, fields);
+        }
+        String next = hasMore ? DocumentPage.encodeCursor(items.get(items.size() - 1)) : null;
+        return new DocumentPage(items, next);
+    }
+
+    /** Sind die datierten Dokumente erschöpft, wird die Seite mit den undatierten (uploadDate null) aufgefüllt */
+    private List<Document> withUndatedTail(List<Document> dated, int fetch) {
+        if (dated.size() >= fetch) return dated;
+        List<Document> rows = new ArrayList<>(dated);
+        rows.addAll(repo.findUndatedPageAfter(Integer.MAX_VALUE, Limit.of(fetch - dated.size())));
+        return rows;
+    }
+
+    private void loadHeavyFields(List<Document> items, Set<String> fields) {
+        if (fields == null || fields.isEmpty()) return;
+        Map<Integer, Document> byId = new HashMap<>();
+        items.forEach(d -> byId.put(d.getId(), d));
+        if (fields.contains(FIELD_SUMMARY)) {
+            for (Object[] row : repo.findSummariesByIdIn(byId.keySet())) {
+                byId.get((Integer) row[0]).setSummary((String) row[1]);
+            }
+        }
+        if (fields.contains(FIELD_CONTENT)) {
+            for (Object[] row : repo.findContentsByIdIn(byId.keySet())) {
+                byId.get((Integer) row[0]).setContent((String) row[1]);
+            }
+        }
+    }
+
     public void delete(int id) {
         var doc = repo.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
         try {
@@ -114,9 +218,13 @@ public class DocumentService {
                 storage.delete(doc.getStorageBucket(), doc.getStorageKey());
             }
         } catch (Exception ignore) {}
+        previews.deletePreviews(doc);
         repo.deleteById(id);
+        cache.evict(id);
         // Auch aus Elasticsearch löschen
-        if (elasticRepo != null) {
+        if (indexQueue != null) {
+            indexQueue.enqueueDelete(id);
+        } else if (elasticRepo != null) {
             elasticRepo.deleteById(id);
         }
     }
@@ -132,15 +240,61 @@ public class DocumentService {
             doc.setOcrJobStatus("COMPLETED");
         }
         Document saved = repo.save(doc);
+        cache.evict(id);
         // Elasticsearch-Index aktualisieren
         indexToElastic(saved);
         return saved;
     }
 
+    public Document update(int id, Document incoming) {
+        Document existing = repo.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
+        existing.setTitle(incoming.getTitle());
+        existing.setContent(incoming.getContent());
+
+        // Summary darf nicht überschrieben werden, wenn sie bereits durch GenAI gesetzt wurde
+        if (!SUMMARY_STATUS_DONE.equals(existing.getSummaryStatus())) {
+            existing.setSummary(incoming.getSummary());
+        }
+
+        if (incoming.getUploadDate() != null) {
+            existing.setUploadDate(incoming.getUploadDate());
+        }
+        Document saved = repo.save(existing);
+        cache.evict(id);
+        return saved;
+    }
+
+    /**
+     * Speichert das OCR-Ergebnis des Workers und gibt das aktualisierte Dokument zurück.
+     * Indexiert wird nur hier (einziger ES-Schreiber pro Dokument): die Index-Queue fasst pro ID zusammen,
+     * ein noch offener Upload-Stand ohne Text kann das OCR-Ergebnis so nicht mehr überschreiben.
+     */
+    public Document applyOcrResult(int id, String content) {
+        Document doc = repo.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
+        doc.setContent(content);
+        doc.setOcrJobStatus("COMPLETED");
+        Document saved = repo.save(doc);
+        cache.evict(id);
+        indexToElastic(saved);
+        return saved;
+    }
+
+    /**
+     * Speichert das Dokument und das Upload-Event in einer Transaktion (Outbox).
+     * Der Upload nach MinIO liegt bewusst davor, damit keine DB-Verbindung während des Streams gehalten wird.
+     */
+    private Document saveAndPublish(Document doc) {
+        return tx.execute(status -> {
+            Document saved = repo.save(doc);
+            publishUploaded(saved);
+            return saved;
+        });
+    }
+
     private void publishUploaded(Document d) {
         publisher.publish(new DocumentUploadedEvent(
                 d.getId(), d.getTitle(), d.getFileName(), d.getMimeType(), d.getSize(), d.getUploadDate(),
-                d.getStorageBucket(), d.getStorageKey()
+                d.getStorageBucket(), d.getStorageKey(), d.getContentHash()
         ));
     }
 
@@ -156,14 +310,57 @@ public class DocumentService {
         doc.setSummaryGeneratedAt(LocalDateTime.now());
         doc.setSummaryStatus(SUMMARY_STATUS_DONE);
         Document saved = repo.save(doc);
+        cache.evict(id);
         // Elasticsearch-Index aktualisieren
         indexToElastic(saved);
         return saved;
     }
 
+    /**
+     * Wendet viele content-/summary-Updates mit einem findAllById/saveAll an.
+     * Gleiche Regeln wie die Einzel-Endpunkte: content setzt den OCR-Status auf COMPLETED,
+     * eine bereits gesetzte Summary wird nicht überschrieben (409).
+     */
+    public List<DocumentBatchUpdate.Result> applyBatch(List<DocumentBatchUpdate.Item> items) {
+        Map<Integer, Document> byId = new HashMap<>();
+        repo.findAllById(items.stream().map(DocumentBatchUpdate.Item::id).toList())
+                .forEach(d -> byId.put(d.getId(), d));
+
+        List<DocumentBatchUpdate.Result> results = new ArrayList<>(items.size());
+        Map<Integer, Document> changed = new LinkedHashMap<>();
+        for (DocumentBatchUpdate.Item item : items) {
+            Document doc = byId.get(item.id());
+            if (doc == null) {
+                results.add(new DocumentBatchUpdate.Result(item.id(), 404, "Document not found"));
+                continue;
+            }
+            if (item.summary() != null && SUMMARY_STATUS_DONE.equals(doc.getSummaryStatus())) {
+                results.add(new DocumentBatchUpdate.Result(item.id(), 409,
+                        "Summary has already been set and cannot be modified."));
+                continue;
+            }
+            if (item.content() != null) {
+                doc.setContent(item.content());
+                doc.setOcrJobStatus("COMPLETED");
+            }
+            if (item.summary() != null) {
+                doc.setSummary(item.summary());
+                doc.setSummaryGeneratedAt(LocalDateTime.now());
+                doc.setSummaryStatus(SUMMARY_STATUS_DONE);
+            }
+            changed.put(doc.getId(), doc);
+            results.add(DocumentBatchUpdate.Result.ok(item.id()));
+        }
+        if (!changed.isEmpty()) {
+            repo.saveAll(changed.values()).forEach(this::indexToElastic);
+            changed.keySet().forEach(cache::evict);
+        }
+        return results;
+    }
+
     /** Hilfsmethode: Indexiert oder aktualisiert das Dokument in Elasticsearch */
     private void indexToElastic(Document doc) {
-        if (elasticRepo != null && doc != null) {
+        if ((indexQueue != null || elasticRepo != null) && doc != null) {
             DocumentIndex idx = new DocumentIndex();
             idx.setId(doc.getId());
             idx.setTitle(doc.getTitle());
@@ -176,8 +373,13 @@ public class DocumentService {
             idx.setMimeType(doc.getMimeType());
             idx.setSize(doc.getSize());
             idx.setOcrJobStatus(doc.getOcrJobStatus());
-            
-            elasticRepo.save(idx);
+            idx.setContentHash(doc.getContentHash());
+
+            if (indexQueue != null) {
+                indexQueue.enqueue(idx);
+            } else {
+                elasticRepo.save(idx);
+            }
         }
     }
 }
\ No newline at end of file
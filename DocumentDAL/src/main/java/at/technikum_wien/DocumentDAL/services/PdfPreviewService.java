@@ -1,57 +1,240 @@
 package at.technikum_wien.DocumentDAL.services;
 
-import at.technikum_wien.DocumentDAL.messaging.OcrMessagePublisher;
 import at.technikum_wien.DocumentDAL.model.Document;
 import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
 import at.technikum_wien.DocumentDAL.storage.MinioFileStorage;
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Previews der ersten PDF-Seite in mehreren Größen als JPEG.
+ * Gerendert wird einmal pro Dateiversion (asynchron nach dem Upload oder beim ersten Abruf),
+ * abgelegt unter {@code <id>/<version>/<size>.jpg}; die Version ist der Content-Hash der Datei.
+ * Ist die aktuelle Version gerendert, wird das Original-PDF nie mehr geladen.
+ */
 @Service
 public class PdfPreviewService {
+    private static final Logger log = LoggerFactory.getLogger(PdfPreviewService.class);
+
+    private static final String CONTENT_TYPE = "image/jpeg";
 
     private final MinioFileStorage storage;
     private final DocumentRepository repo;
+    private final DocumentCache cache;
     private final String previewBucket;
+    private final ThreadPoolExecutor renderPool;
+    // Gleichzeitige Anfragen für dieselbe Version rendern nur einmal
+    private final ConcurrentHashMap<String, CompletableFuture<Map<PreviewSize, byte[]>>> rendering = new ConcurrentHashMap<>();
+
+    // Heap-Obergrenze für PDFBox-Stream-Caches, Rest geht in Temp-Dateien
+    @Value("${preview.pdf-cache-memory-bytes:4194304}")
+    private long pdfCacheMemoryBytes = 4 * 1024 * 1024;
 
-    public PdfPreviewService(MinioFileStorage storage, DocumentRepository repo) {
+    @Value("${preview.jpeg-quality:0.8}")
+    private float jpegQuality = 0.8f;
+
+    public PdfPreviewService(MinioFileStorage storage, DocumentRepository repo, DocumentCache cache,
+                             @Value("${preview.render-threads:2}") int renderThreads,
+                             @Value("${preview.render-queue-size:1000}") int renderQueueSize) {
         this.storage = storage;
         this.repo = repo;
+        this.cache = cache;
         this.previewBucket = storage.getPreviewBucket();
+        // Volle Queue: Vorab-Rendern verwerfen, die Preview entsteht dann beim ersten Abruf
+        this.renderPool = new ThreadPoolExecutor(renderThreads, renderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueueSize), r -> {
+                    Thread t = new Thread(r, "preview-render");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /** Versionskennung der Datei; Basis für Objekt-Schlüssel und ETag */
+    public static String version(Document doc) {
+        if (doc.getContentHash() != null) return doc.getContentHash();
+        // Altbestand ohne Hash
+        return Integer.toHexString(Objects.hash(doc.getStorageKey(), doc.getSize(), doc.getFileModifiedAt()));
+    }
+
+    public static String previewKey(Document doc) {
+        return doc.getId() + "/" + version(doc);
     }
 
-    public byte[] renderFirstPageAsPng(byte[] pdfBytes) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, 150);
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                ImageIO.write(image, "png", baos);
-                return baos.toByteArray();
+    /** Nach Upload/Dateiersatz: alle Größen im Hintergrund rendern */
+    public void prerenderAsync(Document doc) {
+        if (!isPdf(doc) || doc.getStorageKey() == null || isCurrent(doc)) return;
+        int id = doc.getId();
+        renderPool.execute(() -> {
+            try {
+                // frisch laden: das Dokument könnte inzwischen ersetzt oder gelöscht worden sein
+                repo.findById(id).filter(d -> !isCurrent(d)).ifPresent(d -> render(d).join());
+            } catch (Exception e) {
+                log.warn("Preview pre-rendering failed for id={}: {}", id, e.getMessage());
             }
+        });
+    }
+
+    public byte[] getPreview(Document doc, PreviewSize size) throws Exception {
+        if (isCurrent(doc)) {
+            String objectKey = objectKey(doc.getPreviewKey(), size);
+            return cache.preview(objectKey, () -> storage.get(previewBucket, objectKey));
         }
+        try {
+            return render(doc).join().get(size);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    private boolean isCurrent(Document doc) {
+        return previewKey(doc).equals(doc.getPreviewKey());
     }
 
-    public byte[] getPreview(Document doc, byte[] pdfBytes) throws Exception {
-        if(doc.getPreviewKey() != null){
-            return storage.get(previewBucket, doc.getPreviewKey());
+    private CompletableFuture<Map<PreviewSize, byte[]>> render(Document doc) {
+        String key = previewKey(doc);
+        CompletableFuture<Map<PreviewSize, byte[]>> future = new CompletableFuture<>();
+        CompletableFuture<Map<PreviewSize, byte[]>> running = rendering.putIfAbsent(key, future);
+        if (running != null) return running;
+        try {
+            future.complete(renderAndStore(doc, key));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        } finally {
+            rendering.remove(key);
         }
-        byte[] pngPreview = renderFirstPageAsPng(pdfBytes);
-        savePreviewToBucket(pngPreview, doc);
+        return future;
+    }
 
-        return pngPreview;
+    private Map<PreviewSize, byte[]> renderAndStore(Document doc, String key) throws Exception {
+        // Original gestreamt in eine Scratch-Datei statt als byte[]
+        Path pdfFile = Files.createTempFile("preview-" + doc.getId() + "-", ".pdf");
+        Map<PreviewSize, byte[]> images;
+        try {
+            try (InputStream in = storage.openStream(doc.getStorageBucket(), doc.getStorageKey(), 0, null)) {
+                Files.copy(in, pdfFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            images = renderFirstPage(pdfFile);
+        } finally {
+            Files.deleteIfExists(pdfFile);
+        }
+        for (Map.Entry<PreviewSize, byte[]> e : images.entrySet()) {
+            storage.put(previewBucket, objectKey(key, e.getKey()), e.getValue(), CONTENT_TYPE);
+            cache.putPreview(objectKey(key, e.getKey()), e.getValue());
+        }
+        repo.updatePreviewKey(doc.getId(), key);
+        // Bulk-Update am Entity vorbei: gecachte Metadaten hätten noch den alten previewKey.
+        // doc selbst bleibt unverändert – es kann die geteilte Instanz aus dem DocumentCache sein
+        cache.evict(doc.getId());
+        log.info("Rendered previews id={} key={}", doc.getId(), key);
+        return images;
     }
 
-    public void savePreviewToBucket(byte[] pngBytes, Document doc) throws Exception {
-        String previewKey = doc.getStorageKey().replaceAll("\\.pdf$", ".png");
-        storage.put(previewBucket, previewKey, pngBytes, "image/png");
-        doc.setPreviewKey(previewKey);
-        repo.save(doc);
+    /** Erste Seite einmal in FULL-Breite rendern, kleinere Größen daraus herunterskalieren */
+    public Map<PreviewSize, byte[]> renderFirstPage(Path pdfFile) throws IOException {
+        MemoryUsageSetting cache = MemoryUsageSetting.setupMixed(pdfCacheMemoryBytes);
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(pdfFile), cache.streamCache)) {
+            PDRectangle box = document.getPage(0).getCropBox();
+            boolean rotated = document.getPage(0).getRotation() % 180 != 0;
+            float widthPt = rotated ? box.getHeight() : box.getWidth();
+            float scale = PreviewSize.FULL.width() / widthPt;
+            BufferedImage full = new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+
+            Map<PreviewSize, byte[]> out = new EnumMap<>(PreviewSize.class);
+            for (PreviewSize size : PreviewSize.values()) {
+                out.put(size, jpeg(size == PreviewSize.FULL ? full : scaleToWidth(full, size.width())));
+            }
+            return out;
+        }
+    }
+
+    private static BufferedImage scaleToWidth(BufferedImage src, int width) {
+        int height = Math.max(1, Math.round(src.getHeight() * (width / (float) src.getWidth())));
+        BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    private byte[] jpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(baos)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+            ios.flush();
+            return baos.toByteArray();
+        } finally {
+            writer.dispose();
+        }
     }
-}
 
+    /** Nach Dateiersatz: Previews der alten Version entfernen, sie werden nie wieder ausgeliefert */
+    public void deleteStalePreviews(Document doc) {
+        if (doc.getPreviewKey() != null && !isCurrent(doc)) {
+            deletePreviews(doc);
+        }
+    }
 
+    /** Entfernt die Previews der aktuellen Version (z.B. beim Löschen des Dokuments) */
+    public void deletePreviews(Document doc) {
+        if (doc.getPreviewKey() == null) return;
+        for (PreviewSize size : PreviewSize.values()) {
+            cache.evictPreview(objectKey(doc.getPreviewKey(), size));
+            try {
+                storage.delete(previewBucket, objectKey(doc.getPreviewKey(), size));
+            } catch (Exception e) {
+                log.debug("Preview delete failed for id={}: {}", doc.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private static String objectKey(String previewKey, PreviewSize size) {
+        return previewKey + "/" + size.key() + ".jpg";
+    }
+
+    private static boolean isPdf(Document doc) {
+        return doc.getMimeType() != null && doc.getMimeType().equalsIgnoreCase("application/pdf");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+}
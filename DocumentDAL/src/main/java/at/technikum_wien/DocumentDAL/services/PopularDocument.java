@@ -0,0 +1,4 @@
+package at.technikum_wien.DocumentDAL.services;
+
+/** Eintrag der Top-N-Liste: Dokument mit Zugriffen im angefragten Zeitraum */
+public record PopularDocument(int documentId, String title, long accessCount) {}
@@ -0,0 +1,29 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import java.util.Locale;
+
+/** Vorgerenderte Preview-Größen (Breite in Pixel, Höhe proportional zur ersten Seite) */
+public enum PreviewSize {
+    THUMBNAIL(200),
+    CARD(480),
+    FULL(1240);
+
+    private final int width;
+
+    PreviewSize(int width) {
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /** @throws IllegalArgumentException bei unbekannter Größe */
+    public static PreviewSize parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,73 @@
+package at.technikum_wien.DocumentDAL.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Zählt Bytes und aktualisiert einen SHA-256-Digest, während der Stream gelesen wird.
+ * So müssen Größe und Prüfsumme nicht über ein byte[] im Heap ermittelt werden.
+ */
+class ChecksumInputStream extends FilterInputStream {
+
+    private final MessageDigest digest;
+    private long count;
+
+    ChecksumInputStream(InputStream in) {
+        super(in);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            digest.update(b, off, n);
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Überspringen würde die Prüfsumme verfälschen -> Bytes lesen statt springen
+        byte[] buf = new byte[8192];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    String getSha256Hex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
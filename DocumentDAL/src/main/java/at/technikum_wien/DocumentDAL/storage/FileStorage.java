@@ -1,9 +1,23 @@
 package at.technikum_wien.DocumentDAL.storage;
 
+import java.io.InputStream;
+
 public interface FileStorage {
     void put(String bucket, String key, byte[] data, String contentType) throws Exception;
 
+    /**
+     * Streamt die Daten direkt in den Storage, ohne sie vollständig im Heap zu halten.
+     * @param size Objektgröße in Bytes oder -1, falls unbekannt
+     */
+    StoredObject put(String bucket, String key, InputStream data, long size, String contentType) throws Exception;
+
     byte[] get(String bucket, String key) throws Exception;
 
+    /**
+     * Öffnet einen Stream auf (einen Ausschnitt) des Objekts; der Aufrufer muss ihn schließen.
+     * @param length Anzahl Bytes ab {@code offset} oder {@code null} bis zum Ende
+     */
+    InputStream openStream(String bucket, String key, long offset, Long length) throws Exception;
+
     void delete(String bucket, String key) throws Exception;
-}
\ No newline at end of file
+}
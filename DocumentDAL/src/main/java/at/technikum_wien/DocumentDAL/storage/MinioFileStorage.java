@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 
 @Component
 public class MinioFileStorage implements FileStorage {
@@ -13,11 +14,15 @@ public class MinioFileStorage implements FileStorage {
     private final MinioClient client;
     private final String defaultBucket;
     private final String previewBucket;
+    private final long partSize;
 
-    public MinioFileStorage(MinioClient client, @Value("${minio.bucket}") String defaultBucket, @Value("${minio.preview-bucket}") String previewBucket) throws Exception {
+    public MinioFileStorage(MinioClient client, @Value("${minio.bucket}") String defaultBucket, @Value("${minio.preview-bucket}") String previewBucket,
+                            @Value("${minio.upload-part-size:5242880}") long partSize) throws Exception {
         this.client = client;
         this.defaultBucket = defaultBucket;
         this.previewBucket = previewBucket;
+        // MinIO/S3 verlangt mindestens 5 MiB pro Part (außer dem letzten)
+        this.partSize = Math.max(partSize, ObjectWriteArgs.MIN_MULTIPART_SIZE);
         ensureBucketExists(defaultBucket);
         ensureBucketExists(previewBucket);
     }
@@ -40,6 +45,20 @@ public class MinioFileStorage implements FileStorage {
                 .build());
     }
 
+    @Override
+    public StoredObject put(String bucket, String key, InputStream data, long size, String contentType) throws Exception {
+        String b = bucket != null ? bucket : defaultBucket;
+        ChecksumInputStream in = new ChecksumInputStream(data);
+        // Multipart-Upload: der Client puffert höchstens einen Part, unabhängig von der Dateigröße
+        ObjectWriteResponse res = client.putObject(PutObjectArgs.builder()
+                .bucket(b)
+                .object(key)
+                .stream(in, size, partSize)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .build());
+        return new StoredObject(b, key, in.getCount(), in.getSha256Hex(), res != null ? res.etag() : null);
+    }
+
     @Override
     public byte[] get(String bucket, String key) throws Exception {
         String b = bucket != null ? bucket : defaultBucket;
@@ -48,6 +67,16 @@ public class MinioFileStorage implements FileStorage {
         }
     }
 
+    @Override
+    public InputStream openStream(String bucket, String key, long offset, Long length) throws Exception {
+        String b = bucket != null ? bucket : defaultBucket;
+        // Range-Read direkt in MinIO, es wird nur der angeforderte Ausschnitt übertragen
+        GetObjectArgs.Builder args = GetObjectArgs.builder().bucket(b).object(key);
+        if (offset > 0) args.offset(offset);
+        if (length != null) args.length(length);
+        return client.getObject(args.build());
+    }
+
     @Override
     public void delete(String bucket, String key) throws Exception {
         String b = bucket != null ? bucket : defaultBucket;
@@ -0,0 +1,12 @@
+package at.technikum_wien.DocumentDAL.storage;
+
+/**
+ * Ergebnis eines Streaming-Uploads: Größe und SHA-256 werden beim Durchreichen des Streams berechnet.
+ */
+public record StoredObject(
+        String bucket,
+        String key,
+        long size,
+        String sha256,
+        String etag
+) {}
@@ -0,0 +1,154 @@
+package at.technikum_wien.DocumentDAL.benchmark;
+
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import at.technikum_wien.DocumentDAL.services.AccessStatsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Top-100 über ein Jahr: Summe über alle Tageszeilen gegen Monats-/Wochensummen plus Randtage,
+ * dazu der Endpunkt-Pfad über den Ergebnis-Cache in {@link AccessStatsService}.
+ * Die Summentabellen werden per backfillRollups() aus den Tageszeilen aufgebaut (misst den einmaligen Aufbau mit).
+ * Nur manuell: mvn test -Dtest=DocumentAccessTopBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=2000000]
+ * 10 Mio. Tageszeilen brauchen mehr Heap für H2: -Dbenchmark.rows=10000000 -DargLine=-Xmx4g
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DocumentAccessStatBatchRepository.class, DocumentAccessRankingRepository.class})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DocumentAccessTopBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentAccessTopBenchmarkTest.class);
+
+    private static final int INSERT_BATCH = 10_000;
+    private static final int RUNS = 30;
+    private static final LocalDate LAST_DAY = LocalDate.now();
+    private static final LocalDate FIRST_DAY = LAST_DAY.minusDays(364);
+
+    @Autowired
+    private DocumentAccessStatBatchRepository batchRepository;
+
+    @Autowired
+    private DocumentAccessRankingRepository rankingRepository;
+
+    @Autowired
+    private DocumentAccessStatRepository statRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void compareDailyScanWithRollups() {
+        int rows = Integer.getInteger("benchmark.rows", 2_000_000);
+        // 10 Mio. Zeilen/Jahr bei 50.000 Dokumenten: jedes Dokument an gut jedem zweiten Tag aufgerufen
+        int documents = Integer.getInteger("benchmark.documents", Math.max(1_000, rows / 200));
+        long start = System.nanoTime();
+        insertDailyRows(rows, documents);
+        log.info(String.format("Insert: %d Tageszeilen in %d ms", rows, (System.nanoTime() - start) / 1_000_000));
+
+        start = System.nanoTime();
+        int periods = batchRepository.backfillRollups();
+        log.info(String.format("Backfill: %d Wochen/Monate in %d ms (%d Wochen-, %d Monatszeilen)", periods,
+                (System.nanoTime() - start) / 1_000_000,
+                jdbc.queryForObject("select count(*) from document_access_stats_weekly", Long.class),
+                jdbc.queryForObject("select count(*) from document_access_stats_monthly", Long.class)));
+
+        AccessStatsService service = new AccessStatsService(statRepository, batchRepository, rankingRepository,
+                documentRepository, 60, List.of(), 100);
+
+        log.info(String.format("%10s | %-24s | %8s | %8s", "rows", "variant", "p50 ms", "p99 ms"));
+        for (int days : new int[] {90, 365}) {
+            LocalDate from = LAST_DAY.minusDays(days - 1L);
+            List<?> expected = measure(rows, "Tageszeilen, " + days + " Tage", limit -> naiveTop(from, LAST_DAY, limit));
+            List<?> actual = measure(rows, "Summen, " + days + " Tage", limit -> rankingRepository.top(from, LAST_DAY, limit));
+            if (!expected.equals(actual)) {
+                throw new AssertionError("Top-100 weicht ab für " + days + " Tage");
+            }
+            // Endpunkt-Pfad: Ergebnis-Cache mit Refresh-Ahead, der erste Aufruf (Aufwärmen) lädt
+            measure(rows, "Summen + Cache, " + days + " Tage", limit -> service.top(days, 100));
+        }
+    }
+
+    private List<DocumentAccessRankingRepository.Ranked> naiveTop(LocalDate from, LocalDate to, int limit) {
+        return jdbc.query("select document_id, sum(access_count) as total from document_access_stats " +
+                        "where access_date >= ? and access_date <= ? group by document_id " +
+                        "order by total desc, document_id limit ?",
+                (rs, rowNum) -> new DocumentAccessRankingRepository.Ranked(rs.getInt(1), rs.getLong(2)), from, to, limit);
+    }
+
+    /** rows / 365 verschiedene von {@code documents} Dokumenten pro Tag, Zugriffszahlen schief verteilt (niedrige IDs sind beliebter) */
+    private void insertDailyRows(int rows, int documents) {
+        jdbc.update("delete from document_access_stats");
+        jdbc.update("delete from document_access_stats_weekly");
+        jdbc.update("delete from document_access_stats_monthly");
+        jdbc.update("delete from document_access_stats_rollup_state");
+        Random random = new Random(42);
+        int perDay = Math.min(documents, rows / 365);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            Date date = Date.valueOf(day);
+            int offset = random.nextInt(documents);
+            for (int i = 0; i < perDay; i++) {
+                // 7919 ist prim (und teilt documents nicht) -> verschiedene IDs pro Tag
+                int documentId = 1 + (int) ((offset + (long) i * 7919) % documents);
+                batch.add(new Object[] {documentId, date, 1 + random.nextInt(1 + 100_000 / documentId)});
+                if (batch.size() == INSERT_BATCH) {
+                    flush(batch);
+                }
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        jdbc.batchUpdate("insert into document_access_stats (document_id, access_date, access_count) values (?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    /** Limit pro Lauf leicht variiert: H2 liefert sonst für identische Abfragen das zwischengespeicherte Ergebnis */
+    private <T> T measure(int rows, String variant, IntFunction<T> query) {
+        T result = query.apply(100);
+        for (int i = 1; i < 3; i++) {
+            query.apply(100 + RUNS + i);
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.apply(101 + i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        log.info(String.format("%10d | %-24s | %8.1f | %8.1f", rows, variant,
+                nanos[RUNS / 2] / 1e6, nanos[(int) Math.ceil(RUNS * 0.99) - 1] / 1e6));
+        return result;
+    }
+}
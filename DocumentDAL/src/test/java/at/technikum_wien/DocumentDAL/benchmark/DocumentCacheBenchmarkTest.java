@@ -0,0 +1,125 @@
+package at.technikum_wien.DocumentDAL.benchmark;
+
+import at.technikum_wien.DocumentDAL.model.Document;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import at.technikum_wien.DocumentDAL.services.DocumentCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Latenz von GET /{id}-Lookups mit und ohne In-Process-Cache bei schiefer Verteilung (80 % der Zugriffe auf 20 % der IDs).
+ * Ohne Transaktion im Test, damit jeder findById eine eigene Session hat (sonst greift der First-Level-Cache).
+ * H2 im Speicher unterschätzt die DB-Latenz gegenüber Postgres im Netz; der Abstand ist in Produktion größer.
+ * Nur manuell: mvn test -Dtest=DocumentCacheBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=5000 -Dbenchmark.threads=8]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DocumentCacheBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentCacheBenchmarkTest.class);
+
+    private static final int LOOKUPS_PER_THREAD = 20_000;
+    private static final String CONTENT = "Lorem ipsum dolor sit amet ".repeat(400); // ~10 KB OCR-Text pro Dokument
+
+    @Autowired
+    private DocumentRepository repo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void compareLookupLatencyWithAndWithoutCache() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 5_000);
+        int threads = Integer.getInteger("benchmark.threads", 8);
+        jdbc.update("delete from document");
+        List<Integer> ids = insertRows(rows);
+
+        // 32 MB: die heißen 20 % (~22 KB geschätzt je Dokument) passen hinein, der Rest wird verdrängt
+        DocumentCache cache = new DocumentCache(repo, new SimpleMeterRegistry(), true, 32L * 1024 * 1024, 600, 1 << 20);
+
+        log.info(String.format("%-18s | %10s | %10s | %10s | %12s", "variant", "p50 us", "p99 us", "p99.9 us", "lookups/s"));
+        measure("ohne Cache (warm)", ids, threads, id -> repo.findById(id).orElseThrow());
+        measure("ohne Cache", ids, threads, id -> repo.findById(id).orElseThrow());
+        measure("mit Cache (warm)", ids, threads, id -> cache.find(id).orElseThrow());
+        measure("mit Cache", ids, threads, id -> cache.find(id).orElseThrow());
+    }
+
+    private List<Integer> insertRows(int rows) {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[] { "Dokument " + i, CONTENT, "Zusammenfassung " + i,
+                    Timestamp.valueOf(base.plusSeconds(i)), "doc-" + i + ".pdf", "application/pdf", 1024L });
+        }
+        jdbc.batchUpdate("insert into document (title, content, summary, upload_date, file_name, mime_type, size) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", batch);
+        return jdbc.queryForList("select id from document order by id", Integer.class);
+    }
+
+    private void measure(String variant, List<Integer> ids, int threads, IntFunction<Document> lookup) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                futures.add(pool.submit(() -> run(ids, new Random(seed), lookup)));
+            }
+            long[] all = new long[threads * LOOKUPS_PER_THREAD];
+            int pos = 0;
+            for (Future<long[]> f : futures) {
+                long[] part = f.get();
+                System.arraycopy(part, 0, all, pos, part.length);
+                pos += part.length;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(all);
+            log.info(String.format("%-18s | %10.1f | %10.1f | %10.1f | %12.0f", variant,
+                    percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all.length / seconds));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long[] run(List<Integer> ids, Random random, IntFunction<Document> lookup) {
+        int hot = Math.max(1, ids.size() / 5);
+        long[] latencies = new long[LOOKUPS_PER_THREAD];
+        for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+            int id = random.nextInt(10) < 8 ? ids.get(random.nextInt(hot)) : ids.get(random.nextInt(ids.size()));
+            long t0 = System.nanoTime();
+            lookup.apply(id);
+            latencies[i] = System.nanoTime() - t0;
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1_000.0;
+    }
+}
@@ -0,0 +1,102 @@
+package at.technikum_wien.DocumentDAL.benchmark;
+
+import at.technikum_wien.DocumentDAL.model.Document;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Vergleicht die alte Dokumentliste (findAll, inkl. text-Spalten) mit der Keyset-Pagination.
+ * Nur manuell: mvn test -Dtest=DocumentListingBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=10000,100000,1000000]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DocumentListingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentListingBenchmarkTest.class);
+
+    private static final int PAGE_SIZE = 50;
+    private static final int INSERT_BATCH = 5_000;
+    private static final String CONTENT = "Lorem ipsum dolor sit amet ".repeat(40); // ~1 KB OCR-Text pro Dokument
+
+    @Autowired
+    private DocumentRepository repo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void compareFindAllWithKeysetPagination() {
+        int[] sizes = Arrays.stream(System.getProperty("benchmark.rows", "10000,100000,1000000").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+
+        log.info(String.format("%10s | %-22s | %12s | %14s", "rows", "variant", "latency ms", "allocated MB"));
+        for (int rows : sizes) {
+            jdbc.update("delete from document");
+            insertRows(rows);
+
+            measure(rows, "findAll (alt)", () -> repo.findAll().size());
+            measure(rows, "keyset erste Seite", () -> repo.findFirstPage(Limit.of(PAGE_SIZE + 1)).size());
+            Document middle = repo.findFirstPage(Limit.of(rows / 2)).get(rows / 2 - 1);
+            measure(rows, "keyset Seite ab Mitte", () ->
+                    repo.findPageAfter(middle.getUploadDate(), middle.getId(), Limit.of(PAGE_SIZE + 1)).size());
+        }
+    }
+
+    private void insertRows(int rows) {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[] { "Dokument " + i, CONTENT, "Zusammenfassung " + i,
+                    Timestamp.valueOf(base.plusSeconds(i)), "doc-" + i + ".pdf", "application/pdf", 1024L });
+            if (batch.size() == INSERT_BATCH || i == rows - 1) {
+                jdbc.batchUpdate("insert into document (title, content, summary, upload_date, file_name, mime_type, size) " +
+                        "values (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void measure(int rows, String variant, Supplier<Integer> query) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        em.clear();
+        try {
+            long allocBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int loaded = query.get();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocBefore;
+            log.info(String.format("%10d | %-22s | %12d | %14.1f   (%d Zeilen geladen)",
+                    rows, variant, millis, allocated / (1024.0 * 1024.0), loaded));
+        } catch (OutOfMemoryError e) {
+            log.info(String.format("%10d | %-22s | %12s | %14s", rows, variant, "OOM", "-"));
+        } finally {
+            em.clear();
+        }
+    }
+}
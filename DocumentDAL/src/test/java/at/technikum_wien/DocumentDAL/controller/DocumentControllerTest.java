@@ -1,11 +1,21 @@
 package at.technikum_wien.DocumentDAL.controller;
 
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex; 
-import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
+import at.technikum_wien.DocumentDAL.exceptions.DocumentNotFoundException;
+import at.technikum_wien.DocumentDAL.exceptions.InvalidCursorException;
 import at.technikum_wien.DocumentDAL.model.Document;
 import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import at.technikum_wien.DocumentDAL.services.AccessStatsService;
+import at.technikum_wien.DocumentDAL.services.DocumentAccessStats;
+import at.technikum_wien.DocumentDAL.services.DocumentBatchUpdate;
+import at.technikum_wien.DocumentDAL.services.DocumentCache;
+import at.technikum_wien.DocumentDAL.services.DocumentPage;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchPage;
+import at.technikum_wien.DocumentDAL.services.DocumentSearchService;
 import at.technikum_wien.DocumentDAL.services.DocumentService;
 import at.technikum_wien.DocumentDAL.services.PdfPreviewService;
+import at.technikum_wien.DocumentDAL.services.PopularDocument;
+import at.technikum_wien.DocumentDAL.services.PreviewSize;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,12 +27,17 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -40,7 +55,7 @@ class DocumentControllerTest {
     private DocumentRepository documentRepository;
 
     @MockitoBean
-    private DocumentIndexRepository documentIndexRepository;
+    private DocumentSearchService documentSearchService;
 
     @MockitoBean
     private DocumentService documentService;
@@ -48,6 +63,12 @@ class DocumentControllerTest {
     @MockitoBean
     private PdfPreviewService pdfPreviewService;
 
+    @MockitoBean
+    private DocumentCache documentCache;
+
+    @MockitoBean
+    private AccessStatsService accessStats;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -77,12 +98,14 @@ class DocumentControllerTest {
 
         testDocuments = Arrays.asList(testDocument, testDocument2);
 
-        reset(documentRepository, pdfPreviewService, documentService, documentIndexRepository);
+        reset(documentRepository, pdfPreviewService, documentService, documentSearchService, documentCache, accessStats);
+        // Cache ohne Caching: Lesezugriffe gehen direkt an das gemockte Repository
+        when(documentCache.find(anyInt())).thenAnswer(inv -> documentRepository.findById(inv.getArgument(0)));
     }
 
     @Test
     void getAllDocuments_ShouldReturnListOfDocuments() throws Exception {
-        when(documentRepository.findAll()).thenReturn(testDocuments);
+        when(documentService.listPage(isNull(), eq(50), isNull())).thenReturn(new DocumentPage(testDocuments, null));
 
         mockMvc.perform(get("/api/documents"))
                 .andExpect(status().isOk())
@@ -90,9 +113,34 @@ class DocumentControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].title").value("Test Document"));
+                .andExpect(jsonPath("$[0].title").value("Test Document"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
 
-        verify(documentRepository, times(1)).findAll();
+        verify(documentService, times(1)).listPage(null, 50, null);
+        verify(documentRepository, never()).findAll();
+    }
+
+    @Test
+    void getAllDocuments_WithCursorAndFields_ShouldReturnNextCursorHeader() throws Exception {
+        when(documentService.listPage("abc", 1, Set.of("content")))
+                .thenReturn(new DocumentPage(List.of(testDocument), "next-token"));
+
+        mockMvc.perform(get("/api/documents")
+                        .param("cursor", "abc")
+                        .param("limit", "1")
+                        .param("fields", "content"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("X-Next-Cursor", "next-token"));
+    }
+
+    @Test
+    void getAllDocuments_WithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+        when(documentService.listPage(eq("broken"), anyInt(), any()))
+                .thenThrow(new InvalidCursorException("broken"));
+
+        mockMvc.perform(get("/api/documents").param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -192,49 +240,125 @@ class DocumentControllerTest {
     }
 
     @Test
-    void searchDocuments_WithQuery_ShouldReturnFilteredResults() throws Exception {
+    void searchDocuments_WithQuery_ShouldReturnBoundedPageWithoutContent() throws Exception {
         DocumentIndex docIndex = new DocumentIndex();
         docIndex.setTitle("Test Document");
         docIndex.setSummary("Test content summary");
 
-        when(documentIndexRepository.search("test"))
-                .thenReturn(Arrays.asList(docIndex));
+        when(documentSearchService.search("test", 100, null))
+                .thenReturn(new DocumentSearchPage(List.of(new DocumentSearchPage.Hit(docIndex, 1.0f, Map.of())), 150, false, "next"));
 
         mockMvc.perform(get("/api/documents/search")
                         .param("q", "test"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next"))
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].title").value("Test Document"));
-
-        verify(documentIndexRepository, times(1)).search("test");
     }
 
     @Test
-    void searchDocuments_WithoutQuery_ShouldReturnAllDocuments() throws Exception {
+    void searchDocuments_WithoutQuery_ShouldPageInsteadOfLoadingAll() throws Exception {
         DocumentIndex doc1 = new DocumentIndex();
         doc1.setTitle("Doc 1");
         DocumentIndex doc2 = new DocumentIndex();
         doc2.setTitle("Doc 2");
 
-        when(documentIndexRepository.findAll()).thenReturn(Arrays.asList(doc1, doc2));
+        when(documentSearchService.search(null, 2, "abc")).thenReturn(new DocumentSearchPage(List.of(
+                new DocumentSearchPage.Hit(doc1, 1.0f, Map.of()), new DocumentSearchPage.Hit(doc2, 1.0f, Map.of())), 2, false, null));
 
-        mockMvc.perform(get("/api/documents/search"))
+        mockMvc.perform(get("/api/documents/search").param("size", "2").param("cursor", "abc"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$.length()").value(2));
-
-        verify(documentIndexRepository, times(1)).findAll();
     }
 
     @Test
     void downloadFile_WhenDocumentExists_ShouldReturnFileData() throws Exception {
+        testDocument.setStorageKey("uuid-test.pdf");
+        testDocument.setSize(11L);
         when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
-        when(documentService.getFileBytes(1)).thenReturn("PDF content".getBytes());
+        when(documentService.openFileStream(testDocument, 0, null))
+                .thenReturn(new ByteArrayInputStream("PDF content".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/documents/1/file"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/api/documents/1/file"))
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(header().string("Content-Type", "application/pdf"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(content().bytes("PDF content".getBytes()));
+
+        verify(accessStats).record(1);
+    }
+
+    @Test
+    void downloadFile_WithRange_ShouldReturnPartialContent() throws Exception {
+        testDocument.setStorageKey("uuid-test.pdf");
+        testDocument.setSize(11L);
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(documentService.openFileStream(testDocument, 4, 3L))
+                .thenReturn(new ByteArrayInputStream("con".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/documents/1/file").header("Range", "bytes=4-6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 4-6/11"))
+                .andExpect(content().bytes("con".getBytes()));
+
+        // Folge-Range eines Viewers ist kein neuer Zugriff
+        verify(accessStats, never()).record(anyInt());
+    }
+
+    @Test
+    void downloadFile_WithUnsatisfiableRange_ShouldReturn416() throws Exception {
+        testDocument.setStorageKey("uuid-test.pdf");
+        testDocument.setSize(11L);
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+
+        mockMvc.perform(get("/api/documents/1/file").header("Range", "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */11"));
+
+        verify(documentService, never()).openFileStream(any(), anyLong(), any());
+    }
+
+    @Test
+    void downloadFile_WithMatchingETag_ShouldReturn304WithoutStorageAccess() throws Exception {
+        testDocument.setStorageKey("uuid-test.pdf");
+        testDocument.setContentHash("abc123");
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+
+        mockMvc.perform(get("/api/documents/1/file").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+
+        verify(documentService, never()).openFileStream(any(), anyLong(), any());
+        verify(accessStats, never()).record(anyInt());
+    }
+
+    @Test
+    void downloadFile_WithStaleIfRange_ShouldReturnFullContent() throws Exception {
+        testDocument.setStorageKey("uuid-test.pdf");
+        testDocument.setContentHash("abc123");
+        testDocument.setSize(11L);
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(documentService.openFileStream(testDocument, 0, null))
+                .thenReturn(new ByteArrayInputStream("PDF content".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/documents/1/file")
+                        .header("Range", "bytes=4-6")
+                        .header("If-Range", "\"outdated\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
                 .andExpect(content().bytes("PDF content".getBytes()));
     }
 
@@ -270,8 +394,7 @@ class DocumentControllerTest {
         updatedDocument.setId(1);
         updatedDocument.setTitle("Updated Title");
 
-        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
-        when(documentRepository.save(any(Document.class))).thenReturn(updatedDocument);
+        when(documentService.update(eq(1), any(Document.class))).thenReturn(updatedDocument);
 
         mockMvc.perform(put("/api/documents/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -285,7 +408,7 @@ class DocumentControllerTest {
         Document updatedDocument = new Document();
         updatedDocument.setTitle("Updated Title");
 
-        when(documentRepository.findById(999)).thenReturn(Optional.empty());
+        when(documentService.update(eq(999), any(Document.class))).thenThrow(new DocumentNotFoundException(999));
 
         mockMvc.perform(put("/api/documents/999")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -315,9 +438,167 @@ class DocumentControllerTest {
         testDocument.setMimeType("application/pdf");
         when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
 
-        when(documentService.getFileBytes(1)).thenThrow(new RuntimeException("missing"));
+        when(pdfPreviewService.getPreview(testDocument, PreviewSize.FULL)).thenThrow(new RuntimeException("missing"));
 
         mockMvc.perform(get("/api/documents/1/preview"))
                 .andExpect(status().isInternalServerError());
     }
-}
\ No newline at end of file
+
+    @Test
+    void previewDocument_WithVersion_ShouldBeImmutableWithETag() throws Exception {
+        testDocument.setMimeType("application/pdf");
+        testDocument.setContentHash("abc123");
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(pdfPreviewService.getPreview(testDocument, PreviewSize.CARD)).thenReturn(new byte[]{1, 2, 3});
+
+        mockMvc.perform(get("/api/documents/1/preview").param("size", "card").param("v", "abc123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123-card\""))
+                .andExpect(header().string("Cache-Control", org.hamcrest.Matchers.containsString("immutable")))
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG));
+    }
+
+    @Test
+    void previewDocument_WithoutVersion_ShouldRevalidate() throws Exception {
+        testDocument.setMimeType("application/pdf");
+        testDocument.setContentHash("abc123");
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(pdfPreviewService.getPreview(testDocument, PreviewSize.THUMBNAIL)).thenReturn(new byte[]{1});
+
+        mockMvc.perform(get("/api/documents/1/preview").param("size", "thumbnail"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"));
+
+        verify(accessStats, never()).record(anyInt());
+    }
+
+    @Test
+    void previewDocument_FullSize_ShouldCountAccess() throws Exception {
+        testDocument.setMimeType("application/pdf");
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(pdfPreviewService.getPreview(testDocument, PreviewSize.FULL)).thenReturn(new byte[]{1});
+
+        mockMvc.perform(get("/api/documents/1/preview"))
+                .andExpect(status().isOk());
+
+        verify(accessStats).record(1);
+    }
+
+    @Test
+    void stats_ShouldReturnDailyCounts() throws Exception {
+        LocalDate today = LocalDate.now();
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+        when(accessStats.stats(1, 7)).thenReturn(new DocumentAccessStats(1, today.minusDays(6), 5,
+                List.of(new DocumentAccessStats.Day(today, 5))));
+
+        mockMvc.perform(get("/api/documents/1/stats").param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.days[0].date").value(today.toString()))
+                .andExpect(jsonPath("$.days[0].count").value(5));
+    }
+
+    @Test
+    void top_ShouldReturnMostAccessedDocuments() throws Exception {
+        when(accessStats.top(365, 100)).thenReturn(List.of(new PopularDocument(2, "Second Document", 40)));
+
+        mockMvc.perform(get("/api/documents/top").param("days", "365"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].documentId").value(2))
+                .andExpect(jsonPath("$[0].title").value("Second Document"))
+                .andExpect(jsonPath("$[0].accessCount").value(40));
+    }
+
+    @Test
+    void top_WithInvalidLimit_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/documents/top").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+
+        verify(accessStats, never()).top(anyInt(), anyInt());
+    }
+
+    @Test
+    void stats_WhenDocumentMissingOrDaysInvalid_ShouldFail() throws Exception {
+        when(documentRepository.findById(999)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/documents/999/stats"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/documents/1/stats").param("days", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(accessStats, never()).stats(anyInt(), anyInt());
+    }
+
+    @Test
+    void previewDocument_WithMatchingETag_ShouldReturn304WithoutRendering() throws Exception {
+        testDocument.setMimeType("application/pdf");
+        testDocument.setContentHash("abc123");
+        when(documentRepository.findById(1)).thenReturn(Optional.of(testDocument));
+
+        mockMvc.perform(get("/api/documents/1/preview").header("If-None-Match", "\"abc123-full\""))
+                .andExpect(status().isNotModified());
+
+        verify(pdfPreviewService, never()).getPreview(any(), any());
+    }
+
+    @Test
+    void previewDocument_WithUnknownSize_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/documents/1/preview").param("size", "poster"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ocrResult_ShouldStoreContentAndReturnNoContent() throws Exception {
+        testDocument.setOcrJobStatus("COMPLETED");
+        when(documentService.applyOcrResult(1, "OCR-Text")).thenReturn(testDocument);
+
+        mockMvc.perform(put("/api/documents/1/ocr-result")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"OCR-Text\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(content().string(""));
+
+        verify(documentService).applyOcrResult(1, "OCR-Text");
+    }
+
+    @Test
+    void ocrResult_WhenDocumentDoesNotExist_ShouldReturn404() throws Exception {
+        when(documentService.applyOcrResult(eq(99), anyString())).thenThrow(new DocumentNotFoundException(99));
+
+        mockMvc.perform(put("/api/documents/99/ocr-result")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"x\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void batchUpdate_ShouldReturnResultPerItem() throws Exception {
+        when(documentService.applyBatch(anyList())).thenReturn(List.of(
+                new DocumentBatchUpdate.Result(1, 200, null),
+                new DocumentBatchUpdate.Result(2, 409, "Summary has already been set and cannot be modified.")));
+
+        mockMvc.perform(post("/api/documents/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"summary\":\"a\"},{\"id\":2,\"summary\":\"b\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(409));
+
+        verify(documentService).applyBatch(List.of(
+                new DocumentBatchUpdate.Item(1, null, "a"), new DocumentBatchUpdate.Item(2, null, "b")));
+    }
+
+    @Test
+    void batchUpdate_TooManyItems_ShouldReturnBadRequest() throws Exception {
+        String items = java.util.stream.IntStream.rangeClosed(1, DocumentBatchUpdate.MAX_ITEMS + 1)
+                .mapToObj(i -> "{\"id\":" + i + ",\"content\":\"x\"}")
+                .collect(java.util.stream.Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/documents/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(items))
+                .andExpect(status().isBadRequest());
+
+        verify(documentService, never()).applyBatch(anyList());
+    }
+}
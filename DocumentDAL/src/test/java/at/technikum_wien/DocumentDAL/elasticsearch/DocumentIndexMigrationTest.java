@@ -0,0 +1,126 @@
+package at.technikum_wien.DocumentDAL.elasticsearch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.reindex.ReindexRequest;
+import org.springframework.data.elasticsearch.core.reindex.ReindexResponse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DocumentIndexMigrationTest {
+
+    private ElasticsearchOperations operations;
+    private final DocumentIndexQueue indexQueue = mock(DocumentIndexQueue.class);
+    private final Map<String, IndexOperations> indexOps = new HashMap<>();
+    private DocumentIndexMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        operations = mock(ElasticsearchOperations.class);
+        when(operations.indexOps(any(IndexCoordinates.class))).thenAnswer(inv ->
+                indexOps.computeIfAbsent(((IndexCoordinates) inv.getArgument(0)).getIndexName(), n -> mock(IndexOperations.class)));
+        when(operations.indexOps(DocumentIndex.class)).thenReturn(mock(IndexOperations.class));
+        ReindexResponse response = mock(ReindexResponse.class);
+        when(response.getFailures()).thenReturn(List.of());
+        when(operations.reindex(any())).thenReturn(response);
+        migration = new DocumentIndexMigration(operations, indexQueue, "documents");
+    }
+
+    @Test
+    void migrate_WithLegacyConcreteIndex_ShouldReindexAndSwapAtomically() {
+        IndexOperations legacy = ops("documents");
+        when(legacy.exists()).thenReturn(true);
+        when(legacy.getAliases("documents")).thenReturn(Map.of());
+
+        migration.migrate();
+
+        verify(ops("documents_v3")).create(any(), any());
+        ArgumentCaptor<ReindexRequest> reindex = ArgumentCaptor.forClass(ReindexRequest.class);
+        verify(operations).reindex(reindex.capture());
+        assertThat(reindex.getValue().getSource().getIndexes().getIndexNames()).containsExactly("documents");
+        assertThat(reindex.getValue().getDest().getIndex().getIndexName()).isEqualTo("documents_v3");
+
+        // Alias setzen und alten Index löschen in einem einzigen _aliases-Request, kein separates delete
+        ArgumentCaptor<AliasActions> actions = ArgumentCaptor.forClass(AliasActions.class);
+        verify(ops("documents_v3"), times(1)).alias(actions.capture());
+        assertThat(actions.getValue().getActions())
+                .extracting(a -> a.getClass().getSimpleName())
+                .containsExactly("Add", "RemoveIndex");
+        assertThat(actions.getValue().getActions().get(1).getParameters().getIndices()).containsExactly("documents");
+        verify(legacy, never()).delete();
+
+        // Keine Queue-Schreibzugriffe zwischen Reindex-Beginn und Alias-Wechsel
+        InOrder order = inOrder(indexQueue, operations, ops("documents_v3"));
+        order.verify(indexQueue).pause();
+        order.verify(operations).reindex(any());
+        order.verify(ops("documents_v3")).alias(any());
+        order.verify(indexQueue).resume();
+    }
+
+    @Test
+    void migrate_WhenReindexReportsFailures_ShouldKeepLegacyIndexAndAlias() {
+        IndexOperations legacy = ops("documents");
+        when(legacy.exists()).thenReturn(true);
+        when(legacy.getAliases("documents")).thenReturn(Map.of());
+        ReindexResponse failed = mock(ReindexResponse.class);
+        when(failed.getFailures()).thenReturn(List.of(mock(ReindexResponse.Failure.class)));
+        when(operations.reindex(any())).thenReturn(failed);
+
+        assertThatThrownBy(() -> migration.migrate()).isInstanceOf(IllegalStateException.class);
+
+        verify(legacy, never()).delete();
+        verify(ops("documents_v3"), never()).alias(any());
+        verify(indexQueue).resume();
+    }
+
+    @Test
+    void migrate_WhenTargetHasFewerDocuments_ShouldKeepLegacyIndexAndAlias() {
+        IndexOperations legacy = ops("documents");
+        when(legacy.exists()).thenReturn(true);
+        when(legacy.getAliases("documents")).thenReturn(Map.of());
+        when(operations.count(any(Query.class), eq(IndexCoordinates.of("documents")))).thenReturn(10L);
+        when(operations.count(any(Query.class), eq(IndexCoordinates.of("documents_v3")))).thenReturn(9L);
+
+        assertThatThrownBy(() -> migration.migrate()).isInstanceOf(IllegalStateException.class);
+
+        verify(legacy, never()).delete();
+        verify(ops("documents_v3"), never()).alias(any());
+    }
+
+    @Test
+    void migrate_WhenAliasAlreadyCurrent_ShouldDoNothing() {
+        IndexOperations current = ops("documents_v3");
+        when(current.exists()).thenReturn(true);
+        when(ops("documents").getAliases("documents"))
+                .thenReturn(Map.of("documents_v3", Set.of(mock(AliasData.class))));
+
+        migration.migrate();
+
+        verify(operations, never()).reindex(any());
+        verify(current, never()).alias(any());
+        verify(current, never()).create(any(), any());
+        verify(indexQueue, never()).pause();
+    }
+
+    private IndexOperations ops(String name) {
+        return operations.indexOps(IndexCoordinates.of(name));
+    }
+}
@@ -0,0 +1,197 @@
+package at.technikum_wien.DocumentDAL.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DocumentIndexQueueTest {
+
+    private ElasticsearchOperations operations;
+    private ElasticsearchClient client;
+    private DocumentIndexQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        operations = mock(ElasticsearchOperations.class);
+        when(operations.getElasticsearchConverter())
+                .thenReturn(new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext()));
+        client = mock(ElasticsearchClient.class);
+        when(client.bulk(any(BulkRequest.class))).thenAnswer(inv -> ok(inv.getArgument(0)));
+        // Großes Intervall/Batch: der Hintergrund-Thread flusht nicht, die Tests rufen flushOnce() selbst auf
+        queue = new DocumentIndexQueue(operations, client, "documents", 100, 60_000, 1_000, 10, 3);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.shutdown();
+    }
+
+    @Test
+    void flush_WithSeveralUpdatesForSameId_ShouldBulkIndexOnlyLatestVersion() throws IOException {
+        queue.enqueue(doc(1, "v1"));
+        queue.enqueue(doc(1, "v2"));
+        queue.enqueue(doc(2, "other"));
+
+        assertThat(queue.flushOnce()).isTrue();
+
+        BulkRequest request = captureBulk(1).get(0);
+        assertThat(request.index()).isEqualTo("documents");
+        assertThat(request.operations()).hasSize(2);
+        BulkOperation first = request.operations().stream()
+                .filter(op -> op.isIndex() && "1".equals(op.index().id())).findFirst().orElseThrow();
+        assertThat(((Document) first.index().document()).get("title")).isEqualTo("v2");
+        assertThat(queue.pendingCount()).isZero();
+    }
+
+    @Test
+    void flush_WithDeleteAfterUpdate_ShouldOnlyDelete() throws IOException {
+        queue.enqueue(doc(5, "title"));
+        queue.enqueueDelete(5);
+
+        queue.flushOnce();
+
+        List<BulkOperation> ops = captureBulk(1).get(0).operations();
+        assertThat(ops).hasSize(1);
+        assertThat(ops.get(0).isDelete()).isTrue();
+        assertThat(ops.get(0).delete().id()).isEqualTo("5");
+    }
+
+    @Test
+    void flush_WhilePaused_ShouldKeepOperationsUntilResume() throws IOException {
+        queue.pause();
+        queue.enqueue(doc(7, "during reindex"));
+
+        assertThat(queue.flushOnce()).isTrue();
+        verify(client, never()).bulk(any(BulkRequest.class));
+        assertThat(queue.pendingCount()).isEqualTo(1);
+
+        queue.resume();
+        queue.flushOnce();
+
+        assertThat(captureBulk(1).get(0).operations()).hasSize(1);
+    }
+
+    @Test
+    void flush_WithDeletesAndUpdates_ShouldSendOneBulkRequest() throws IOException {
+        queue.enqueueDelete(3);
+        queue.enqueueDelete(4);
+        queue.enqueue(doc(6, "kept"));
+
+        assertThat(queue.flushOnce()).isTrue();
+
+        List<BulkOperation> ops = captureBulk(1).get(0).operations();
+        assertThat(ops).extracting(BulkOperation::_kind)
+                .containsExactlyInAnyOrder(BulkOperation.Kind.Delete, BulkOperation.Kind.Delete, BulkOperation.Kind.Index);
+    }
+
+    @Test
+    void flush_WithFailedItem_ShouldRequeueOnlyFailedDocument() throws IOException {
+        when(client.bulk(any(BulkRequest.class))).thenAnswer(inv -> {
+            BulkRequest request = inv.getArgument(0);
+            List<BulkResponseItem> items = request.operations().stream()
+                    .map(op -> "1".equals(op.index().id())
+                            ? item(op.index().id(), 429, "rejected")
+                            : item(op.index().id(), 201, null))
+                    .toList();
+            return BulkResponse.of(b -> b.errors(true).took(1).items(items));
+        });
+        queue.enqueue(doc(1, "a"));
+        queue.enqueue(doc(2, "b"));
+
+        assertThat(queue.flushOnce()).isFalse();
+
+        assertThat(queue.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void retry_WhenNewerVersionWasEnqueuedMeanwhile_ShouldKeepNewerVersion() throws IOException {
+        queue.enqueue(doc(1, "old"));
+        when(client.bulk(any(BulkRequest.class))).thenAnswer(inv -> {
+            // Während der Bulk-Request läuft, kommt eine neuere Version herein
+            queue.enqueue(doc(1, "new"));
+            throw new IOException("connection reset");
+        }).thenAnswer(inv -> ok(inv.getArgument(0)));
+
+        queue.flushOnce();
+        queue.flushOnce();
+
+        BulkOperation written = captureBulk(2).get(1).operations().get(0);
+        assertThat(((Document) written.index().document()).get("title")).isEqualTo("new");
+    }
+
+    @Test
+    void flush_WhenRetriesExhausted_ShouldDropDocument() throws IOException {
+        when(client.bulk(any(BulkRequest.class))).thenThrow(new IOException("down"));
+        queue.enqueue(doc(1, "a"));
+
+        // Erstversuch + 3 Retries
+        for (int i = 0; i < 4; i++) {
+            queue.flushOnce();
+        }
+
+        assertThat(queue.pendingCount()).isZero();
+        verify(client, times(4)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    void enqueue_WhenFullAfterTimeout_ShouldRejectInsteadOfOverfilling() throws InterruptedException {
+        DocumentIndexQueue small = new DocumentIndexQueue(operations, client, "documents", 100, 60_000, 2, 10, 3);
+        try {
+            assertThat(small.enqueue(doc(1, "a"))).isTrue();
+            assertThat(small.enqueueDelete(2)).isTrue();
+
+            assertThat(small.enqueue(doc(3, "c"))).isFalse();
+            // Update einer schon offenen ID wird zusammengefasst und braucht keinen Platz
+            assertThat(small.enqueue(doc(1, "a2"))).isTrue();
+            assertThat(small.pendingCount()).isEqualTo(2);
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    private List<BulkRequest> captureBulk(int times) throws IOException {
+        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(client, times(times)).bulk(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static BulkResponse ok(BulkRequest request) {
+        List<BulkResponseItem> items = request.operations().stream()
+                .map(op -> item(op.isDelete() ? op.delete().id() : op.index().id(), 200, null))
+                .toList();
+        return BulkResponse.of(b -> b.errors(false).took(1).items(items));
+    }
+
+    private static BulkResponseItem item(String id, int status, String error) {
+        return BulkResponseItem.of(b -> {
+            b.operationType(OperationType.Index).index("documents_v2").id(id).status(status);
+            if (error != null) b.error(e -> e.type("es_rejected_execution_exception").reason(error));
+            return b;
+        });
+    }
+
+    private static DocumentIndex doc(int id, String title) {
+        DocumentIndex d = new DocumentIndex();
+        d.setId(id);
+        d.setTitle(title);
+        return d;
+    }
+}
@@ -3,6 +3,7 @@ package at.technikum_wien.DocumentDAL.integration;
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
 import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
 import at.technikum_wien.DocumentDAL.storage.MinioFileStorage;
+import at.technikum_wien.DocumentDAL.storage.StoredObject;
 import at.technikum_wien.DocumentDAL.messaging.OcrMessagePublisher;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,8 +18,12 @@ import org.springframework.transaction.annotation.Transactional;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.io.InputStream;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -52,7 +57,8 @@ public class DocumentUploadIntegrationTest {
         );
 
         // Mock external dependencies
-        doNothing().when(minioFileStorage).put(any(), any(), any(), any());
+        when(minioFileStorage.put(any(), any(), any(InputStream.class), anyLong(), any()))
+                .thenReturn(new StoredObject("documents", "key", 13L, "sha", "etag"));
         doNothing().when(ocrMessagePublisher).publish(any());
 
         // Perform Upload
@@ -0,0 +1,136 @@
+package at.technikum_wien.DocumentDAL.messaging;
+
+import at.technikum_wien.DocumentDAL.model.OutboxEvent;
+import at.technikum_wien.DocumentDAL.repo.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private OutboxEventRepository outbox;
+    private RabbitTemplate rabbitTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outbox = mock(OutboxEventRepository.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outbox, rabbitTemplate, tx, meterRegistry, 10, 20, 200, 1000, 300_000);
+    }
+
+    @Test
+    void relayBatch_ShouldMarkOnlyAckedEventsAsPublished() {
+        OutboxEvent acked = event(1L);
+        OutboxEvent nacked = event(2L);
+        when(outbox.lockPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(acked, nacked));
+        doAnswer(inv -> {
+            CorrelationData cd = inv.getArgument(3);
+            cd.getFuture().complete(new CorrelationData.Confirm("1".equals(cd.getId()), "1".equals(cd.getId()) ? null : "queue full"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        int published = relay.relayBatch();
+
+        assertThat(published).isEqualTo(1);
+        assertThat(acked.getPublishedAt()).isNotNull();
+        assertThat(nacked.getPublishedAt()).isNull();
+        assertThat(nacked.getAttempts()).isEqualTo(1);
+        assertThat(nacked.getLastError()).contains("queue full");
+        assertThat(nacked.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        assertThat(acked.getNextAttemptAt()).isNull();
+        verify(outbox).saveAll(List.of(acked, nacked));
+    }
+
+    @Test
+    void backoff_ShouldDoubleUpToMaximum() {
+        assertThat(relay.backoff(1)).isEqualTo(1000);
+        assertThat(relay.backoff(2)).isEqualTo(2000);
+        assertThat(relay.backoff(5)).isEqualTo(16_000);
+        assertThat(relay.backoff(9)).isEqualTo(256_000);
+        assertThat(relay.backoff(10)).isEqualTo(300_000);
+        assertThat(relay.backoff(100)).isEqualTo(300_000);
+    }
+
+    @Test
+    void relayBatch_ShouldSendStoredPayloadWithTypeHeaderAndMessageId() {
+        OutboxEvent e = event(7L);
+        when(outbox.lockPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(e));
+
+        relay.relayBatch();
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq("documents.exchange"), eq("document.uploaded"), captor.capture(), any(CorrelationData.class));
+        Message sent = captor.getValue();
+        assertThat(new String(sent.getBody())).isEqualTo("{\"id\":42}");
+        assertThat(sent.getMessageProperties().getMessageId()).isEqualTo("outbox-7");
+        assertThat((String) sent.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))
+                .isEqualTo("at.technikum_wien.DocumentDAL.messaging.events.DocumentUploadedEvent");
+    }
+
+    @Test
+    void relayBatch_WithoutConfirm_ShouldKeepEventPendingAfterTimeout() {
+        OutboxEvent e = event(3L);
+        when(outbox.lockPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(e));
+
+        int published = relay.relayBatch();
+
+        assertThat(published).isZero();
+        assertThat(e.getPublishedAt()).isNull();
+        assertThat(e.getLastError()).isEqualTo("confirm timeout");
+    }
+
+    @Test
+    void relayBatch_WhenBrokerUnreachable_ShouldRecordError() {
+        OutboxEvent e = event(4L);
+        when(outbox.lockPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(e));
+        doThrow(new org.springframework.amqp.AmqpConnectException(new java.net.ConnectException("Connection refused")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        relay.relayBatch();
+
+        assertThat(e.getAttempts()).isEqualTo(1);
+        assertThat(e.getLastError()).contains("Connection refused");
+    }
+
+    @Test
+    void relayBatch_WhenMaxAttemptsReached_ShouldMarkEventFailedAndCountIt() {
+        OutboxEvent e = event(5L);
+        e.setAttempts(19);
+        when(outbox.lockPending(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(e));
+
+        relay.relayBatch();
+
+        assertThat(e.getAttempts()).isEqualTo(20);
+        assertThat(e.getFailedAt()).isNotNull();
+        assertThat(e.getPublishedAt()).isNull();
+        assertThat(meterRegistry.counter("outbox.events.failed").count()).isEqualTo(1.0);
+    }
+
+    private static OutboxEvent event(long id) {
+        OutboxEvent e = new OutboxEvent(42, "at.technikum_wien.DocumentDAL.messaging.events.DocumentUploadedEvent",
+                "documents.exchange", "document.uploaded", "{\"id\":42}");
+        e.setId(id);
+        return e;
+    }
+}
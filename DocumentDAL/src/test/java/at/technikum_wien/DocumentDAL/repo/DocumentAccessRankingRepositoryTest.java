@@ -0,0 +1,134 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository.Ranked;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository.Segment;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.Key;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.DAILY;
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.MONTHLY;
+import static at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.WEEKLY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DocumentAccessStatBatchRepository.class, DocumentAccessRankingRepository.class})
+class DocumentAccessRankingRepositoryTest {
+
+    @Autowired
+    private DocumentAccessStatBatchRepository batchRepository;
+
+    @Autowired
+    private DocumentAccessRankingRepository rankingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private List<Ranked> naiveTop(LocalDate from, LocalDate to, int limit) {
+        return jdbc.query("select document_id, sum(access_count) as total from document_access_stats " +
+                        "where access_date >= ? and access_date <= ? group by document_id order by total desc, document_id limit ?",
+                (rs, rowNum) -> new Ranked(rs.getInt(1), rs.getLong(2)), from, to, limit);
+    }
+
+    @Test
+    void segments_ShouldSplitIntoMonthsWeeksAndDays() {
+        // Mi 14.01. bis Di 10.03.2026: Januar-Rest als Tage/Woche/Tage, Februar ganz, März-Anfang als Tage/Woche/Tage
+        assertThat(DocumentAccessRankingRepository.segments(LocalDate.of(2026, 1, 14), LocalDate.of(2026, 3, 10)))
+                .containsExactly(
+                        new Segment(DAILY, "access_date", LocalDate.of(2026, 1, 14), LocalDate.of(2026, 1, 19)),
+                        new Segment(WEEKLY, "week_start", LocalDate.of(2026, 1, 19), LocalDate.of(2026, 1, 26)),
+                        new Segment(DAILY, "access_date", LocalDate.of(2026, 1, 26), LocalDate.of(2026, 2, 1)),
+                        new Segment(MONTHLY, "month_start", LocalDate.of(2026, 2, 1), LocalDate.of(2026, 3, 1)),
+                        new Segment(DAILY, "access_date", LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 2)),
+                        new Segment(WEEKLY, "week_start", LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 9)),
+                        new Segment(DAILY, "access_date", LocalDate.of(2026, 3, 9), LocalDate.of(2026, 3, 11)));
+
+        assertThat(DocumentAccessRankingRepository.segments(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31)))
+                .containsExactly(new Segment(MONTHLY, "month_start", LocalDate.of(2026, 3, 1), LocalDate.of(2026, 4, 1)));
+    }
+
+    @Test
+    void upsert_ShouldMaintainWeeklyAndMonthlyRollups() {
+        LocalDate wednesday = LocalDate.of(2026, 1, 28);
+        batchRepository.upsert(Map.of(new Key(1, wednesday), 10, new Key(1, wednesday.plusDays(4)), 5));
+        batchRepository.upsert(Map.of(new Key(1, wednesday), 2));
+
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_weekly " +
+                "where document_id = 1 and week_start = ?", Long.class, LocalDate.of(2026, 1, 26))).isEqualTo(17);
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_monthly " +
+                "where document_id = 1 and month_start = ?", Long.class, LocalDate.of(2026, 1, 1))).isEqualTo(12);
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_monthly " +
+                "where document_id = 1 and month_start = ?", Long.class, LocalDate.of(2026, 2, 1))).isEqualTo(5);
+    }
+
+    @Test
+    void top_ShouldMatchSumOverDailyRows() {
+        Random random = new Random(7);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        Map<Key, Integer> counts = new HashMap<>();
+        for (int day = 0; day < 430; day++) {
+            for (int doc = 1; doc <= 25; doc++) {
+                if (random.nextInt(3) == 0) {
+                    counts.put(new Key(doc, start.plusDays(day)), 1 + random.nextInt(doc * 4));
+                }
+            }
+        }
+        batchRepository.upsert(counts);
+
+        for (int i = 0; i < 20; i++) {
+            LocalDate from = start.plusDays(random.nextInt(430));
+            LocalDate to = from.plusDays(random.nextInt(400));
+            assertThat(rankingRepository.top(from, to, 10))
+                    .as("%s bis %s", from, to)
+                    .isEqualTo(naiveTop(from, to, 10));
+        }
+    }
+
+    @Test
+    void backfillRollups_ShouldBuildRollupsFromExistingDailyRowsOnce() {
+        jdbc.update("insert into document_access_stats (document_id, access_date, access_count) values (1, ?, 4), (1, ?, 6), (2, ?, 1)",
+                LocalDate.of(2025, 12, 31), LocalDate.of(2026, 1, 2), LocalDate.of(2026, 1, 2));
+
+        assertThat(batchRepository.backfillRollups()).isPositive();
+        assertThat(batchRepository.backfillRollups()).isZero();
+
+        // 31.12. und 02.01. liegen in derselben ISO-Woche ab 29.12.
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_weekly " +
+                "where document_id = 1 and week_start = ?", Long.class, LocalDate.of(2025, 12, 29))).isEqualTo(10);
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_monthly " +
+                "where document_id = 1 and month_start = ?", Long.class, LocalDate.of(2026, 1, 1))).isEqualTo(6);
+        assertThat(rankingRepository.top(LocalDate.of(2025, 12, 1), LocalDate.of(2026, 1, 31), 5))
+                .containsExactly(new Ranked(1, 10), new Ranked(2, 1));
+    }
+
+    @Test
+    void backfillRollups_WhenWriterAlreadyRolledUp_ShouldStillBackfillHistoryWithoutDoubleCounting() {
+        jdbc.update("insert into document_access_stats (document_id, access_date, access_count) values (1, ?, 4)",
+                LocalDate.of(2025, 11, 5));
+        // Zähler-Flush vor dem Aufbau: erste Summenzeilen existieren, die Historie fehlt noch
+        batchRepository.upsert(Map.of(new Key(1, LocalDate.of(2026, 1, 2)), 3));
+
+        assertThat(batchRepository.backfillRollups()).isPositive();
+        assertThat(batchRepository.backfillRollups()).isZero();
+
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_monthly " +
+                "where document_id = 1 and month_start = ?", Long.class, LocalDate.of(2025, 11, 1))).isEqualTo(4);
+        assertThat(jdbc.queryForObject("select access_count from document_access_stats_monthly " +
+                "where document_id = 1 and month_start = ?", Long.class, LocalDate.of(2026, 1, 1))).isEqualTo(3);
+        assertThat(rankingRepository.top(LocalDate.of(2025, 10, 1), LocalDate.of(2026, 1, 31), 5))
+                .containsExactly(new Ranked(1, 7));
+    }
+}
@@ -4,6 +4,7 @@ import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
 import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndexRepository;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.elasticsearch.DataElasticsearchTest;
 
@@ -121,8 +122,7 @@ class DocumentIndexRepositoryTest {
         doc2.setTitle("Java Basics");
         repo.save(doc2);
 
-        // FIX: Neue Methode aufrufen
-        List<DocumentIndex> results = repo.search("Spring Boot");
+        List<DocumentIndex> results = repo.search("Spring Boot", PageRequest.of(0, 20));
         
         assertThat(results).extracting(DocumentIndex::getId).contains(10);
         assertThat(results).extracting(DocumentIndex::getId).doesNotContain(11);
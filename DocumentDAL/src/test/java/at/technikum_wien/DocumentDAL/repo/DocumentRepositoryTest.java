@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -182,4 +183,80 @@ class DocumentRepositoryTest {
     void existsById_ShouldReturnFalseForNonExistingDocument() {
         assertFalse(documentRepository.existsById(99999));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findFirstPage_ShouldOrderByUploadDateAndIdDescending() {
+        Document older = new Document();
+        older.setTitle("Older");
+        older.setContent("heavy content");
+        older.setUploadDate(LocalDateTime.now().minusDays(1));
+        entityManager.persistAndFlush(older);
+
+        List<Document> page = documentRepository.findFirstPage(Limit.of(3));
+
+        assertEquals(3, page.size());
+        assertEquals("Older", page.get(2).getTitle());
+        // Projektion lädt keine text-Spalten
+        assertNull(page.get(2).getContent());
+        assertNull(page.get(2).getSummary());
+    }
+
+    @Test
+    void findPageAfter_ShouldContinueAfterCursor() {
+        LocalDateTime sameDate = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            Document d = new Document();
+            d.setTitle("Same " + i);
+            d.setUploadDate(sameDate);
+            entityManager.persistAndFlush(d);
+        }
+
+        List<Document> first = documentRepository.findPageAfter(sameDate.plusSeconds(1), Integer.MAX_VALUE, Limit.of(2));
+        assertEquals(2, first.size());
+        Document last = first.get(1);
+
+        List<Document> second = documentRepository.findPageAfter(last.getUploadDate(), last.getId(), Limit.of(2));
+        assertEquals(1, second.size());
+        assertEquals("Same 0", second.get(0).getTitle());
+    }
+
+    @Test
+    void findUndatedPageAfter_ShouldListDocumentsWithoutUploadDateByIdDescending() {
+        Document[] undated = new Document[3];
+        for (int i = 0; i < 3; i++) {
+            undated[i] = new Document();
+            undated[i].setTitle("Undated " + i);
+            entityManager.persistAndFlush(undated[i]);
+        }
+
+        // werden von der datierten Liste nicht erfasst ...
+        assertTrue(documentRepository.findFirstPage(Limit.of(100)).stream().noneMatch(d -> d.getUploadDate() == null));
+        // ... sondern von der Anschlussabfrage, per id-Cursor weiterblätterbar
+        List<Document> first = documentRepository.findUndatedPageAfter(Integer.MAX_VALUE, Limit.of(2));
+        assertEquals(List.of("Undated 2", "Undated 1"), first.stream().map(Document::getTitle).toList());
+        List<Document> second = documentRepository.findUndatedPageAfter(first.get(1).getId(), Limit.of(2));
+        assertEquals(List.of("Undated 0"), second.stream().map(Document::getTitle).toList());
+    }
+
+    @Test
+    void findContentsByIdIn_ShouldReturnOnlyRequestedIds() {
+        List<Object[]> rows = documentRepository.findContentsByIdIn(List.of(testDocument1.getId()));
+
+        assertEquals(1, rows.size());
+        assertEquals(testDocument1.getId(), rows.get(0)[0]);
+        assertEquals("This document covers all aspects of Spring Boot development", rows.get(0)[1]);
+    }
+
+    @Test
+    void updatePreviewKey_ShouldOnlyChangePreviewKey() {
+        Integer id = testDocument1.getId();
+
+        int updated = documentRepository.updatePreviewKey(id, id + "/abc");
+        entityManager.clear();
+
+        assertEquals(1, updated);
+        Document reloaded = documentRepository.findById(id).orElseThrow();
+        assertEquals(id + "/abc", reloaded.getPreviewKey());
+        assertEquals(testDocument1.getTitle(), reloaded.getTitle());
+    }
+}
@@ -0,0 +1,97 @@
+package at.technikum_wien.DocumentDAL.repo;
+
+import at.technikum_wien.DocumentDAL.model.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OutboxEventRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    private OutboxEvent published;
+    private OutboxEvent pending;
+    private OutboxEvent failed;
+
+    @BeforeEach
+    void setUp() {
+        published = event(1);
+        published.setPublishedAt(LocalDateTime.now().minusDays(10));
+        pending = event(2);
+        failed = event(3);
+        failed.setAttempts(20);
+        failed.setFailedAt(LocalDateTime.now());
+        entityManager.persist(published);
+        entityManager.persist(pending);
+        entityManager.persist(failed);
+        entityManager.flush();
+    }
+
+    @Test
+    void lockPending_ShouldReturnOnlyUnpublishedAndNotFailed() {
+        List<OutboxEvent> result = outboxRepository.lockPending(LocalDateTime.now(), Limit.of(10));
+
+        assertEquals(1, result.size());
+        assertEquals(pending.getId(), result.get(0).getId());
+        assertEquals(1, outboxRepository.countByPublishedAtIsNullAndFailedAtIsNull());
+        assertEquals(1, outboxRepository.countByFailedAtIsNotNull());
+    }
+
+    @Test
+    void lockPending_ShouldSkipEventsInBackoff() {
+        pending.setAttempts(3);
+        pending.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        entityManager.flush();
+
+        assertTrue(outboxRepository.lockPending(LocalDateTime.now(), Limit.of(10)).isEmpty());
+        assertEquals(1, outboxRepository.lockPending(LocalDateTime.now().plusMinutes(2), Limit.of(10)).size());
+    }
+
+    @Test
+    void resetForAggregate_ShouldRequeuePublishedEvent() {
+        int n = outboxRepository.resetForAggregate(1);
+        entityManager.clear();
+
+        assertEquals(1, n);
+        assertEquals(2, outboxRepository.lockPending(LocalDateTime.now(), Limit.of(10)).size());
+    }
+
+    @Test
+    void resetSince_ShouldAlsoResetAttempts() {
+        int n = outboxRepository.resetSince(LocalDateTime.now().minusHours(1));
+        entityManager.clear();
+
+        assertEquals(3, n);
+        assertEquals(3, outboxRepository.lockPending(LocalDateTime.now(), Limit.of(10)).size());
+    }
+
+    @Test
+    void deletePublishedBefore_ShouldKeepPendingEvents() {
+        int n = outboxRepository.deletePublishedBefore(LocalDateTime.now().minusDays(7));
+
+        assertEquals(1, n);
+        assertEquals(2, outboxRepository.count());
+    }
+
+    private static OutboxEvent event(int documentId) {
+        return new OutboxEvent(documentId, "at.technikum_wien.DocumentDAL.messaging.events.DocumentUploadedEvent",
+                "documents.exchange", "document.uploaded", "{\"id\":" + documentId + "}");
+    }
+}
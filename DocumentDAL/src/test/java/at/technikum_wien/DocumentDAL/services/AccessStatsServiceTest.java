@@ -0,0 +1,179 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.model.DocumentAccessStat;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessRankingRepository.Ranked;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatBatchRepository.Key;
+import at.technikum_wien.DocumentDAL.repo.DocumentAccessStatRepository;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AccessStatsServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private final DocumentAccessStatRepository statRepository = mock(DocumentAccessStatRepository.class);
+    private final DocumentAccessStatBatchRepository batchRepository = mock(DocumentAccessStatBatchRepository.class);
+    private final DocumentAccessRankingRepository rankingRepository = mock(DocumentAccessRankingRepository.class);
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+    private final Clock clock = mock(Clock.class);
+
+    private AccessStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        today(TODAY);
+        // Refresh synchron im Aufrufer-Thread, damit die Tests deterministisch sind
+        service = new AccessStatsService(statRepository, batchRepository, rankingRepository, documentRepository, clock,
+                Runnable::run, 60, List.of(90), 100);
+    }
+
+    private void today(LocalDate date) {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(date.atTime(12, 0).toInstant(ZoneOffset.UTC));
+    }
+
+    @Test
+    void flush_ShouldWriteSummedCountsOnce() {
+        service.record(1);
+        service.record(1);
+        service.record(2);
+
+        service.flush();
+        service.flush();
+
+        verify(batchRepository).upsert(Map.of(new Key(1, TODAY), 2, new Key(2, TODAY), 1));
+        verifyNoMoreInteractions(batchRepository);
+    }
+
+    @Test
+    void flush_WhenUpsertFails_ShouldKeepCountsForNextFlush() {
+        when(batchRepository.upsert(any())).thenThrow(new IllegalStateException("db down")).thenReturn(1);
+        service.record(1);
+
+        service.flush();
+        service.record(1);
+        service.flush();
+
+        ArgumentCaptor<Map<Key, Integer>> captor = ArgumentCaptor.captor();
+        verify(batchRepository, times(2)).upsert(captor.capture());
+        assertThat(captor.getAllValues()).containsExactly(Map.of(new Key(1, TODAY), 1), Map.of(new Key(1, TODAY), 2));
+    }
+
+    @Test
+    void flush_AfterMidnight_ShouldWriteYesterdayAndStartNewDay() {
+        service.record(1);
+        today(TODAY.plusDays(1));
+        service.record(1);
+
+        service.flush();
+
+        verify(batchRepository).upsert(Map.of(new Key(1, TODAY), 1, new Key(1, TODAY.plusDays(1)), 1));
+        assertThat(service.stats(1, 2).days()).extracting(DocumentAccessStats.Day::date).isEmpty();
+    }
+
+    @Test
+    void stats_ShouldMergeStoredAndPendingCounts() {
+        when(statRepository.findByDocumentIdAndAccessDateGreaterThanEqualOrderByAccessDateAsc(1, TODAY.minusDays(6)))
+                .thenReturn(List.of(new DocumentAccessStat(1, TODAY.minusDays(2), 40),
+                        new DocumentAccessStat(1, TODAY, 10)));
+        service.record(1);
+        service.record(1);
+        service.record(2);
+
+        DocumentAccessStats stats = service.stats(1, 7);
+
+        assertThat(stats.from()).isEqualTo(TODAY.minusDays(6));
+        assertThat(stats.total()).isEqualTo(52);
+        assertThat(stats.days()).containsExactly(
+                new DocumentAccessStats.Day(TODAY.minusDays(2), 40),
+                new DocumentAccessStats.Day(TODAY, 12));
+    }
+
+    @Test
+    void top_ShouldRankOverRequestedDaysAndSkipDeletedDocuments() {
+        when(rankingRepository.top(TODAY.minusDays(89), TODAY, 3))
+                .thenReturn(List.of(new Ranked(7, 900), new Ranked(3, 500), new Ranked(5, 20)));
+        when(documentRepository.findTitlesByIdIn(List.of(7, 3, 5)))
+                .thenReturn(List.of(new Object[] {3, "Rechnung"}, new Object[] {7, "Vertrag"}));
+
+        assertThat(service.top(90, 3)).containsExactly(
+                new PopularDocument(7, "Vertrag", 900),
+                new PopularDocument(3, "Rechnung", 500));
+        // innerhalb des Refresh-Intervalls aus dem Cache
+        assertThat(service.top(90, 3)).hasSize(2);
+        verify(rankingRepository, times(1)).top(any(), any(), anyInt());
+    }
+
+    @Test
+    void top_AfterMidnight_ShouldServeCachedListAndRefreshWithNewDate() {
+        when(rankingRepository.top(any(), any(), anyInt())).thenReturn(List.of());
+        service.top(90, 100);
+        today(TODAY.plusDays(1));
+
+        // kein neuer Schlüssel für den neuen Tag -> keine synchrone Abfrage
+        service.top(90, 100);
+        verify(rankingRepository, times(1)).top(any(), any(), anyInt());
+
+        service.warmTop();
+        verify(rankingRepository).top(TODAY.plusDays(1).minusDays(89), TODAY.plusDays(1), 100);
+    }
+
+    @Test
+    void warmTop_ShouldPreloadConfiguredQueries() {
+        when(rankingRepository.top(any(), any(), anyInt())).thenReturn(List.of(new Ranked(7, 900)));
+        when(documentRepository.findTitlesByIdIn(List.of(7))).thenReturn(List.<Object[]>of(new Object[] {7, "Vertrag"}));
+
+        service.warmTop();
+
+        assertThat(service.top(90, 100)).containsExactly(new PopularDocument(7, "Vertrag", 900));
+        verify(rankingRepository, times(1)).top(TODAY.minusDays(89), TODAY, 100);
+    }
+
+    @Test
+    void record_WhileFlushing_ShouldNotLoseAccesses() throws Exception {
+        AtomicLong written = new AtomicLong();
+        when(batchRepository.upsert(any())).thenAnswer(inv -> {
+            Map<Key, Integer> batch = inv.getArgument(0);
+            batch.values().forEach(written::addAndGet);
+            return batch.size();
+        });
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    service.record(i % 10);
+                }
+                done.countDown();
+            });
+        }
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            service.flush();
+        }
+        pool.shutdown();
+        service.flush();
+
+        assertThat(written.get()).isEqualTo((long) threads * perThread);
+    }
+}
@@ -0,0 +1,85 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.model.Document;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DocumentCacheTest {
+
+    private final DocumentRepository repo = mock(DocumentRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private DocumentCache cache(long documentMaxBytes) {
+        return new DocumentCache(repo, registry, true, documentMaxBytes, 600, 1 << 20);
+    }
+
+    private static Document doc(int id, String content) {
+        Document d = new Document();
+        d.setId(id);
+        d.setTitle("Dokument " + id);
+        d.setContent(content);
+        return d;
+    }
+
+    @Test
+    void find_ShouldLoadOnceUntilEvicted() {
+        DocumentCache cache = cache(1 << 20);
+        when(repo.findById(1)).thenReturn(Optional.of(doc(1, "alt")), Optional.of(doc(1, "neu")));
+
+        assertThat(cache.find(1)).get().extracting(Document::getContent).isEqualTo("alt");
+        assertThat(cache.find(1)).get().extracting(Document::getContent).isEqualTo("alt");
+        cache.evict(1);
+        assertThat(cache.find(1)).get().extracting(Document::getContent).isEqualTo("neu");
+
+        verify(repo, times(2)).findById(1);
+        assertThat(registry.get("cache.gets").tags("cache", "documents", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "documents", "result", "miss").functionCounter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void find_WhenMissing_ShouldNotCacheAbsence() {
+        DocumentCache cache = cache(1 << 20);
+        when(repo.findById(2)).thenReturn(Optional.empty(), Optional.of(doc(2, "da")));
+
+        assertThat(cache.find(2)).isEmpty();
+        assertThat(cache.find(2)).isPresent();
+    }
+
+    @Test
+    void find_ShouldBoundByEstimatedBytesNotEntries() {
+        // Platz für ~4 Dokumente mit 50.000 Zeichen OCR-Text
+        DocumentCache cache = cache(4 * DocumentCache.weight(doc(0, "x".repeat(50_000))));
+        for (int id = 0; id < 20; id++) {
+            int i = id;
+            when(repo.findById(i)).thenAnswer(inv -> Optional.of(doc(i, "x".repeat(50_000))));
+            cache.find(i);
+        }
+        cache.cleanUp();
+
+        assertThat(registry.get("cache.evictions").tag("cache", "documents").functionCounter().count())
+                .isGreaterThanOrEqualTo(16);
+        assertThat(registry.get("cache.size").tag("cache", "documents").gauge().value()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void preview_ShouldLoadOnceAndBypassWhenDisabled() throws Exception {
+        DocumentCache cache = cache(1 << 20);
+        int[] loads = {0};
+        cache.preview("7/v/card.jpg", () -> { loads[0]++; return new byte[]{1}; });
+        cache.preview("7/v/card.jpg", () -> { loads[0]++; return new byte[]{1}; });
+        assertThat(loads[0]).isEqualTo(1);
+
+        DocumentCache disabled = new DocumentCache(repo, new SimpleMeterRegistry(), false, 1 << 20, 600, 1 << 20);
+        disabled.preview("7/v/card.jpg", () -> { loads[0]++; return new byte[]{1}; });
+        disabled.preview("7/v/card.jpg", () -> { loads[0]++; return new byte[]{1}; });
+        assertThat(loads[0]).isEqualTo(3);
+    }
+}
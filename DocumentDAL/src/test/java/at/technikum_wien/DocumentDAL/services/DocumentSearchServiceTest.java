@@ -0,0 +1,77 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.elasticsearch.DocumentIndex;
+import at.technikum_wien.DocumentDAL.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DocumentSearchServiceTest {
+
+    private ElasticsearchOperations operations;
+    private DocumentSearchService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        operations = mock(ElasticsearchOperations.class);
+        service = new DocumentSearchService(operations, new ObjectMapper());
+
+        SearchHits<DocumentIndex> empty = mock(SearchHits.class);
+        when(empty.getSearchHits()).thenReturn(List.of());
+        when(empty.getTotalHits()).thenReturn(10_000L);
+        when(empty.getTotalHitsRelation()).thenReturn(TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO);
+        when(operations.search(any(NativeQuery.class), eq(DocumentIndex.class))).thenReturn(empty);
+    }
+
+    @Test
+    void search_ShouldExcludeContentAndCapTotalHits() {
+        DocumentSearchPage page = service.search("invoice", 500, null);
+
+        ArgumentCaptor<NativeQuery> captor = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(operations).search(captor.capture(), eq(DocumentIndex.class));
+        NativeQuery query = captor.getValue();
+
+        assertThat(query.getSourceFilter().getExcludes()).containsExactly("content");
+        assertThat(query.getTrackTotalHitsUpTo()).isEqualTo(10_000);
+        assertThat(query.getMaxResults()).isEqualTo(DocumentSearchService.MAX_SIZE);
+        assertThat(query.getHighlightQuery()).isPresent();
+        assertThat(query.getSortOptions()).hasSize(2);
+
+        assertThat(page.totalIsLowerBound()).isTrue();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void search_WithCursor_ShouldPassSearchAfterValues() {
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("[1.5,42]".getBytes(StandardCharsets.UTF_8));
+
+        service.search("invoice", 20, cursor);
+
+        ArgumentCaptor<NativeQuery> captor = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(operations).search(captor.capture(), eq(DocumentIndex.class));
+        assertThat(captor.getValue().getSearchAfter()).containsExactly(1.5, 42);
+    }
+
+    @Test
+    void search_WithInvalidCursor_ShouldThrow() {
+        assertThatThrownBy(() -> service.search("invoice", 20, "not-a-cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+}
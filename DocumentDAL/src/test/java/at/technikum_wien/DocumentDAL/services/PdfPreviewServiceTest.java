@@ -0,0 +1,163 @@
+package at.technikum_wien.DocumentDAL.services;
+
+import at.technikum_wien.DocumentDAL.model.Document;
+import at.technikum_wien.DocumentDAL.repo.DocumentRepository;
+import at.technikum_wien.DocumentDAL.storage.MinioFileStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PdfPreviewServiceTest {
+
+    private final MinioFileStorage storage = mock(MinioFileStorage.class);
+    private final DocumentRepository repo = mock(DocumentRepository.class);
+    private DocumentCache cache;
+    private PdfPreviewService service;
+    private Document doc;
+
+    @BeforeEach
+    void setUp() {
+        when(storage.getPreviewBucket()).thenReturn("previews");
+        cache = new DocumentCache(repo, new SimpleMeterRegistry(), true, 1 << 20, 600, 1 << 20);
+        service = new PdfPreviewService(storage, repo, cache, 1, 10);
+        doc = new Document();
+        doc.setId(7);
+        doc.setMimeType("application/pdf");
+        doc.setStorageBucket("documents");
+        doc.setStorageKey("uuid-a.pdf");
+        doc.setContentHash("ff".repeat(32));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void getPreview_WhenCurrentVersionRendered_ShouldNotLoadPdf() throws Exception {
+        doc.setPreviewKey(PdfPreviewService.previewKey(doc));
+        when(storage.get("previews", "7/" + doc.getContentHash() + "/card.jpg")).thenReturn(new byte[]{9});
+
+        assertThat(service.getPreview(doc, PreviewSize.CARD)).containsExactly(9);
+        assertThat(service.getPreview(doc, PreviewSize.CARD)).containsExactly(9);
+        verify(storage, never()).openStream(any(), any(), anyLong(), any());
+        // zweiter Abruf aus dem In-Process-Cache
+        verify(storage, times(1)).get(any(), any());
+    }
+
+    @Test
+    void getPreview_WhenMissingOrStale_ShouldRenderAllSizesOnce() throws Exception {
+        doc.setPreviewKey("uuid-a.png"); // alte PNG-Preview
+        byte[] pdf = samplePdf();
+        when(storage.openStream("documents", "uuid-a.pdf", 0, null)).thenAnswer(inv -> new ByteArrayInputStream(pdf));
+
+        byte[] thumb = service.getPreview(doc, PreviewSize.THUMBNAIL);
+
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(thumb));
+        assertThat(img.getWidth()).isEqualTo(PreviewSize.THUMBNAIL.width());
+        String key = "7/" + doc.getContentHash();
+        for (PreviewSize size : PreviewSize.values()) {
+            verify(storage).put(eq("previews"), eq(key + "/" + size.key() + ".jpg"), any(byte[].class), eq("image/jpeg"));
+        }
+        verify(repo).updatePreviewKey(7, key);
+        // übergebenes (ggf. gecachtes) Dokument wird nicht verändert
+        assertThat(doc.getPreviewKey()).isEqualTo("uuid-a.png");
+    }
+
+    @Test
+    void render_ShouldCacheJpegsAndEvictStaleMetadata() throws Exception {
+        Document cached = new Document();
+        cached.setId(7);
+        when(repo.findById(7)).thenReturn(java.util.Optional.of(cached));
+        cache.find(7);
+        byte[] pdf = samplePdf();
+        when(storage.openStream("documents", "uuid-a.pdf", 0, null)).thenAnswer(inv -> new ByteArrayInputStream(pdf));
+
+        service.getPreview(doc, PreviewSize.FULL);
+        byte[] card = service.getPreview(doc, PreviewSize.CARD);
+
+        assertThat(ImageIO.read(new ByteArrayInputStream(card)).getWidth()).isEqualTo(PreviewSize.CARD.width());
+        verify(storage, never()).get(any(), any());
+        // Metadaten mit altem previewKey wurden verworfen und werden neu geladen
+        cache.find(7);
+        verify(repo, times(2)).findById(7);
+    }
+
+    @Test
+    void renderFirstPage_ShouldProduceSmallJpegsPerSize() throws Exception {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("preview-test", ".pdf");
+        try {
+            java.nio.file.Files.write(file, samplePdf());
+
+            Map<PreviewSize, byte[]> images = service.renderFirstPage(file);
+
+            assertThat(images).containsOnlyKeys(PreviewSize.values());
+            for (PreviewSize size : PreviewSize.values()) {
+                BufferedImage img = ImageIO.read(new ByteArrayInputStream(images.get(size)));
+                assertThat(img.getWidth()).isEqualTo(size.width());
+            }
+            assertThat(images.get(PreviewSize.THUMBNAIL).length).isLessThan(images.get(PreviewSize.FULL).length);
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void prerenderAsync_WhenAlreadyCurrent_ShouldDoNothing() {
+        doc.setPreviewKey(PdfPreviewService.previewKey(doc));
+
+        service.prerenderAsync(doc);
+
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void deleteStalePreviews_AfterFileReplaced_ShouldDeleteOnlyOldVersion() throws Exception {
+        doc.setPreviewKey("7/" + "aa".repeat(32)); // Previews der vorherigen Datei
+
+        service.deleteStalePreviews(doc);
+
+        for (PreviewSize size : PreviewSize.values()) {
+            verify(storage).delete("previews", "7/" + "aa".repeat(32) + "/" + size.key() + ".jpg");
+        }
+
+        // gleiche Bytes erneut hochgeladen -> Version unverändert, nichts löschen
+        clearInvocations(storage);
+        doc.setPreviewKey(PdfPreviewService.previewKey(doc));
+        service.deleteStalePreviews(doc);
+        verify(storage, never()).delete(any(), any());
+    }
+
+    private static byte[] samplePdf() throws Exception {
+        try (PDDocument pdf = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            pdf.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(pdf, page)) {
+                cs.beginText();
+                cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 24);
+                cs.newLineAtOffset(72, 700);
+                cs.showText("Rechnung 2024");
+                cs.endText();
+            }
+            pdf.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package at.technikum_wien.DocumentDAL.storage;
+
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MinioFileStorageTest {
+
+    private MinioClient client;
+    private MinioFileStorage storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(MinioClient.class);
+        when(client.bucketExists(any())).thenReturn(true);
+        storage = new MinioFileStorage(client, "documents", "previews", 0);
+    }
+
+    @Test
+    void putStream_ShouldComputeSizeAndSha256WhileStreaming() throws Exception {
+        byte[] data = "Streaming PDF content".getBytes(StandardCharsets.UTF_8);
+        ObjectWriteResponse response = mock(ObjectWriteResponse.class);
+        when(response.etag()).thenReturn("etag-1");
+        // MinIO liest den Stream beim Upload -> hier simuliert
+        when(client.putObject(any(PutObjectArgs.class))).thenAnswer(inv -> {
+            PutObjectArgs args = inv.getArgument(0);
+            args.stream().readAllBytes();
+            return response;
+        });
+
+        StoredObject stored = storage.put("documents", "key.pdf", new ByteArrayInputStream(data), data.length, "application/pdf");
+
+        String expectedSha = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        assertThat(stored.size()).isEqualTo(data.length);
+        assertThat(stored.sha256()).isEqualTo(expectedSha);
+        assertThat(stored.etag()).isEqualTo("etag-1");
+        assertThat(stored.key()).isEqualTo("key.pdf");
+    }
+
+    @Test
+    void putStream_ShouldUseBoundedPartSize() throws Exception {
+        when(client.putObject(any(PutObjectArgs.class))).thenReturn(mock(ObjectWriteResponse.class));
+
+        storage.put(null, "big.pdf", new ByteArrayInputStream(new byte[0]), -1, null);
+
+        ArgumentCaptor<PutObjectArgs> captor = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(client).putObject(captor.capture());
+        assertThat(captor.getValue().partSize()).isEqualTo(PutObjectArgs.MIN_MULTIPART_SIZE);
+        assertThat(captor.getValue().bucket()).isEqualTo("documents");
+        assertThat(captor.getValue().contentType()).isEqualTo("application/octet-stream");
+    }
+}
@@ -317,7 +317,9 @@ async function loadPdfPreview(doc, element) {
     if (!box) return;
     box.innerHTML = `<div class="animate-pulse text-[10px]">Loading preview...</div>`;
     try {
-        const res = await fetch(`/api/documents/${doc.id}/preview`);
+        // Mit Inhalts-Hash versionierte URL: der Browser darf das Bild unbegrenzt cachen
+        const version = doc.contentHash ? `&v=${encodeURIComponent(doc.contentHash)}` : '';
+        const res = await fetch(`/api/documents/${doc.id}/preview?size=card${version}`);
         if (!res.ok) throw new Error('Preview failed: ' + res.status);
         const blob = await res.blob();
         const url = URL.createObjectURL(blob);
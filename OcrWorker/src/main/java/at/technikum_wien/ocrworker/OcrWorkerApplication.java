@@ -2,8 +2,10 @@ package at.technikum_wien.ocrworker;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class OcrWorkerApplication {
 
     public static void main(String[] args) {
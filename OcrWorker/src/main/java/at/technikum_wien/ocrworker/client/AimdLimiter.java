@@ -0,0 +1,61 @@
+package at.technikum_wien.ocrworker.client;
+
+/**
+ * Adaptive Nebenläufigkeit nach AIMD: jede schnelle Antwort erhöht das Limit um 1/limit
+ * (≈ +1 pro Runde), ein 429 halbiert es, eine zu langsame Antwort senkt es um 10 %.
+ * Pro "Runde" wird nur einmal gesenkt: Antworten auf Anfragen, die vor der letzten Senkung
+ * gestartet wurden, lösen keine weitere Senkung aus.
+ */
+final class AimdLimiter {
+
+    enum Outcome { SUCCESS, SLOW, THROTTLED, ERROR }
+
+    private final int min;
+    private final int max;
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    AimdLimiter(int initial, int min, int max) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        // nanoTime hat keinen festen Nullpunkt (kann negativ sein) -> nie mit 0 vergleichen
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /** @return Startzeitpunkt der Anfrage, wird bei {@link #release} wieder übergeben */
+    synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    synchronized void release(long startedAt, Outcome outcome) {
+        inFlight--;
+        switch (outcome) {
+            case SUCCESS -> limit = Math.min(max, limit + 1.0 / limit);
+            case THROTTLED -> decrease(startedAt, 0.5);
+            case SLOW -> decrease(startedAt, 0.9);
+            case ERROR -> { }
+        }
+        notifyAll();
+    }
+
+    private void decrease(long startedAt, double factor) {
+        // Differenz statt direktem Vergleich: bleibt auch bei Überlauf von nanoTime korrekt
+        if (startedAt - lastDecrease < 0) return;
+        limit = Math.max(min, limit * factor);
+        lastDecrease = System.nanoTime();
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -5,52 +5,75 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.Setter;
 import okhttp3.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class BackendClient {
 
-    private final OkHttpClient http = new OkHttpClient();
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final OkHttpClient http;
     private final ObjectMapper om;
     private final String baseUrl;
 
+    public BackendClient(ObjectMapper om, String baseUrl) {
+        this(om, baseUrl, 16, 2_000, 10_000, 30_000, false);
+    }
+
+    /**
+     * Ein gemeinsamer Connection-Pool für alle Listener-Threads. Die Call-Timeouts begrenzen, wie lange
+     * ein hängendes Backend einen OCR-Consumer blockieren kann (vorher: unbegrenzt).
+     * Mit BACKEND_H2C=true läuft alles über eine HTTP/2-Verbindung ohne TLS (Backend: server.http2.enabled).
+     */
+    @Autowired
     public BackendClient(ObjectMapper om,
-                         @Value("${BACKEND_BASE_URL:http://backend:8080/api}") String baseUrl) {
+                         @Value("${BACKEND_BASE_URL:http://backend:8080/api}") String baseUrl,
+                         @Value("${BACKEND_POOL_MAX_IDLE:16}") int maxIdleConnections,
+                         @Value("${BACKEND_CONNECT_TIMEOUT_MS:2000}") long connectTimeoutMillis,
+                         @Value("${BACKEND_READ_TIMEOUT_MS:10000}") long readTimeoutMillis,
+                         @Value("${BACKEND_CALL_TIMEOUT_MS:30000}") long callTimeoutMillis,
+                         @Value("${BACKEND_H2C:false}") boolean h2c) {
         this.om = om;
         this.baseUrl = baseUrl;
-    }
-
-    public DocumentDto getDocument(int id) throws Exception {
-        Request req = new Request.Builder().url(baseUrl + "/documents/" + id).get().build();
-        try (Response res = http.newCall(req).execute()) {
-            if (!res.isSuccessful()) throw new IllegalStateException("GET " + res.code());
-            return om.readValue(res.body().bytes(), DocumentDto.class);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, 5, TimeUnit.MINUTES))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .readTimeout(Duration.ofMillis(readTimeoutMillis))
+                .writeTimeout(Duration.ofMillis(readTimeoutMillis))
+                .callTimeout(Duration.ofMillis(callTimeoutMillis));
+        if (h2c) {
+            builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
         }
+        this.http = builder.build();
     }
 
     public void updateDocument(DocumentDto doc) throws Exception {
         byte[] body = om.writeValueAsBytes(doc);
         Request req = new Request.Builder()
                 .url(baseUrl + "/documents/" + doc.id)
-                .put(RequestBody.create(body, okhttp3.MediaType.parse("application/json")))
+                .put(RequestBody.create(body, JSON))
                 .build();
         try (Response res = http.newCall(req).execute()) {
             if (!res.isSuccessful()) throw new IllegalStateException("PUT " + res.code() + " " + res.message());
         }
     }
 
-    // PATCH nur content
-    public void updateContent(int id, String content) throws Exception {
+    // PUT OCR-Ergebnis, das Backend antwortet mit 204 (kein Echo des Textes)
+    public void submitOcrResult(int id, String content) throws Exception {
         byte[] body = om.writeValueAsBytes(Map.of("content", content));
         Request req = new Request.Builder()
-                .url(baseUrl + "/documents/" + id)
-                .patch(RequestBody.create(body, okhttp3.MediaType.parse("application/json")))
+                .url(baseUrl + "/documents/" + id + "/ocr-result")
+                .put(RequestBody.create(body, JSON))
                 .build();
         try (Response res = http.newCall(req).execute()) {
-            if (!res.isSuccessful()) throw new IllegalStateException("PATCH " + res.code() + " " + res.message());
+            if (!res.isSuccessful()) throw new IllegalStateException("PUT ocr-result " + res.code() + " " + res.message());
         }
     }
 
@@ -59,13 +82,31 @@ public class BackendClient {
         byte[] body = om.writeValueAsBytes(Map.of("summary", summary));
         Request req = new Request.Builder()
                 .url(baseUrl + "/documents/" + id + "/summary")
-                .put(RequestBody.create(body, okhttp3.MediaType.parse("application/json")))
+                .put(RequestBody.create(body, JSON))
                 .build();
         try (Response res = http.newCall(req).execute()) {
             if (!res.isSuccessful()) throw new IllegalStateException("PUT summary " + res.code() + " " + res.message());
         }
     }
 
+    // POST viele content-/summary-Updates auf einmal; Ergebnis pro Eintrag (Status wie beim Einzel-Endpunkt)
+    public List<BatchResult> batchUpdate(List<BatchItem> items) throws Exception {
+        Request req = new Request.Builder()
+                .url(baseUrl + "/documents/batch")
+                .post(RequestBody.create(om.writeValueAsBytes(items), JSON))
+                .build();
+        try (Response res = http.newCall(req).execute()) {
+            if (!res.isSuccessful()) throw new IllegalStateException("POST batch " + res.code() + " " + res.message());
+            return List.of(om.readValue(res.body().bytes(), BatchResult[].class));
+        }
+    }
+
+    /** null-Felder lässt das Backend unverändert */
+    public record BatchItem(int id, String content, String summary) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BatchResult(int id, int status, String message) {}
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class DocumentDto {
         public Integer id;
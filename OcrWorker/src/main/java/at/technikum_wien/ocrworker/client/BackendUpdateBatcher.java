@@ -0,0 +1,114 @@
+package at.technikum_wien.ocrworker.client;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bündelt Summary-Updates vieler Listener-Threads zu POST /documents/batch.
+ * Kein festes Warte-Fenster: ein Flusher-Thread schickt jeweils alles, was sich während des vorigen
+ * Requests angesammelt hat (max. {@code BACKEND_BATCH_MAX_ITEMS}). Bei wenig Last geht also jedes Update
+ * sofort einzeln raus, beim Abarbeiten eines Rückstaus wachsen die Batches von selbst.
+ * Der Aufrufer blockiert bis zum Ergebnis seines Eintrags – Fehler landen wie bisher beim Listener (DLQ).
+ * Einziger Aufrufer ist der GenAI-Listener, daher nur mit {@code GENAI_ENABLED=true} (sonst kein Flusher-Thread).
+ */
+@Component
+@ConditionalOnProperty(name = "GENAI_ENABLED", havingValue = "true")
+public class BackendUpdateBatcher {
+    private static final Logger log = LoggerFactory.getLogger(BackendUpdateBatcher.class);
+
+    private final BackendClient backend;
+    private final boolean enabled;
+    private final int maxItems;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private record Pending(BackendClient.BatchItem item, CompletableFuture<Void> done) {}
+
+    public BackendUpdateBatcher(BackendClient backend,
+                                @Value("${BACKEND_BATCH_ENABLED:true}") boolean enabled,
+                                @Value("${BACKEND_BATCH_MAX_ITEMS:100}") int maxItems) {
+        this.backend = backend;
+        this.enabled = enabled;
+        this.maxItems = maxItems;
+        this.flusher = enabled ? Thread.ofPlatform().daemon().name("backend-batch").start(this::run) : null;
+    }
+
+    public void updateSummary(int id, String summary) throws Exception {
+        if (!enabled) {
+            backend.updateSummary(id, summary);
+            return;
+        }
+        if (!running) throw new IllegalStateException("Backend batcher stopped");
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.put(new Pending(new BackendClient.BatchItem(id, null, summary), done));
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxItems);
+        while (running) {
+            try {
+                Pending first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxItems - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // Wartende Aufrufer nicht hängen lassen
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(p -> p.done().completeExceptionally(new IllegalStateException("Backend batcher stopped")));
+    }
+
+    void send(List<Pending> batch) {
+        try {
+            List<BackendClient.BatchResult> results = backend.batchUpdate(batch.stream().map(Pending::item).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                BackendClient.BatchResult r = i < results.size() ? results.get(i) : null;
+                CompletableFuture<Void> done = batch.get(i).done();
+                if (r != null && r.status() == 200) {
+                    done.complete(null);
+                } else {
+                    done.completeExceptionally(new IllegalStateException("PUT summary "
+                            + (r != null ? r.status() + " " + r.message() : "missing result")));
+                }
+            }
+            log.debug("Backend batch sent items={}", batch.size());
+        } catch (Exception e) {
+            log.warn("Backend batch of {} failed: {}", batch.size(), e.getMessage());
+            batch.forEach(p -> p.done().completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
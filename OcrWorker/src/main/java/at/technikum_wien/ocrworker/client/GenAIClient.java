@@ -6,12 +6,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.InterruptedIOException;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 public class GenAIClient {
@@ -24,14 +37,55 @@ public class GenAIClient {
     private final String model;
     private final int maxRetries;
     private final long timeoutMillis;
+    private final GenAiRateLimiter limiter;
+    private final int chunkThresholdChars;
+    private final int chunkMaxChars;
 
+    // Exponentielles Backoff mit Full Jitter, falls der Server keine Wartezeit vorgibt
+    private static final long BACKOFF_BASE_MS = 500;
+    private static final long BACKOFF_MAX_MS = 30_000;
+    // Gemini liefert die Wartezeit auch im Fehler-Body: "retryDelay": "37s"
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+
+    // Map-Reduce für lange Dokumente: Chunks an den Seitenmarkern aus OcrService schneiden
+    static final int DEFAULT_CHUNK_THRESHOLD_CHARS = 60_000;
+    static final int DEFAULT_CHUNK_MAX_TOKENS = 8_000;
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final Pattern PAGE_BREAK = Pattern.compile("(?=\\n\\n--- Page \\d+ ---\\n\\n)");
+
+    private static final String SUMMARY_PROMPT = "Erstelle eine prägnante Zusammenfassung des folgenden Dokuments in deutscher Sprache. "
+            + "Maximal 5 Sätze, keine Einleitung, keine Wiederholung:\n\n";
+    private static final String MAP_PROMPT = "Der folgende Text ist Abschnitt %d von %d eines längeren Dokuments. "
+            + "Fasse ihn in deutscher Sprache zusammen und behalte wichtige Fakten, Namen, Daten und Zahlen bei. "
+            + "Maximal 8 Sätze, keine Einleitung:\n\n";
+    private static final String REDUCE_PROMPT = "Die folgenden Texte sind Teilzusammenfassungen eines Dokuments in Reihenfolge. "
+            + "Erstelle daraus eine prägnante Zusammenfassung des gesamten Dokuments in deutscher Sprache. "
+            + "Maximal 5 Sätze, keine Einleitung, keine Wiederholung:\n\n";
+
+    public GenAIClient(String apiKey, String baseEndpoint, String model, int maxRetries, long timeoutMillis) {
+        this(apiKey, baseEndpoint, model, maxRetries, timeoutMillis, GenAiRateLimiter.unlimited());
+    }
+
+    public GenAIClient(String apiKey, String baseEndpoint, String model, int maxRetries, long timeoutMillis,
+                       GenAiRateLimiter limiter) {
+        this(apiKey, baseEndpoint, model, maxRetries, timeoutMillis, limiter,
+                DEFAULT_CHUNK_THRESHOLD_CHARS, DEFAULT_CHUNK_MAX_TOKENS);
+    }
+
+    @Autowired
     public GenAIClient(
             @Value("${GOOGLE_API_KEY:}") String apiKey,
             @Value("${GENAI_ENDPOINT:https://generativelanguage.googleapis.com}") String baseEndpoint,
             @Value("${GENAI_MODEL:gemini-2.5-flash}") String model,
             @Value("${GENAI_MAX_RETRIES:3}") int maxRetries,
-            @Value("${GENAI_TIMEOUT:15000}") long timeoutMillis
+            @Value("${GENAI_TIMEOUT:15000}") long timeoutMillis,
+            GenAiRateLimiter limiter,
+            @Value("${GENAI_CHUNK_THRESHOLD_CHARS:" + DEFAULT_CHUNK_THRESHOLD_CHARS + "}") int chunkThresholdChars,
+            @Value("${GENAI_CHUNK_MAX_TOKENS:" + DEFAULT_CHUNK_MAX_TOKENS + "}") int chunkMaxTokens
     ) {
+        this.limiter = limiter;
+        this.chunkThresholdChars = chunkThresholdChars;
+        this.chunkMaxChars = chunkMaxTokens * CHARS_PER_TOKEN;
         this.apiKey = apiKey;
         this.baseEndpoint = baseEndpoint.endsWith("/") ? baseEndpoint.substring(0, baseEndpoint.length()-1) : baseEndpoint;
         this.model = model;
@@ -49,9 +103,92 @@ public class GenAIClient {
             throw new GenAiException("Missing GOOGLE_API_KEY");
         }
         if (text == null) text = "";
-        String prompt = "Erstelle eine prägnante Zusammenfassung des folgenden Dokuments in deutscher Sprache. "
-                + "Maximal 5 Sätze, keine Einleitung, keine Wiederholung:\n\n" + text;
+        if (text.length() <= chunkThresholdChars) {
+            return generate(SUMMARY_PROMPT + text);
+        }
+
+        // Map: Abschnitte parallel zusammenfassen (Drosselung übernimmt der Limiter)
+        List<String> chunks = chunk(text, chunkMaxChars);
+        log.info("GenAI map-reduce: {} chars in {} chunks", text.length(), chunks.size());
+        List<String> prompts = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            prompts.add(MAP_PROMPT.formatted(i + 1, chunks.size()) + chunks.get(i));
+        }
+        List<String> partials = generateAll(prompts);
+
+        // Reduce: solange die Teilzusammenfassungen nicht in einen Prompt passen, gruppenweise verdichten
+        String combined = String.join("\n\n", partials);
+        while (combined.length() > chunkMaxChars && partials.size() > 1) {
+            List<String> groups = pack(partials, chunkMaxChars);
+            if (groups.size() == partials.size()) {
+                break; // keine Verdichtung mehr möglich
+            }
+            partials = generateAll(groups.stream().map(g -> REDUCE_PROMPT + g).toList());
+            combined = String.join("\n\n", partials);
+        }
+        return generate(REDUCE_PROMPT + combined);
+    }
+
+    /** Prompts parallel auf virtuellen Threads ausführen; Ergebnis in Eingabereihenfolge */
+    private List<String> generateAll(List<String> prompts) throws GenAiException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = new ArrayList<>(prompts.size());
+            for (String p : prompts) {
+                futures.add(executor.submit(() -> generate(p)));
+            }
+            List<String> results = new ArrayList<>(futures.size());
+            try {
+                for (Future<String> f : futures) {
+                    results.add(f.get());
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof GenAiException ge) throw ge;
+                throw new GenAiException("GenAI chunk failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new GenAiException("Interrupted during chunked summary", e);
+            }
+            return results;
+        }
+    }
+
+    /** Text an Seitengrenzen in Chunks bis maxChars teilen; zu lange Einzelseiten werden an Leerraum getrennt */
+    static List<String> chunk(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        for (String page : PAGE_BREAK.split(text)) {
+            String p = page.strip();
+            while (p.length() > maxChars) {
+                int cut = p.lastIndexOf(' ', maxChars);
+                int nl = p.lastIndexOf('\n', maxChars);
+                cut = Math.max(cut, nl);
+                if (cut <= maxChars / 2) cut = maxChars;
+                pieces.add(p.substring(0, cut).strip());
+                p = p.substring(cut).strip();
+            }
+            if (!p.isEmpty()) pieces.add(p);
+        }
+        return pack(pieces, maxChars);
+    }
 
+    /** Aufeinanderfolgende Stücke gierig zu Gruppen bis maxChars zusammenfassen */
+    private static List<String> pack(List<String> pieces, int maxChars) {
+        List<String> groups = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String piece : pieces) {
+            if (current.length() > 0 && current.length() + 2 + piece.length() > maxChars) {
+                groups.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() > 0) current.append("\n\n");
+            current.append(piece);
+        }
+        if (current.length() > 0) groups.add(current.toString());
+        return groups;
+    }
+
+    private String generate(String prompt) throws GenAiException {
         // Gemini generateContent Body
         Map<String,Object> bodyMap = Map.of(
                 "contents", new Object[] {
@@ -67,6 +204,14 @@ public class GenAIClient {
         int attempt = 0;
         while (true) {
             attempt++;
+            GenAiRateLimiter.Permit permit;
+            try {
+                permit = limiter.acquire(prompt.length());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenAiException("Interrupted while waiting for GenAI quota", e);
+            }
+            long waitMillis;
             try {
                 RequestBody rb = RequestBody.create(
                         mapper.writeValueAsBytes(bodyMap),
@@ -82,51 +227,104 @@ public class GenAIClient {
                     int code = res.code();
                     String resp = res.body() != null ? res.body().string() : "";
                     if (res.isSuccessful()) {
+                        limiter.onSuccess(permit);
                         return extractGeminiText(resp);
                     }
 
-                    if (code == 429 && attempt < maxRetries) {
-                        long wait = 500L * attempt;
-                        log.warn("Gemini 429 retry in {}ms attempt={}/{}", wait, attempt, maxRetries);
-                        Thread.sleep(wait);
-                        continue;
-                    }
-                    if (code >= 500 && attempt < maxRetries) {
-                        long wait = 400L * attempt;
-                        log.warn("Gemini {} retry in {}ms attempt={}/{}", code, wait, attempt, maxRetries);
-                        Thread.sleep(wait);
-                        continue;
+                    if (code == 429) {
+                        Duration retryAfter = retryAfter(res.header("Retry-After"), resp);
+                        limiter.onThrottled(permit, retryAfter);
+                        if (attempt >= maxRetries) {
+                            throw new GenAiException("GenAI API error " + code + " body=" + resp);
+                        }
+                        waitMillis = retryAfter != null ? retryAfter.toMillis() + jitter(250) : backoff(attempt);
+                        log.warn("Gemini 429 retry in {}ms attempt={}/{} limit={}",
+                                waitMillis, attempt, maxRetries, limiter.concurrencyLimit());
+                    } else if (code >= 500 && attempt < maxRetries) {
+                        limiter.onError(permit, false);
+                        Duration retryAfter = retryAfter(res.header("Retry-After"), resp);
+                        waitMillis = retryAfter != null ? retryAfter.toMillis() + jitter(250) : backoff(attempt);
+                        log.warn("Gemini {} retry in {}ms attempt={}/{}", code, waitMillis, attempt, maxRetries);
+                    } else {
+                        limiter.onError(permit, false);
+                        throw new GenAiException("GenAI API error " + code + " body=" + resp);
                     }
-                    throw new GenAiException("GenAI API error " + code + " body=" + resp);
                 }
             } catch (GenAiException e) {
                 throw e;
             } catch (Exception ex) {
+                limiter.onError(permit, ex instanceof InterruptedIOException);
                 if (attempt >= maxRetries) throw new GenAiException("GenAI client failed: " + ex.getMessage(), ex);
-                try { TimeUnit.MILLISECONDS.sleep(300L * attempt); } catch (InterruptedException ignored) {}
+                waitMillis = backoff(attempt);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenAiException("Interrupted during GenAI backoff", e);
             }
         }
     }
 
-    private String extractGeminiText(String json) {
-        try {
-            JsonNode root = mapper.readTree(json);
-            // response.candidates[0].content.parts[*].text
-            JsonNode candidates = root.path("candidates");
-            if (candidates.isArray() && candidates.size() > 0) {
-                JsonNode content = candidates.get(0).path("content").path("parts");
-                if (content.isArray()) {
-                    StringBuilder sb = new StringBuilder();
-                    for (JsonNode part : content) {
-                        String t = part.path("text").asText("");
-                        if (!t.isBlank()) sb.append(t);
-                    }
-                    if (sb.length() > 0) return sb.toString().trim();
+    /** Full Jitter: zufällig zwischen 0 und min(max, base * 2^(attempt-1)) */
+    static long backoff(int attempt) {
+        long ceiling = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt - 1, 16));
+        return jitter(ceiling);
+    }
+
+    private static long jitter(long bound) {
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /** Retry-After als Sekunden oder HTTP-Datum, sonst retryDelay aus dem Gemini-Fehler-Body */
+    static Duration retryAfter(String header, String body) {
+        if (header != null && !header.isBlank()) {
+            String value = header.trim();
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+            } catch (NumberFormatException ignored) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                    Duration d = Duration.between(ZonedDateTime.now(at.getZone()), at);
+                    return d.isNegative() ? Duration.ZERO : d;
+                } catch (Exception ignoredToo) {
+                    // unbekanntes Format -> Body prüfen
                 }
             }
-            return json;
+        }
+        if (body != null) {
+            Matcher m = RETRY_DELAY.matcher(body);
+            if (m.find()) {
+                return Duration.ofMillis((long) (Double.parseDouble(m.group(1)) * 1000));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Text aus response.candidates[0].content.parts[*].text. Ohne Text (unbekanntes Format, blockierte Antwort)
+     * wird geworfen statt das Roh-JSON zurückzugeben – sonst landete es als Zusammenfassung im Ergebnis-Cache.
+     */
+    String extractGeminiText(String json) throws GenAiException {
+        JsonNode root;
+        try {
+            root = mapper.readTree(json);
         } catch (Exception e) {
-            return json;
+            throw new GenAiException("Unparseable Gemini response: " + e.getMessage(), e);
+        }
+        JsonNode candidates = root.path("candidates");
+        if (candidates.isArray() && candidates.size() > 0) {
+            JsonNode content = candidates.get(0).path("content").path("parts");
+            if (content.isArray()) {
+                StringBuilder sb = new StringBuilder();
+                for (JsonNode part : content) {
+                    String t = part.path("text").asText("");
+                    if (!t.isBlank()) sb.append(t);
+                }
+                if (sb.length() > 0) return sb.toString().trim();
+            }
         }
+        String snippet = json.length() > 500 ? json.substring(0, 500) + "..." : json;
+        throw new GenAiException("Gemini response contains no text: " + snippet);
     }
 }
\ No newline at end of file
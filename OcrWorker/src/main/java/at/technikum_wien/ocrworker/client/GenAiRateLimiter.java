@@ -0,0 +1,94 @@
+package at.technikum_wien.ocrworker.client;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Client-seitige Drosselung für das GenAI-Modell: Token-Buckets für Requests/min und Tokens/min
+ * plus AIMD-Limit für gleichzeitige Aufrufe. Die Kontingente gelten pro Prozess –
+ * bei mehreren genai-worker-Replicas {@code GENAI_RPM}/{@code GENAI_TPM} entsprechend aufteilen;
+ * die 429-Rückmeldungen des gemeinsamen API-Kontingents regeln das AIMD-Limit zusätzlich nach.
+ */
+@Component
+public class GenAiRateLimiter {
+
+    /** Geschätzte Ausgabe-Tokens einer Zusammenfassung */
+    static final int OUTPUT_TOKEN_ESTIMATE = 512;
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final AimdLimiter concurrency;
+    private final long latencyTargetNanos;
+
+    @Autowired
+    public GenAiRateLimiter(@Value("${GENAI_RPM:60}") long requestsPerMinute,
+                            @Value("${GENAI_TPM:1000000}") long tokensPerMinute,
+                            @Value("${GENAI_INITIAL_CONCURRENCY:4}") int initialConcurrency,
+                            @Value("${GENAI_MAX_CONCURRENCY:32}") int maxConcurrency,
+                            @Value("${GENAI_LATENCY_TARGET_MS:10000}") long latencyTargetMillis) {
+        // Burst: höchstens 6 s Kontingent auf einmal, damit der Start nicht sofort ins Minutenlimit läuft
+        this(requestsPerMinute, tokensPerMinute, 6_000, initialConcurrency, maxConcurrency, latencyTargetMillis);
+    }
+
+    GenAiRateLimiter(long requestsPerMinute, long tokensPerMinute, long burstMillis,
+                     int initialConcurrency, int maxConcurrency, long latencyTargetMillis) {
+        this(requestsPerMinute, tokensPerMinute, burstMillis, initialConcurrency, 1, maxConcurrency, latencyTargetMillis);
+    }
+
+    private GenAiRateLimiter(long requestsPerMinute, long tokensPerMinute, long burstMillis, int initialConcurrency,
+                             int minConcurrency, int maxConcurrency, long latencyTargetMillis) {
+        this.requests = new TokenBucket(requestsPerMinute, burstMillis);
+        this.tokens = new TokenBucket(tokensPerMinute, burstMillis);
+        this.concurrency = new AimdLimiter(initialConcurrency, minConcurrency, maxConcurrency);
+        this.latencyTargetNanos = Duration.ofMillis(latencyTargetMillis).toNanos();
+    }
+
+    /** Ohne Drosselung (z.B. für Tests oder lokale Modelle) */
+    public static GenAiRateLimiter unlimited() {
+        return new GenAiRateLimiter(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 60_000, 1024, 1024, 1024, Long.MAX_VALUE / 2_000_000);
+    }
+
+    /** Blockiert, bis Nebenläufigkeits-Slot und beide Kontingente verfügbar sind */
+    public Permit acquire(int promptChars) throws InterruptedException {
+        long startedAt = concurrency.acquire();
+        try {
+            requests.acquire(1);
+            // grobe Schätzung: ~4 Zeichen pro Token
+            tokens.acquire(promptChars / 4.0 + OUTPUT_TOKEN_ESTIMATE);
+        } catch (InterruptedException e) {
+            concurrency.release(startedAt, AimdLimiter.Outcome.ERROR);
+            throw e;
+        }
+        return new Permit(startedAt, System.nanoTime());
+    }
+
+    public void onSuccess(Permit permit) {
+        long latency = System.nanoTime() - permit.sentAt();
+        concurrency.release(permit.startedAt(),
+                latency > latencyTargetNanos ? AimdLimiter.Outcome.SLOW : AimdLimiter.Outcome.SUCCESS);
+    }
+
+    /** 429: Limit halbieren und beide Buckets bis zum Ablauf von Retry-After anhalten */
+    public void onThrottled(Permit permit, Duration retryAfter) {
+        concurrency.release(permit.startedAt(), AimdLimiter.Outcome.THROTTLED);
+        if (retryAfter != null && !retryAfter.isZero()) {
+            long until = System.nanoTime() + retryAfter.toNanos();
+            requests.pauseUntil(until);
+            tokens.pauseUntil(until);
+        }
+    }
+
+    /** Timeouts zählen als Latenzsignal, andere Fehler verändern das Limit nicht */
+    public void onError(Permit permit, boolean timeout) {
+        concurrency.release(permit.startedAt(), timeout ? AimdLimiter.Outcome.SLOW : AimdLimiter.Outcome.ERROR);
+    }
+
+    public int concurrencyLimit() {
+        return concurrency.limit();
+    }
+
+    public record Permit(long startedAt, long sentAt) {}
+}
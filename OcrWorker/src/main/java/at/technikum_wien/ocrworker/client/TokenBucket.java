@@ -0,0 +1,57 @@
+package at.technikum_wien.ocrworker.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-Bucket mit Reservierung: jeder Aufrufer zieht seine Menge sofort ab (auch ins Minus)
+ * und schläft die berechnete Zeit – dadurch werden Wartende in Ankunftsreihenfolge bedient.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefill;
+    private long pausedUntil;
+
+    /**
+     * @param perMinute   Nachfüllrate
+     * @param burstMillis wie viel Kontingent sich maximal ansammeln darf (in ms Nachfüllzeit)
+     */
+    TokenBucket(long perMinute, long burstMillis) {
+        this.refillPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.capacity = Math.max(1, refillPerNano * TimeUnit.MILLISECONDS.toNanos(burstMillis));
+        this.available = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    void acquire(double amount) throws InterruptedException {
+        long waitNanos = reserve(amount);
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    synchronized long reserve(double amount) {
+        long now = System.nanoTime();
+        refill(now);
+        available -= amount;
+        long pause = Math.max(0, pausedUntil - now);
+        long deficit = available >= 0 ? 0 : (long) (-available / refillPerNano);
+        return Math.max(pause, deficit);
+    }
+
+    /** Nach einem 429: Kontingent leeren und bis {@code untilNanos} nichts mehr ausgeben */
+    synchronized void pauseUntil(long untilNanos) {
+        refill(System.nanoTime());
+        available = Math.min(available, 0);
+        pausedUntil = Math.max(pausedUntil, untilNanos);
+    }
+
+    private void refill(long now) {
+        // Während einer Pause sammelt sich kein Kontingent an
+        long from = Math.max(lastRefill, Math.min(pausedUntil, now));
+        if (now > from) {
+            available = Math.min(capacity, available + (now - from) * refillPerNano);
+        }
+        lastRefill = now;
+    }
+}
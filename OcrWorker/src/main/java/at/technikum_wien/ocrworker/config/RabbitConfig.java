@@ -1,13 +1,18 @@
 package at.technikum_wien.ocrworker.config;
 
+import at.technikum_wien.ocrworker.listener.DocumentOcrCompletedListener;
 import at.technikum_wien.ocrworker.model.DocumentUploadedEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.ClassMapper;
 import org.springframework.amqp.support.converter.DefaultClassMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.amqp.core.*;
@@ -75,4 +80,49 @@ public class RabbitConfig {
         conv.setClassMapper(eventClassMapper);
         return conv;
     }
-}
\ No newline at end of file
+
+    // OCR ist CPU-lastig und nutzt pro Job bereits alle Kerne (Tesseract-Pool):
+    // wenige Consumer, Prefetch 1 für faire Verteilung langer Jobs zwischen Worker-Replicas
+    @Bean
+    public SimpleRabbitListenerContainerFactory ocrListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${OCR_LISTENER_CONCURRENCY:1}") int concurrency,
+            @Value("${OCR_LISTENER_PREFETCH:1}") int prefetch
+    ) {
+        return listenerFactory(configurer, connectionFactory, concurrency, prefetch);
+    }
+
+    // GenAI wartet fast nur auf HTTP: mehr Consumer und größerer Prefetch
+    @Bean
+    public SimpleRabbitListenerContainerFactory genAiListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${GENAI_LISTENER_CONCURRENCY:4}") int concurrency,
+            @Value("${GENAI_LISTENER_PREFETCH:10}") int prefetch,
+            @Value("${GENAI_EXECUTION_MODE:blocking}") String mode,
+            @Value("${GENAI_MAX_IN_FLIGHT:200}") int maxInFlight
+    ) {
+        if (!DocumentOcrCompletedListener.MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            return listenerFactory(configurer, connectionFactory, concurrency, prefetch);
+        }
+        // virtual: Listener übergibt an virtuelle Threads und ackt selbst;
+        // der Prefetch muss so groß sein, dass genügend unbestätigte Nachrichten gleichzeitig laufen können
+        SimpleRabbitListenerContainerFactory factory =
+                listenerFactory(configurer, connectionFactory, concurrency, Math.max(prefetch, maxInFlight));
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
+    private static SimpleRabbitListenerContainerFactory listenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int concurrency, int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        // Übernimmt spring.rabbitmq.listener.simple.* und den JSON-Converter
+        configurer.configure(factory, connectionFactory);
+        // Startwert; zur Laufzeit regelt der ListenerAutoScaler zwischen min und max nach
+        factory.setConcurrentConsumers(concurrency);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+}
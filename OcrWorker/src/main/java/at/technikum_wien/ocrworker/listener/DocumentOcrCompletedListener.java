@@ -1,39 +1,118 @@
 package at.technikum_wien.ocrworker.listener;
 
-import at.technikum_wien.ocrworker.client.BackendClient;
+import at.technikum_wien.ocrworker.client.BackendUpdateBatcher;
 import at.technikum_wien.ocrworker.client.GenAIClient;
 import at.technikum_wien.ocrworker.exceptions.GenAiException;
 import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
+import at.technikum_wien.ocrworker.service.ResultCache;
+import at.technikum_wien.ocrworker.service.TextStore;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @ConditionalOnProperty(name = "GENAI_ENABLED", havingValue = "true")
 public class DocumentOcrCompletedListener {
     private static final Logger log = LoggerFactory.getLogger(DocumentOcrCompletedListener.class);
+
+    /** Jede Nachricht läuft auf einem eigenen virtuellen Thread, Ack erst nach Abschluss */
+    public static final String MODE_VIRTUAL = "virtual";
+
     private final GenAIClient genAi;
-    private final BackendClient backend;
+    private final BackendUpdateBatcher backend;
+    private final ResultCache resultCache;
+    private final TextStore textStore;
+    private final boolean virtualMode;
+    // Obergrenze gleichzeitiger Modell-Aufrufe im virtual-Modus
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final ExecutorService executor;
 
-    public DocumentOcrCompletedListener(GenAIClient genAi, BackendClient backend) {
+    public DocumentOcrCompletedListener(GenAIClient genAi, BackendUpdateBatcher backend, ResultCache resultCache,
+                                        TextStore textStore, MeterRegistry meters,
+                                        @Value("${GENAI_EXECUTION_MODE:blocking}") String mode,
+                                        @Value("${GENAI_MAX_IN_FLIGHT:200}") int maxInFlight) {
         this.genAi = genAi;
         this.backend = backend;
+        this.resultCache = resultCache;
+        this.textStore = textStore;
+        this.virtualMode = MODE_VIRTUAL.equalsIgnoreCase(mode);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = virtualMode ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        Gauge.builder("ocrworker.genai.in_flight", inFlight, s -> maxInFlight - s.availablePermits())
+                .description("Laufende GenAI-Zusammenfassungen")
+                .register(meters);
+        log.info("GenAI listener mode={} maxInFlight={}", virtualMode ? MODE_VIRTUAL : "blocking", maxInFlight);
+    }
+
+    @RabbitListener(id = ListenerAutoScaler.GENAI_LISTENER_ID, containerFactory = "genAiListenerContainerFactory",
+            queues = "${GENAI_QUEUE:documents.ocr.completed}")
+    public void onMessage(DocumentOcrCompletedEvent evt, Channel channel,
+                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) throws InterruptedException {
+        if (!virtualMode) {
+            process(evt);
+            return;
+        }
+        // Backpressure: der Listener-Thread wartet, bis ein Slot frei ist; weitere Nachrichten bleiben im Prefetch
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                boolean success = false;
+                try {
+                    process(evt);
+                    success = true;
+                } catch (RuntimeException e) {
+                    // wie im blocking-Modus: kein Requeue -> DLX/DLQ (process() hat bereits geloggt)
+                } finally {
+                    // auch bei Error: sonst bliebe die Nachricht bis zum Schließen des Channels unbestätigt
+                    try {
+                        ack(channel, deliveryTag, success, evt.id());
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
     }
 
-    @RabbitListener(queues = "${GENAI_QUEUE:documents.ocr.completed}")
-    public void onMessage(DocumentOcrCompletedEvent evt) {
+    private void process(DocumentOcrCompletedEvent evt) {
         String trace = "doc=" + evt.id();
         log.info("GenAI start {}", trace);
         try {
-            String text = evt.extractedText();
-            if (text == null || text.isBlank()) {
+            if (!evt.offloaded() && (evt.extractedText() == null || evt.extractedText().isBlank())) {
                 log.warn("No extracted text for {}, skip", trace);
                 return;
             }
-            String summary = genAi.summarize(text);
-            log.info("GenAI summary len={} for {}", summary != null ? summary.length() : 0, trace);
+            String summary = resultCache.getSummary(evt.contentHash()).orElse(null);
+            if (summary != null) {
+                log.info("GenAI cache hit {}", trace);
+            } else {
+                // ausgelagerte Texte erst hier (und nur bei Cache-Miss) aus dem Text-Bucket laden
+                String text = textStore.text(evt);
+                summary = genAi.summarize(text);
+                log.info("GenAI summary len={} for {}", summary != null ? summary.length() : 0, trace);
+                resultCache.putSummary(evt.contentHash(), summary);
+            }
             backend.updateSummary(evt.id(), summary);
             log.info("GenAI stored summary {}", trace);
         } catch (GenAiException e) {
@@ -45,4 +124,31 @@ public class DocumentOcrCompletedListener {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    private static void ack(Channel channel, long deliveryTag, boolean success, int id) {
+        // Channel ist nicht für parallele Frames ausgelegt – Acks aus vielen virtuellen Threads serialisieren
+        synchronized (channel) {
+            try {
+                if (success) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicNack(deliveryTag, false, false);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Channel weg (auch AlreadyClosedException): Broker liefert die Nachricht erneut aus
+                log.warn("Ack failed for doc={} (tag={}): {}", id, deliveryTag, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) return;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} GenAI calls still running on shutdown; unacked messages will be redelivered",
+                    maxInFlight - inFlight.availablePermits());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -4,15 +4,22 @@ import at.technikum_wien.ocrworker.client.BackendClient;
 import at.technikum_wien.ocrworker.model.DocumentUploadedEvent;
 import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
 import at.technikum_wien.ocrworker.service.OcrService;
+import at.technikum_wien.ocrworker.service.ResultCache;
+import at.technikum_wien.ocrworker.service.TextStore;
 import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import at.technikum_wien.ocrworker.elasticsearch.DocumentIndexRepository;
-import at.technikum_wien.ocrworker.elasticsearch.DocumentIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 
 @Component
 public class DocumentUploadedListener {
@@ -23,17 +30,24 @@ public class DocumentUploadedListener {
     private final OcrService ocrService;
     private final BackendClient backend;
     private final RabbitTemplate rabbit;
-    private final DocumentIndexRepository indexRepository;
+    private final ResultCache resultCache;
+    private final TextStore textStore;
+
+    @Value("${OCR_SCRATCH_DIR:#{null}}")
+    private Path scratchDir;
 
-    public DocumentUploadedListener(MinioClient minio, OcrService ocrService, BackendClient backend, RabbitTemplate rabbit, DocumentIndexRepository indexRepository) {
+    public DocumentUploadedListener(MinioClient minio, OcrService ocrService, BackendClient backend, RabbitTemplate rabbit,
+                                    ResultCache resultCache, TextStore textStore) {
         this.minio = minio;
         this.ocrService = ocrService;
         this.backend = backend;
         this.rabbit = rabbit;
-        this.indexRepository = indexRepository;
+        this.resultCache = resultCache;
+        this.textStore = textStore;
     }
 
-    @RabbitListener(queues = "${DOC_EVENTS_QUEUE:documents.uploaded}")
+    @RabbitListener(id = ListenerAutoScaler.OCR_LISTENER_ID, containerFactory = "ocrListenerContainerFactory",
+            queues = "${DOC_EVENTS_QUEUE:documents.uploaded}")
     public void onMessage(DocumentUploadedEvent evt) throws Exception {
         if (evt.mimeType() == null || !evt.mimeType().equalsIgnoreCase("application/pdf")) {
             log.info("Skip non-PDF id={} mime={}", evt.id(), evt.mimeType());
@@ -41,29 +55,46 @@ public class DocumentUploadedListener {
         }
         log.info("OCR pipeline start id={} bucket={} key={}", evt.id(), evt.storageBucket(), evt.storageKey());
 
-        byte[] fileBytes;
-        try (var stream = minio.getObject(GetObjectArgs.builder()
-                .bucket(evt.storageBucket())
-                .object(evt.storageKey())
-                .build())) {
-            fileBytes = stream.readAllBytes();
+        // Gleiche Datei schon einmal verarbeitet (Duplikat-Upload, replaceFile mit identischen Bytes)?
+        Optional<String> cached = resultCache.getText(evt.contentHash());
+        String text;
+        if (cached.isPresent()) {
+            text = cached.get();
+            log.info("OCR cache hit id={} hash={}", evt.id(), evt.contentHash());
+        } else {
+            text = extract(evt);
+            resultCache.putText(evt.contentHash(), text);
         }
-
-        String text = ocrService.extractPreferPdfTextThenOcr(fileBytes);
         log.info("OCR pipeline extracted {} chars for id={}", text.length(), evt.id());
 
-        backend.updateContent(evt.id(), text);
-
-        // Hole das vollständige Dokument aus dem Backend
-        var fullDoc = backend.getDocument(evt.id());
-
-        // Indexiere alle Felder in Elasticsearch
-        indexRepository.save(new DocumentIndex(fullDoc));
+        // Speichert den Text; das Backend indexiert ihn selbst (einziger ES-Schreiber pro Dokument)
+        backend.submitOcrResult(evt.id(), text);
 
-        // publish OCR completed event (include extracted text or truncated version)
-        var completed = new DocumentOcrCompletedEvent(evt.id(), evt.storageBucket(), evt.storageKey(), text);
+        // publish OCR completed event – große Texte gehen per Claim-Check über den Text-Bucket
+        DocumentOcrCompletedEvent completed = textStore.completedEvent(evt, text);
         // send to queue documents.ocr.completed
         rabbit.convertAndSend("documents.ocr.completed", completed);
         log.info("Content updated in backend for id={}", evt.id());
     }
+
+    private String extract(DocumentUploadedEvent evt) throws Exception {
+        // PDF in eine Scratch-Datei streamen statt readAllBytes – der Heap wächst nicht mit der Dateigröße
+        Path pdfFile = Files.createTempFile(scratchDir(), "ocr-" + evt.id() + "-", ".pdf");
+        try {
+            try (var stream = minio.getObject(GetObjectArgs.builder()
+                    .bucket(evt.storageBucket())
+                    .object(evt.storageKey())
+                    .build())) {
+                Files.copy(stream, pdfFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return ocrService.extractPreferPdfTextThenOcr(pdfFile);
+        } finally {
+            Files.deleteIfExists(pdfFile);
+        }
+    }
+
+    private Path scratchDir() throws IOException {
+        if (scratchDir == null) return Path.of(System.getProperty("java.io.tmpdir"));
+        return Files.createDirectories(scratchDir);
+    }
 }
\ No newline at end of file
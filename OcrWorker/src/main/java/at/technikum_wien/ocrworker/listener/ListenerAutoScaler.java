@@ -0,0 +1,146 @@
+package at.technikum_wien.ocrworker.listener;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Passt die Consumer-Anzahl der Listener-Container periodisch an Queue-Tiefe und CPU-Last an.
+ * Hochskaliert wird, solange mehr Nachrichten warten als Consumer laufen (bei OCR nur unterhalb der CPU-Grenze),
+ * runter bei leerer Queue bzw. bei OCR, wenn die CPU ausgelastet ist.
+ * GenAI im virtual-Modus wird nicht skaliert: dort stecken die laufenden Aufrufe als unbestätigte Nachrichten im
+ * Prefetch (die Queue wirkt leer), und ein gestoppter Consumer würde sie requeuen und bezahlte Aufrufe wiederholen.
+ * Metriken: {@code ocrworker.listener.consumers} und {@code ocrworker.listener.queue.depth} mit Tag {@code stage}.
+ */
+@Component
+public class ListenerAutoScaler {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerAutoScaler.class);
+
+    public static final String OCR_LISTENER_ID = "ocr";
+    public static final String GENAI_LISTENER_ID = "genai";
+
+    record Stage(String listenerId, String queue, int min, int max, boolean cpuBound) {}
+
+    private final RabbitListenerEndpointRegistry registry;
+    private final AmqpAdmin admin;
+    private final DoubleSupplier cpuLoad;
+    private final List<Stage> stages;
+    private final Map<String, AtomicInteger> queueDepth = new ConcurrentHashMap<>();
+
+    @Value("${LISTENER_AUTOSCALE_ENABLED:true}")
+    private boolean enabled = true;
+
+    @Value("${LISTENER_AUTOSCALE_CPU_HIGH:0.85}")
+    private double cpuHigh = 0.85;
+
+    @Autowired
+    public ListenerAutoScaler(RabbitListenerEndpointRegistry registry, AmqpAdmin admin, MeterRegistry meters,
+                              @Value("${DOC_EVENTS_QUEUE:documents.uploaded}") String ocrQueue,
+                              @Value("${OCR_LISTENER_CONCURRENCY:1}") int ocrMin,
+                              @Value("${OCR_LISTENER_MAX_CONCURRENCY:4}") int ocrMax,
+                              @Value("${GENAI_QUEUE:documents.ocr.completed}") String genAiQueue,
+                              @Value("${GENAI_LISTENER_CONCURRENCY:4}") int genAiMin,
+                              @Value("${GENAI_LISTENER_MAX_CONCURRENCY:32}") int genAiMax,
+                              @Value("${GENAI_EXECUTION_MODE:blocking}") String genAiMode) {
+        this(registry, admin, meters, ListenerAutoScaler::systemCpuLoad,
+                stages(ocrQueue, ocrMin, ocrMax, genAiQueue, genAiMin, genAiMax, genAiMode));
+    }
+
+    static List<Stage> stages(String ocrQueue, int ocrMin, int ocrMax,
+                              String genAiQueue, int genAiMin, int genAiMax, String genAiMode) {
+        Stage ocr = new Stage(OCR_LISTENER_ID, ocrQueue, ocrMin, Math.max(ocrMin, ocrMax), true);
+        if (DocumentOcrCompletedListener.MODE_VIRTUAL.equalsIgnoreCase(genAiMode)) {
+            log.info("GenAI listener runs in virtual mode, excluded from autoscaling (GENAI_MAX_IN_FLIGHT limits it)");
+            return List.of(ocr);
+        }
+        return List.of(ocr, new Stage(GENAI_LISTENER_ID, genAiQueue, genAiMin, Math.max(genAiMin, genAiMax), false));
+    }
+
+    ListenerAutoScaler(RabbitListenerEndpointRegistry registry, AmqpAdmin admin, MeterRegistry meters,
+                       DoubleSupplier cpuLoad, List<Stage> stages) {
+        this.registry = registry;
+        this.admin = admin;
+        this.cpuLoad = cpuLoad;
+        this.stages = stages;
+        for (Stage stage : stages) {
+            AtomicInteger depth = queueDepth.computeIfAbsent(stage.listenerId(), id -> new AtomicInteger());
+            Gauge.builder("ocrworker.listener.consumers", this, s -> s.activeConsumers(stage.listenerId()))
+                    .description("Aktive Consumer des Listener-Containers")
+                    .tag("stage", stage.listenerId())
+                    .register(meters);
+            Gauge.builder("ocrworker.listener.queue.depth", depth, AtomicInteger::get)
+                    .description("Zuletzt gemessene Anzahl wartender Nachrichten")
+                    .tag("stage", stage.listenerId())
+                    .register(meters);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${LISTENER_AUTOSCALE_INTERVAL_MS:10000}")
+    public void rebalance() {
+        if (!enabled) return;
+        double cpu = cpuLoad.getAsDouble();
+        for (Stage stage : stages) {
+            try {
+                scale(stage, cpu);
+            } catch (Exception e) {
+                log.debug("Autoscaling of '{}' skipped: {}", stage.listenerId(), e.getMessage());
+            }
+        }
+    }
+
+    void scale(Stage stage, double cpu) {
+        if (!(registry.getListenerContainer(stage.listenerId()) instanceof SimpleMessageListenerContainer container)
+                || !container.isRunning()) {
+            return;
+        }
+        QueueInformation info = admin.getQueueInfo(stage.queue());
+        if (info == null) return;
+        int depth = info.getMessageCount();
+        queueDepth.get(stage.listenerId()).set(depth);
+
+        int current = container.getActiveConsumerCount();
+        boolean cpuSaturated = stage.cpuBound() && cpu >= cpuHigh;
+        int target = current;
+        if (cpuSaturated || depth == 0) {
+            target = current - 1;
+        } else if (depth > current) {
+            target = current + 1;
+        }
+        target = Math.max(stage.min(), Math.min(stage.max(), target));
+
+        if (target != current) {
+            container.setConcurrentConsumers(target);
+            log.info("Listener '{}' scaled {} -> {} consumers (queue depth={}, cpu={})",
+                    stage.listenerId(), current, target, depth, String.format("%.2f", cpu));
+        }
+    }
+
+    private double activeConsumers(String listenerId) {
+        return registry.getListenerContainer(listenerId) instanceof SimpleMessageListenerContainer container
+                ? container.getActiveConsumerCount() : 0;
+    }
+
+    private static double systemCpuLoad() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return Math.max(0, os.getCpuLoad());
+        }
+        return 0;
+    }
+}
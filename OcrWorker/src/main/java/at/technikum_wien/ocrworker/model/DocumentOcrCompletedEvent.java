@@ -1,8 +1,29 @@
 package at.technikum_wien.ocrworker.model;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kleine Texte reisen in {@code extractedText} mit. Große Texte liegen gzip-komprimiert im Text-Bucket
+ * (Claim-Check): dann ist {@code extractedText} null und {@code textKey}, {@code textSha256} (über die
+ * UTF-8-Bytes) und {@code textLength} (Bytes) beschreiben das Objekt.
+ */
 public record DocumentOcrCompletedEvent(
         int id,
         String storageBucket,
         String storageKey,
-        String extractedText
-) {}
\ No newline at end of file
+        String extractedText,
+        String contentHash,
+        String textKey,
+        String textSha256,
+        long textLength
+) {
+    public DocumentOcrCompletedEvent(int id, String storageBucket, String storageKey, String extractedText,
+                                     String contentHash) {
+        this(id, storageBucket, storageKey, extractedText, contentHash, null, null,
+                extractedText != null ? extractedText.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    public boolean offloaded() {
+        return textKey != null;
+    }
+}
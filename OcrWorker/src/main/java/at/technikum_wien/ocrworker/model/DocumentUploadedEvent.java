@@ -10,5 +10,7 @@ public record DocumentUploadedEvent(
         long size,
         LocalDateTime uploadDate,
         String storageBucket,
-        String storageKey
+        String storageKey,
+        // SHA-256 der Datei (hex) – Schlüssel für den Ergebnis-Cache im OCR-Worker
+        String contentHash
 ) {}
\ No newline at end of file
@@ -1,34 +1,83 @@
 package at.technikum_wien.ocrworker.service;
 
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.ITesseract;
 import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Service
 public class OcrService {
 
     private static final Logger log = LoggerFactory.getLogger(OcrService.class);
 
-    private final Tesseract tesseract;
+    // XObjects (Do), Inline-Bilder (BI), Pfade füllen/zeichnen, Shadings und Textausgabe
+    private static final Set<String> PAINTING_OPERATORS = Set.of(
+            "Do", "BI", "f", "F", "f*", "B", "B*", "b", "b*", "S", "s", "sh", "Tj", "TJ", "'", "\"");
+
+    private final TesseractPool tesseractPool;
+    private final ExecutorService ocrExecutor;
+    // Begrenzt die gerenderten Seitenbilder im Speicher (über alle gleichzeitig laufenden Dokumente)
+    private final Semaphore pagesInFlight;
     private final int dpi;
 
+    // Heap-Obergrenze für PDFBox-Stream-Caches pro Dokument, Rest geht in Temp-Dateien
+    @Value("${OCR_PDF_CACHE_MEMORY_BYTES:4194304}")
+    private long pdfCacheMemoryBytes = 4 * 1024 * 1024;
+
+    @Value("${OCR_SCRATCH_DIR:#{null}}")
+    private Path scratchDir;
+
+    public OcrService(String tessdataDir, String ocrLang, int dpi) {
+        this(tessdataDir, ocrLang, dpi, 0, 0);
+    }
+
+    @Autowired
     public OcrService(
             // Default zeigt DIREKT auf das tessdata-Verzeichnis
             @Value("${TESSDATA_PREFIX:/usr/share/tesseract-ocr/5/tessdata}") String tessdataDir,
             @Value("${OCR_LANG:deu+eng}") String ocrLang,
-            @Value("${OCR_DPI:300}") int dpi
+            @Value("${OCR_DPI:300}") int dpi,
+            // 0 = Anzahl der verfügbaren Kerne
+            @Value("${OCR_POOL_SIZE:0}") int poolSize,
+            // 0 = so viele Seiten wie Tesseract-Instanzen (ein 300-DPI-A4-Bild belegt ~35 MB Heap)
+            @Value("${OCR_MAX_PAGES_IN_FLIGHT:0}") int maxPagesInFlight
     ) {
+        this(tessdataDir, ocrLang, dpi, poolSize, maxPagesInFlight, Tesseract::new);
+    }
+
+    OcrService(String tessdataDir, String ocrLang, int dpi, int poolSize, int maxPagesInFlight,
+               Supplier<ITesseract> tesseractFactory) {
         this.dpi = dpi;
 
         // Falls TESSDATA_PREFIX über Env doch gesetzt wäre: ignorieren wir – wir steuern per setDatapath()
@@ -50,13 +99,30 @@ public class OcrService {
                     + "Erwartet: eng.traineddata & deu.traineddata vorhanden.");
         }
 
-        this.tesseract = new Tesseract();
-        // setDatapath zeigt HIER auf das tessdata-Verzeichnis selbst:
-        this.tesseract.setDatapath(dir.getAbsolutePath());
-        this.tesseract.setLanguage(ocrLang);
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.tesseractPool = new TesseractPool(threads, () -> {
+            ITesseract tesseract = tesseractFactory.get();
+            // setDatapath zeigt HIER auf das tessdata-Verzeichnis selbst:
+            tesseract.setDatapath(dir.getAbsolutePath());
+            tesseract.setLanguage(ocrLang);
+            return tesseract;
+        });
+        this.pagesInFlight = new Semaphore(maxPagesInFlight > 0 ? maxPagesInFlight : threads);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.ocrExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ocr-page-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        log.info("Tesseract init: datapath='{}' | lang='{}' | dpi={} | instances={} | maxPagesInFlight={}",
+                dir.getAbsolutePath(), ocrLang, dpi, threads, pagesInFlight.availablePermits());
+    }
 
-        log.info("Tesseract init: datapath='{}' | lang='{}' | dpi={}",
-                dir.getAbsolutePath(), ocrLang, dpi);
+    @PreDestroy
+    public void shutdown() {
+        ocrExecutor.shutdownNow();
     }
 
     private boolean isGoodEnough(String text) {
@@ -65,39 +131,117 @@ public class OcrService {
         return text.length() >= 20 && noWs.length() >= (text.length() * 0.5);
     }
 
-    public String extractPreferPdfTextThenOcr(byte[] pdfBytes) throws Exception {
-        String pdfText = extractWithPdfBox(pdfBytes).trim();
-        if (isGoodEnough(pdfText)) {
-            return pdfText;
+    /**
+     * Lädt das PDF direkt aus der Datei (gepufferter Random Access statt byte[] im Heap).
+     * PDFBox-Streams bleiben bis {@code pdfCacheMemoryBytes} im Speicher, darüber in Temp-Dateien.
+     */
+    public String extractPreferPdfTextThenOcr(Path pdfFile) throws Exception {
+        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBufferedFile(pdfFile), pdfStreamCache())) {
+            return extractPerPage(doc);
         }
-        return extractWithTesseract(pdfBytes);
     }
 
-    private String extractWithPdfBox(byte[] pdfBytes) throws Exception {
-        try (PDDocument doc = Loader.loadPDF(pdfBytes)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(true);
-            return stripper.getText(doc);
+    private RandomAccessStreamCache.StreamCacheCreateFunction pdfStreamCache() {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(pdfCacheMemoryBytes);
+        if (scratchDir != null) setting.setTempDir(scratchDir.toFile());
+        return setting.streamCache;
+    }
+
+    /**
+     * Entscheidet pro Seite: Textlayer, wenn er brauchbar ist – sonst OCR.
+     * Nur Seiten, die gar nichts zeichnen (z.B. Leerseiten), werden nie gerendert; Inline-Bilder (BI/ID/EI)
+     * und als Pfade gezeichneter Text zählen wie Bild-XObjects als Inhalt.
+     */
+    String extractPerPage(PDDocument doc) throws Exception {
+        int pageCount = doc.getNumberOfPages();
+        String[] pageTexts = new String[pageCount];
+        List<Integer> ocrPages = new ArrayList<>();
+
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+        for (int page = 0; page < pageCount; page++) {
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            String text = stripper.getText(doc).trim();
+            pageTexts[page] = text;
+            if (!isGoodEnough(text) && paintsContent(doc.getPage(page))) {
+                ocrPages.add(page);
+            }
+        }
+
+        if (!ocrPages.isEmpty()) {
+            String[] ocrTexts = ocrPages(doc, ocrPages.stream().mapToInt(Integer::intValue).toArray());
+            for (int i = 0; i < ocrTexts.length; i++) {
+                // Liefert OCR nichts, bleibt der (schwache) Textlayer stehen
+                if (!ocrTexts[i].isBlank()) pageTexts[ocrPages.get(i)] = ocrTexts[i].trim();
+            }
         }
+        log.info("Text extraction: pages={} | textLayer={} | ocr={}",
+                pageCount, pageCount - ocrPages.size(), ocrPages.size());
+        return joinPages(pageTexts);
     }
 
-    private String extractWithTesseract(byte[] pdfBytes) throws Exception {
-        try (PDDocument doc = Loader.loadPDF(pdfBytes)) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            StringBuilder out = new StringBuilder(4096);
-            for (int page = 0; page < doc.getNumberOfPages(); page++) {
-                BufferedImage img = renderer.renderImageWithDPI(page, dpi, ImageType.RGB);
-                String pageText = doOcr(img);
-                if (!pageText.isBlank()) {
-                    if (!out.isEmpty()) out.append("\n\n--- Page ").append(page + 1).append(" ---\n\n");
-                    out.append(pageText.trim());
-                }
+    private static String joinPages(String[] pageTexts) {
+        StringBuilder out = new StringBuilder(4096);
+        for (int page = 0; page < pageTexts.length; page++) {
+            String pageText = pageTexts[page];
+            if (!pageText.isBlank()) {
+                if (!out.isEmpty()) out.append("\n\n--- Page ").append(page + 1).append(" ---\n\n");
+                out.append(pageText);
             }
-            return out.toString();
         }
+        return out.toString();
     }
 
-    private String doOcr(BufferedImage img) throws TesseractException {
-        return tesseract.doOCR(img);
+    /** Sucht im Content-Stream nach zeichnenden Operatoren – ohne sie kann auch Tesseract nichts finden */
+    private static boolean paintsContent(PDPage page) throws IOException {
+        if (!page.hasContents()) return false;
+        PDFStreamParser parser = new PDFStreamParser(page);
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken()) {
+            if (token instanceof Operator op && PAINTING_OPERATORS.contains(op.getName())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * OCR der angegebenen Seiten parallel über den Tesseract-Pool; Ergebnis in derselben Reihenfolge wie {@code pages}.
+     * Gerendert wird im aufrufenden Thread (PDFBox ist pro Dokument nicht thread-safe), jeweils erst wenn
+     * ein Platz in {@code pagesInFlight} frei ist – so bleibt die Zahl der Bilder im Heap begrenzt.
+     */
+    String[] ocrPages(PDDocument doc, int[] pages) throws Exception {
+        PDFRenderer renderer = new PDFRenderer(doc);
+        List<Future<String>> futures = new ArrayList<>(pages.length);
+        // Bei einem Fehler werden noch wartende Seiten übersprungen; die Permits gibt jede Aufgabe selbst frei
+        AtomicBoolean aborted = new AtomicBoolean();
+        try {
+            for (int page : pages) {
+                pagesInFlight.acquire();
+                BufferedImage img;
+                try {
+                    img = renderer.renderImageWithDPI(page, dpi, ImageType.RGB);
+                } catch (Exception | Error e) {
+                    pagesInFlight.release();
+                    throw e;
+                }
+                futures.add(ocrExecutor.submit(() -> {
+                    try {
+                        return aborted.get() ? "" : tesseractPool.doOcr(img);
+                    } finally {
+                        pagesInFlight.release();
+                    }
+                }));
+            }
+            String[] texts = new String[pages.length];
+            for (int i = 0; i < pages.length; i++) {
+                texts[i] = futures.get(i).get();
+            }
+            return texts;
+        } catch (ExecutionException e) {
+            aborted.set(true);
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (Exception | Error e) {
+            aborted.set(true);
+            throw e;
+        }
     }
 }
@@ -0,0 +1,130 @@
+package at.technikum_wien.ocrworker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Ergebnis-Cache für OCR-Text und Zusammenfassung, Schlüssel ist der SHA-256 der Originaldatei.
+ * Liegt in einem eigenen MinIO-Bucket, damit alle Worker-Replicas ihn teilen und er Neustarts übersteht.
+ * Cache-Fehler sind nie fatal: ein Fehler beim Lesen zählt als Miss, beim Schreiben wird nur geloggt.
+ */
+@Component
+public class ResultCache {
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    public static final String KIND_TEXT = "text";
+    public static final String KIND_SUMMARY = "summary";
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final MinioClient minio;
+    private final String bucket;
+    private final boolean enabled;
+    private final MeterRegistry meters;
+    private volatile boolean bucketReady;
+
+    public ResultCache(MinioClient minio, MeterRegistry meters,
+                       @Value("${RESULT_CACHE_BUCKET:ocr-cache}") String bucket,
+                       @Value("${RESULT_CACHE_ENABLED:true}") boolean enabled) {
+        this.minio = minio;
+        this.meters = meters;
+        this.bucket = bucket;
+        this.enabled = enabled;
+    }
+
+    public Optional<String> getText(String contentHash) {
+        return get(KIND_TEXT, contentHash);
+    }
+
+    public void putText(String contentHash, String text) {
+        put(KIND_TEXT, contentHash, text);
+    }
+
+    public Optional<String> getSummary(String contentHash) {
+        return get(KIND_SUMMARY, contentHash);
+    }
+
+    public void putSummary(String contentHash, String summary) {
+        put(KIND_SUMMARY, contentHash, summary);
+    }
+
+    private Optional<String> get(String kind, String contentHash) {
+        if (!usable(contentHash)) return Optional.empty();
+        Optional<String> result;
+        try (var in = minio.getObject(GetObjectArgs.builder().bucket(bucket).object(key(kind, contentHash)).build())) {
+            result = Optional.of(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if (!"NoSuchKey".equals(code) && !"NoSuchBucket".equals(code)) {
+                log.warn("Result cache read failed kind={} hash={}: {}", kind, contentHash, e.getMessage());
+            }
+            result = Optional.empty();
+        } catch (Exception e) {
+            log.warn("Result cache read failed kind={} hash={}: {}", kind, contentHash, e.getMessage());
+            result = Optional.empty();
+        }
+        lookups(kind, result.isPresent()).increment();
+        return result;
+    }
+
+    private void put(String kind, String contentHash, String value) {
+        if (!usable(contentHash) || value == null) return;
+        try {
+            ensureBucket();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            minio.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(key(kind, contentHash))
+                    .stream(new ByteArrayInputStream(bytes), bytes.length, -1)
+                    .contentType("text/plain; charset=utf-8")
+                    .build());
+        } catch (Exception e) {
+            log.warn("Result cache write failed kind={} hash={}: {}", kind, contentHash, e.getMessage());
+        }
+    }
+
+    private boolean usable(String contentHash) {
+        return enabled && contentHash != null && SHA256_HEX.matcher(contentHash).matches();
+    }
+
+    private void ensureBucket() throws Exception {
+        if (bucketReady) return;
+        if (!minio.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+            try {
+                minio.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+            } catch (ErrorResponseException e) {
+                // andere Replica war schneller
+                if (!"BucketAlreadyOwnedByYou".equals(e.errorResponse().code())) throw e;
+            }
+        }
+        bucketReady = true;
+    }
+
+    private Counter lookups(String kind, boolean hit) {
+        // Trefferquote = result=hit / alle Lookups je kind
+        return Counter.builder("ocrworker.result_cache.lookups")
+                .description("Lookups im Ergebnis-Cache")
+                .tag("kind", kind)
+                .tag("result", hit ? "hit" : "miss")
+                .register(meters);
+    }
+
+    private static String key(String kind, String contentHash) {
+        return kind + "/" + contentHash.substring(0, 2) + "/" + contentHash + ".txt";
+    }
+}
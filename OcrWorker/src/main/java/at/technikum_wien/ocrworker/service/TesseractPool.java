@@ -0,0 +1,40 @@
+package at.technikum_wien.ocrworker.service;
+
+import net.sourceforge.tess4j.ITesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Fester Pool von Tesseract-Instanzen. Tesseract ist nicht thread-safe –
+ * jede Instanz wird daher exklusiv für genau einen OCR-Aufruf ausgeliehen.
+ */
+class TesseractPool {
+
+    private final BlockingQueue<ITesseract> idle;
+    private final int size;
+
+    TesseractPool(int size, Supplier<ITesseract> factory) {
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            idle.add(factory.get());
+        }
+    }
+
+    String doOcr(BufferedImage img) throws TesseractException, InterruptedException {
+        ITesseract tesseract = idle.take();
+        try {
+            return tesseract.doOCR(img);
+        } finally {
+            idle.add(tesseract);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+}
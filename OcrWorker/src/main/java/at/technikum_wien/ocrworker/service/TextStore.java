@@ -0,0 +1,144 @@
+package at.technikum_wien.ocrworker.service;
+
+import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
+import at.technikum_wien.ocrworker.model.DocumentUploadedEvent;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.SetBucketLifecycleArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Claim-Check für OCR-Texte: ab {@code TEXT_INLINE_MAX_CHARS} Zeichen wird der Text gzip-komprimiert
+ * in den Text-Bucket geschrieben und nur der Schlüssel über RabbitMQ geschickt.
+ * Objekte bleiben nach der Zusammenfassung liegen, damit eine erneut zugestellte Nachricht sie noch lesen kann;
+ * aufgeräumt wird nur über die Lifecycle-Regel des Buckets ({@code TEXT_RETENTION_DAYS}).
+ */
+@Component
+public class TextStore {
+    private static final Logger log = LoggerFactory.getLogger(TextStore.class);
+
+    private final MinioClient minio;
+    private final String bucket;
+    private final int inlineMaxChars;
+    private final boolean enabled;
+    private final int retentionDays;
+    private volatile boolean bucketReady;
+
+    public TextStore(MinioClient minio,
+                     @Value("${TEXT_BUCKET:texts}") String bucket,
+                     @Value("${TEXT_INLINE_MAX_CHARS:65536}") int inlineMaxChars,
+                     @Value("${TEXT_CLAIM_CHECK_ENABLED:true}") boolean enabled,
+                     @Value("${TEXT_RETENTION_DAYS:7}") int retentionDays) {
+        this.minio = minio;
+        this.bucket = bucket;
+        this.inlineMaxChars = inlineMaxChars;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+    }
+
+    /** Baut das OCR-completed-Event: Text inline oder – über der Schwelle – als Verweis auf den Text-Bucket */
+    public DocumentOcrCompletedEvent completedEvent(DocumentUploadedEvent evt, String text) throws Exception {
+        if (!enabled || text.length() <= inlineMaxChars) {
+            return new DocumentOcrCompletedEvent(evt.id(), evt.storageBucket(), evt.storageKey(), text, evt.contentHash());
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(utf8));
+        byte[] gz = gzip(utf8);
+        String key = evt.id() + "/" + sha256 + ".txt.gz";
+
+        ensureBucket();
+        minio.putObject(PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(key)
+                .stream(new ByteArrayInputStream(gz), gz.length, -1)
+                .contentType("application/gzip")
+                .build());
+        log.info("OCR text offloaded id={} key={} bytes={} compressed={}", evt.id(), key, utf8.length, gz.length);
+        return new DocumentOcrCompletedEvent(evt.id(), evt.storageBucket(), evt.storageKey(), null,
+                evt.contentHash(), key, sha256, utf8.length);
+    }
+
+    /** Text des Events; ausgelagerte Texte werden gestreamt entpackt und gegen den SHA-256 geprüft */
+    public String text(DocumentOcrCompletedEvent evt) throws Exception {
+        if (!evt.offloaded()) return evt.extractedText();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        StringBuilder text = new StringBuilder((int) Math.min(evt.textLength(), Integer.MAX_VALUE - 8));
+        try (var obj = minio.getObject(GetObjectArgs.builder().bucket(bucket).object(evt.textKey()).build());
+             Reader reader = new InputStreamReader(
+                     new DigestInputStream(new GZIPInputStream(obj, 64 * 1024), digest), StandardCharsets.UTF_8)) {
+            char[] buf = new char[16 * 1024];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                text.append(buf, 0, n);
+            }
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equals(evt.textSha256())) {
+            throw new IOException("Checksum mismatch for text " + evt.textKey() + ": " + actual);
+        }
+        return text.toString();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 64 * 1024)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private void ensureBucket() throws Exception {
+        if (bucketReady) return;
+        if (!minio.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+            try {
+                minio.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+                expireAfter(retentionDays);
+            } catch (ErrorResponseException e) {
+                // andere Replica war schneller
+                if (!"BucketAlreadyOwnedByYou".equals(e.errorResponse().code())) throw e;
+            }
+        }
+        bucketReady = true;
+    }
+
+    private void expireAfter(int days) {
+        if (days <= 0) return;
+        try {
+            LifecycleRule rule = new LifecycleRule(Status.ENABLED, null,
+                    new Expiration((ZonedDateTime) null, days, null), new RuleFilter(""), "expire-texts",
+                    null, null, null);
+            minio.setBucketLifecycle(SetBucketLifecycleArgs.builder()
+                    .bucket(bucket)
+                    .config(new LifecycleConfiguration(List.of(rule)))
+                    .build());
+        } catch (Exception e) {
+            log.warn("Could not set lifecycle on bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+}
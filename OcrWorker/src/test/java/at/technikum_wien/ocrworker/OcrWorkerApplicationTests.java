@@ -1,12 +1,16 @@
 package at.technikum_wien.ocrworker;
 
-import at.technikum_wien.ocrworker.elasticsearch.DocumentIndexRepository;
+import at.technikum_wien.ocrworker.client.BackendUpdateBatcher;
 import at.technikum_wien.ocrworker.service.OcrService;
 import io.minio.MinioClient;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class OcrWorkerApplicationTests {
@@ -17,16 +21,20 @@ class OcrWorkerApplicationTests {
     @MockBean
     private ConnectionFactory connectionFactory;
 
-    // Verhindert, dass Spring versucht, Elasticsearch zu kontaktieren
-    @MockBean
-    private DocumentIndexRepository documentIndexRepository;
-
     // Verhindert potenzielle MinIO-Verbindungsfehler
     @MockBean
     private MinioClient minioClient;
 
+    @Autowired
+    private ApplicationContext context;
+
     @Test
     void contextLoads() {
         // Der Context fährt jetzt hoch, weil alle externen Verbindungen gemockt sind
     }
+
+    @Test
+    void withoutGenAi_ShouldNotStartBackendBatcher() {
+        assertThat(context.getBeansOfType(BackendUpdateBatcher.class)).isEmpty();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package at.technikum_wien.ocrworker.benchmark;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Heap pro OCR-Job beim Laden eines großen (Scan-)PDFs: byte[] + Loader.loadPDF(byte[]) gegen
+ * Scratch-Datei + RandomAccessReadBufferedFile mit gemischtem Stream-Cache.
+ * Gemessen wird der Heap, der gehalten wird, solange das Dokument offen ist (also während der ganzen OCR).
+ * Nur manuell: mvn test -Dtest=PdfLoadingBenchmarkTest -Dbenchmark=true [-Dbenchmark.pdf.mb=50]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PdfLoadingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfLoadingBenchmarkTest.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareByteArrayWithScratchFileLoading() throws Exception {
+        int targetMb = Integer.getInteger("benchmark.pdf.mb", 50);
+        Path pdf = createScanLikePdf(tempDir.resolve("scan.pdf"), targetMb);
+        log.info(String.format("PDF: %.1f MB", Files.size(pdf) / (1024.0 * 1024.0)));
+        log.info(String.format("%-34s | %16s", "variant", "retained heap MB"));
+
+        long base = usedAfterGc();
+        byte[] bytes = Files.readAllBytes(pdf);
+        try (PDDocument doc = Loader.loadPDF(bytes)) {
+            stripAllPages(doc);
+            report("readAllBytes + loadPDF(byte[])", usedAfterGc() - base);
+        }
+        bytes = null;
+
+        base = usedAfterGc();
+        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBufferedFile(pdf),
+                MemoryUsageSetting.setupMixed(4 * 1024 * 1024).setTempDir(tempDir.toFile()).streamCache)) {
+            stripAllPages(doc);
+            report("scratch file + mixed cache (4 MB)", usedAfterGc() - base);
+        }
+    }
+
+    private static void stripAllPages(PDDocument doc) throws Exception {
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int page = 1; page <= doc.getNumberOfPages(); page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            stripper.getText(doc);
+            doc.getPage(page - 1).getResources().getXObjectNames().forEach(n -> {});
+        }
+    }
+
+    private static void report(String variant, long bytes) {
+        log.info(String.format("%-34s | %16.1f", variant, bytes / (1024.0 * 1024.0)));
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Seiten mit verrauschten JPEGs (kaum komprimierbar) wie bei gescannten Dokumenten */
+    private static Path createScanLikePdf(Path target, int targetMb) throws Exception {
+        Random random = new Random(42);
+        try (PDDocument doc = new PDDocument()) {
+            BufferedImage scan = new BufferedImage(1240, 1754, BufferedImage.TYPE_INT_RGB);
+            long written = 0;
+            while (written < targetMb * 1024L * 1024L) {
+                for (int y = 0; y < scan.getHeight(); y++) {
+                    for (int x = 0; x < scan.getWidth(); x++) {
+                        scan.setRGB(x, y, random.nextInt(0xFFFFFF));
+                    }
+                }
+                PDImageXObject img = JPEGFactory.createFromImage(doc, scan, 0.9f);
+                written += img.getCOSObject().getLength();
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.drawImage(img, 0, 0, PDRectangle.A4.getWidth(), PDRectangle.A4.getHeight());
+                }
+            }
+            doc.save(target.toFile());
+        }
+        return target;
+    }
+}
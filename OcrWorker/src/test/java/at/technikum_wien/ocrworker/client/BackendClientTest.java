@@ -2,9 +2,14 @@ package at.technikum_wien.ocrworker.client;
 
 import at.technikum_wien.ocrworker.client.BackendClient.DocumentDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class BackendClientTest {
 
@@ -78,4 +83,28 @@ class BackendClientTest {
 
         assertThat(dto.id).isEqualTo(300);
     }
-}
\ No newline at end of file
+
+    @Test
+    void submitOcrResult_WhenBackendHangs_ShouldFailAfterReadTimeout() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            BackendClient client = new BackendClient(mapper,
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/api", 4, 500, 200, 1000, false);
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> client.submitOcrResult(1, "OCR-Text")).isInstanceOf(IOException.class);
+            assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2000);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package at.technikum_wien.ocrworker.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BackendUpdateBatcherTest {
+
+    private final BackendClient backend = mock(BackendClient.class);
+    private BackendUpdateBatcher batcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batcher.shutdown();
+    }
+
+    @Test
+    void updateSummary_UnderLoad_ShouldCoalesceIntoFewBatches() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        when(backend.batchUpdate(anyList())).thenAnswer(inv -> {
+            List<BackendClient.BatchItem> items = inv.getArgument(0);
+            batchSizes.add(items.size());
+            Thread.sleep(50); // langsames Backend -> dahinter staut es sich
+            return items.stream().map(i -> new BackendClient.BatchResult(i.id(), 200, null)).toList();
+        });
+        batcher = new BackendUpdateBatcher(backend, true, 100);
+
+        List<Future<?>> calls = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                int id = i;
+                calls.add(pool.submit(() -> {
+                    batcher.updateSummary(id, "s" + id);
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> f : calls) f.get();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(200);
+        assertThat(batchSizes).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(100));
+        assertThat(batchSizes.size()).isLessThan(20);
+    }
+
+    @Test
+    void updateSummary_ItemRejected_ShouldFailOnlyThatCaller() throws Exception {
+        when(backend.batchUpdate(anyList())).thenAnswer(inv -> {
+            List<BackendClient.BatchItem> items = inv.getArgument(0);
+            return items.stream().map(i -> i.id() == 2
+                    ? new BackendClient.BatchResult(2, 409, "already set")
+                    : new BackendClient.BatchResult(i.id(), 200, null)).toList();
+        });
+        batcher = new BackendUpdateBatcher(backend, true, 100);
+
+        batcher.updateSummary(1, "ok");
+        assertThatThrownBy(() -> batcher.updateSummary(2, "zu spät"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("409");
+    }
+
+    @Test
+    void updateSummary_Disabled_ShouldUseSingleEndpoint() throws Exception {
+        batcher = new BackendUpdateBatcher(backend, false, 100);
+
+        batcher.updateSummary(5, "s");
+
+        verify(backend).updateSummary(5, "s");
+        verify(backend, never()).batchUpdate(anyList());
+    }
+}
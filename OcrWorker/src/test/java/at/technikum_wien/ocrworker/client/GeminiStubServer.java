@@ -0,0 +1,107 @@
+package at.technikum_wien.ocrworker.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lokaler Gemini-Stub für Tests: erlaubt {@code quota} Anfragen pro festem Zeitfenster und antwortet
+ * darüber hinaus mit 429 + Retry-After (und retryDelay im Body), wie die echte API.
+ */
+class GeminiStubServer implements AutoCloseable {
+
+    private static final String OK_BODY = """
+            {"candidates":[{"content":{"parts":[{"text":"Kurze Zusammenfassung."}]}}]}""";
+
+    private final HttpServer server;
+    private final int quota;
+    private final long windowMillis;
+    private final long latencyMillis;
+    private final AtomicInteger ok = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger forcedThrottles = new AtomicInteger();
+    private long windowStart = System.currentTimeMillis();
+    private int usedInWindow;
+
+    GeminiStubServer(int quota, long windowMillis, long latencyMillis) throws IOException {
+        this.quota = quota;
+        this.windowMillis = windowMillis;
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Die nächsten {@code n} Anfragen unabhängig vom Kontingent mit 429 beantworten */
+    void throttleNext(int n) {
+        forcedThrottles.set(n);
+    }
+
+    int ok() {
+        return ok.get();
+    }
+
+    int throttled() {
+        return throttled.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        long retryAfterMillis = admit();
+        if (retryAfterMillis > 0) {
+            throttled.incrementAndGet();
+            long seconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+            exchange.getResponseHeaders().add("Retry-After", String.valueOf(seconds));
+            respond(exchange, 429, """
+                    {"error":{"code":429,"status":"RESOURCE_EXHAUSTED","details":[{"retryDelay":"%ds"}]}}""".formatted(seconds));
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ok.incrementAndGet();
+        respond(exchange, 200, OK_BODY);
+    }
+
+    /** @return 0 wenn zugelassen, sonst ms bis zum nächsten Fenster */
+    private synchronized long admit() {
+        long now = System.currentTimeMillis();
+        if (forcedThrottles.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return 1000;
+        }
+        if (now - windowStart >= windowMillis) {
+            windowStart = now - (now - windowStart) % windowMillis;
+            usedInWindow = 0;
+        }
+        if (usedInWindow < quota) {
+            usedInWindow++;
+            return 0;
+        }
+        return windowStart + windowMillis - now;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
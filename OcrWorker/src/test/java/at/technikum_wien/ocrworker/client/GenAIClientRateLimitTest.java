@@ -0,0 +1,89 @@
+package at.technikum_wien.ocrworker.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenAIClientRateLimitTest {
+
+    @Test
+    void summarize_On429_ShouldHonorRetryAfterAndSucceed() throws Exception {
+        try (GeminiStubServer stub = new GeminiStubServer(100, 1000, 0)) {
+            stub.throttleNext(1);
+            GenAIClient client = new GenAIClient("key", stub.baseUrl(), "m", 3, 5000L);
+
+            long start = System.nanoTime();
+            String summary = client.summarize("Text");
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(summary).isEqualTo("Kurze Zusammenfassung.");
+            assertThat(stub.throttled()).isEqualTo(1);
+            // Retry-After: 1 -> mindestens eine Sekunde gewartet
+            assertThat(elapsedMs).isGreaterThanOrEqualTo(1000);
+        }
+    }
+
+    @Test
+    void summarize_UnderLoadWithLimiter_ShouldStayWithinQuota() throws Exception {
+        // Stub: 10 Anfragen pro Sekunde; Limiter: 300/min = 5/s, Burst 1 s -> höchstens 5 + 5 in jedem Fenster
+        try (GeminiStubServer stub = new GeminiStubServer(10, 1000, 20)) {
+            GenAiRateLimiter limiter = new GenAiRateLimiter(300, 10_000_000, 1000, 4, 32, 5000);
+            GenAIClient client = new GenAIClient("key", stub.baseUrl(), "m", 5, 5000L, limiter);
+
+            List<Future<String>> results = new ArrayList<>();
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 30; i++) {
+                    results.add(pool.submit(() -> client.summarize("Dokumenttext")));
+                }
+            }
+            for (Future<String> r : results) {
+                assertThat(r.get()).isEqualTo("Kurze Zusammenfassung.");
+            }
+            assertThat(stub.ok()).isEqualTo(30);
+            assertThat(stub.throttled()).isLessThanOrEqualTo(1);
+        }
+    }
+
+    @Test
+    void retryAfter_ShouldParseSecondsHeaderAndGeminiBody() {
+        assertThat(GenAIClient.retryAfter("7", "")).isEqualTo(Duration.ofSeconds(7));
+        assertThat(GenAIClient.retryAfter(null, "{\"details\":[{\"retryDelay\": \"2.5s\"}]}"))
+                .isEqualTo(Duration.ofMillis(2500));
+        assertThat(GenAIClient.retryAfter(null, "{}")).isNull();
+    }
+
+    @Test
+    void backoff_ShouldStayWithinExponentialCeiling() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long ceiling = Math.min(30_000, 500L << (attempt - 1));
+            assertThat(GenAIClient.backoff(attempt)).isBetween(0L, ceiling);
+        }
+    }
+
+    @Test
+    void aimd_ShouldHalveOncePerRoundOnThrottleAndGrowOnSuccess() throws Exception {
+        AimdLimiter aimd = new AimdLimiter(8, 1, 16);
+        long a = aimd.acquire();
+        long b = aimd.acquire();
+
+        aimd.release(a, AimdLimiter.Outcome.THROTTLED);
+        aimd.release(b, AimdLimiter.Outcome.THROTTLED); // gleiche Runde -> keine zweite Halbierung
+        assertThat(aimd.limit()).isEqualTo(4);
+
+        // gestartet nach der Senkung -> neue Runde
+        aimd.release(aimd.acquire(), AimdLimiter.Outcome.THROTTLED);
+        assertThat(aimd.limit()).isEqualTo(2);
+
+        for (int i = 0; i < 20; i++) {
+            aimd.release(aimd.acquire(), AimdLimiter.Outcome.SUCCESS);
+        }
+        assertThat(aimd.limit()).isGreaterThan(2);
+    }
+}
@@ -1,9 +1,12 @@
 package at.technikum_wien.ocrworker.client;
 
+import at.technikum_wien.ocrworker.exceptions.GenAiException;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class GenAIClientTest {
 
@@ -17,7 +20,7 @@ class GenAIClientTest {
     );
 
     @Test
-    void extractGeminiText_ShouldExtractText_FromValidGeminiResponse() {
+    void extractGeminiText_ShouldExtractText_FromValidGeminiResponse() throws Exception {
         // Simuliertes JSON von der Google Gemini API
         String jsonResponse = """
             {
@@ -34,19 +37,77 @@ class GenAIClientTest {
             }
             """;
 
-        // Zugriff auf private Methode via Reflection
-        String result = (String) ReflectionTestUtils.invokeMethod(client, "extractGeminiText", jsonResponse);
+        String result = client.extractGeminiText(jsonResponse);
 
         assertThat(result).isEqualTo("Das ist eine Zusammenfassung.");
     }
 
     @Test
-    void extractGeminiText_ShouldReturnOriginalJson_WhenStructureInvalid() {
-        String invalidJson = "{ \"error\": \"something wrong\" }";
+    void extractGeminiText_ShouldThrow_WhenStructureInvalid() {
+        // kein Fallback auf das Roh-JSON: es würde als Zusammenfassung gespeichert und gecacht
+        assertThatThrownBy(() -> client.extractGeminiText("{ \"error\": \"something wrong\" }"))
+                .isInstanceOf(GenAiException.class);
+        assertThatThrownBy(() -> client.extractGeminiText("kein json"))
+                .isInstanceOf(GenAiException.class);
+    }
+
+    @Test
+    void chunk_ShouldSplitOnPageMarkersAndRespectMaxSize() {
+        StringBuilder text = new StringBuilder("a".repeat(150));
+        for (int page = 2; page <= 6; page++) {
+            text.append("\n\n--- Page ").append(page).append(" ---\n\n").append("b".repeat(150));
+        }
+
+        List<String> chunks = GenAIClient.chunk(text.toString(), 400);
+
+        assertThat(chunks).hasSize(3);
+        assertThat(chunks).allSatisfy(c -> assertThat(c.length()).isLessThanOrEqualTo(400));
+        // Seiten werden nie zerschnitten, jeder weitere Chunk beginnt mit einem Seitenmarker
+        assertThat(chunks.get(1)).startsWith("--- Page 3 ---");
+        assertThat(chunks.get(2)).startsWith("--- Page 5 ---");
+    }
+
+    @Test
+    void chunk_ShouldSplitOversizedPageAtWhitespace() {
+        String page = "wort ".repeat(200).strip(); // ~1000 Zeichen, eine Seite
+
+        List<String> chunks = GenAIClient.chunk(page, 300);
+
+        assertThat(chunks).hasSizeGreaterThan(3);
+        assertThat(chunks).allSatisfy(c -> {
+            assertThat(c.length()).isLessThanOrEqualTo(300);
+            assertThat(c).doesNotStartWith("ort");
+        });
+    }
+
+    @Test
+    void summarize_LongText_ShouldMapChunksAndReduceOnce() throws Exception {
+        try (GeminiStubServer stub = new GeminiStubServer(1000, 1000, 0)) {
+            // Schwelle 1000 Zeichen, Chunks bis 100 Tokens (~400 Zeichen)
+            GenAIClient chunked = new GenAIClient("key", stub.baseUrl(), "m", 3, 5000L,
+                    GenAiRateLimiter.unlimited(), 1000, 100);
+            StringBuilder text = new StringBuilder("x".repeat(150));
+            for (int page = 2; page <= 10; page++) {
+                text.append("\n\n--- Page ").append(page).append(" ---\n\n").append("x".repeat(150));
+            }
+
+            String summary = chunked.summarize(text.toString());
+
+            assertThat(summary).isEqualTo("Kurze Zusammenfassung.");
+            // 5 Chunks à 2 Seiten + 1 Reduce-Aufruf
+            assertThat(stub.ok()).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void summarize_ShortText_ShouldUseSingleCall() throws Exception {
+        try (GeminiStubServer stub = new GeminiStubServer(1000, 1000, 0)) {
+            GenAIClient chunked = new GenAIClient("key", stub.baseUrl(), "m", 3, 5000L,
+                    GenAiRateLimiter.unlimited(), 1000, 100);
 
-        String result = (String) ReflectionTestUtils.invokeMethod(client, "extractGeminiText", invalidJson);
+            chunked.summarize("kurzer Text");
 
-        // Fallback-Verhalten: Original JSON zurückgeben
-        assertThat(result).isEqualTo(invalidJson);
+            assertThat(stub.ok()).isEqualTo(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package at.technikum_wien.ocrworker.client;
+
+import at.technikum_wien.ocrworker.exceptions.GenAiException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Erfolgreiche Zusammenfassungen pro Minute gegen einen quotierten Gemini-Stub (600 RPM, 200 ms Latenz)
+ * bei 32 parallelen Aufrufern: ohne Limiter (nur Retry-After/Backoff) gegen Token-Bucket + AIMD.
+ * Nur manuell: mvn test -Dtest=GenAiThroughputBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GenAiThroughputBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(GenAiThroughputBenchmarkTest.class);
+
+    private static final int CALLERS = 32;
+    private static final long DURATION_MS = 20_000;
+
+    @Test
+    void compareUnlimitedWithRateLimitedClient() throws Exception {
+        log.info(String.format("%-22s | %10s | %10s | %8s | %8s", "variant", "ok/min", "429s", "failed", "limit"));
+        run("unlimited", GenAiRateLimiter.unlimited());
+        run("token bucket + AIMD", new GenAiRateLimiter(600, 10_000_000, 1000, 4, CALLERS, 2000));
+    }
+
+    private static void run(String name, GenAiRateLimiter limiter) throws Exception {
+        try (GeminiStubServer stub = new GeminiStubServer(10, 1000, 200)) {
+            GenAIClient client = new GenAIClient("key", stub.baseUrl(), "m", 3, 10_000L, limiter);
+            AtomicInteger failed = new AtomicInteger();
+            long deadline = System.currentTimeMillis() + DURATION_MS;
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CALLERS; i++) {
+                    pool.submit(() -> {
+                        while (System.currentTimeMillis() < deadline) {
+                            try {
+                                if (client.summarize("Dokumenttext") == null) {
+                                    failed.incrementAndGet();
+                                }
+                            } catch (GenAiException e) {
+                                failed.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+            }
+            log.info(String.format("%-22s | %10.0f | %10d | %8d | %8s", name,
+                    stub.ok() * 60_000.0 / DURATION_MS, stub.throttled(), failed.get(),
+                    limiter.concurrencyLimit()));
+        }
+    }
+}
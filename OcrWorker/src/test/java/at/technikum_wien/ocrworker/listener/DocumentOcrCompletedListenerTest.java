@@ -0,0 +1,164 @@
+package at.technikum_wien.ocrworker.listener;
+
+import at.technikum_wien.ocrworker.client.BackendUpdateBatcher;
+import at.technikum_wien.ocrworker.client.GenAIClient;
+import at.technikum_wien.ocrworker.exceptions.GenAiException;
+import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
+import at.technikum_wien.ocrworker.service.ResultCache;
+import at.technikum_wien.ocrworker.service.TextStore;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DocumentOcrCompletedListenerTest {
+
+    private final GenAIClient genAi = mock(GenAIClient.class);
+    private final BackendUpdateBatcher backend = mock(BackendUpdateBatcher.class);
+    private final ResultCache resultCache = mock(ResultCache.class);
+    private final TextStore textStore = mock(TextStore.class);
+    private final Channel channel = mock(Channel.class);
+    private DocumentOcrCompletedListener listener;
+
+    private static final String HASH = "ab".repeat(32);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(textStore.text(any())).thenAnswer(inv -> ((DocumentOcrCompletedEvent) inv.getArgument(0)).extractedText());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        listener.shutdown();
+    }
+
+    @Test
+    void onMessage_BlockingMode_ShouldPropagateErrorsForDlq() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "blocking", 10);
+        when(genAi.summarize(anyString())).thenThrow(new GenAiException("429"));
+
+        assertThatThrownBy(() -> listener.onMessage(event(1), channel, 1L)).isInstanceOf(RuntimeException.class);
+        verifyNoInteractions(channel);
+        verify(resultCache, never()).putSummary(anyString(), anyString());
+    }
+
+    @Test
+    void onMessage_CachedSummary_ShouldSkipModelCall() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "blocking", 10);
+        when(resultCache.getSummary(HASH)).thenReturn(Optional.of("aus dem Cache"));
+
+        listener.onMessage(event(9), channel, 1L);
+
+        verify(backend).updateSummary(9, "aus dem Cache");
+        verifyNoInteractions(genAi);
+        verify(resultCache, never()).putSummary(anyString(), anyString());
+    }
+
+    @Test
+    void onMessage_CacheMiss_ShouldStoreSummaryUnderContentHash() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "blocking", 10);
+        when(genAi.summarize(anyString())).thenReturn("neu");
+
+        listener.onMessage(event(4), channel, 1L);
+
+        verify(resultCache).putSummary(HASH, "neu");
+        verify(backend).updateSummary(4, "neu");
+    }
+
+    @Test
+    void onMessage_OffloadedText_ShouldLoadFromTextStoreAndKeepItForRedelivery() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "blocking", 10);
+        var evt = new DocumentOcrCompletedEvent(8, "documents", "key-8", null, HASH, "8/abc.txt.gz", "abc", 100_000);
+        when(textStore.text(evt)).thenReturn("langer Text");
+        when(genAi.summarize("langer Text")).thenReturn("kurz");
+
+        listener.onMessage(evt, channel, 1L);
+        // Redelivery/Duplikat ohne Cache-Treffer: Text ist noch da
+        listener.onMessage(evt, channel, 2L);
+
+        verify(backend, times(2)).updateSummary(8, "kurz");
+        verify(textStore, times(2)).text(evt);
+    }
+
+    @Test
+    void onMessage_VirtualMode_ShouldAckAfterSummaryStored() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "virtual", 10);
+        when(genAi.summarize(anyString())).thenReturn("Zusammenfassung");
+
+        listener.onMessage(event(7), channel, 42L);
+
+        verify(channel, timeout(2000)).basicAck(42L, false);
+        verify(backend).updateSummary(7, "Zusammenfassung");
+    }
+
+    @Test
+    void onMessage_VirtualMode_OnFailure_ShouldNackWithoutRequeue() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "virtual", 10);
+        when(genAi.summarize(anyString())).thenThrow(new GenAiException("quota"));
+
+        listener.onMessage(event(3), channel, 5L);
+
+        verify(channel, timeout(2000)).basicNack(5L, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void onMessage_VirtualMode_OnError_ShouldStillNackAndFreeSlot() throws Exception {
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "virtual", 1);
+        when(genAi.summarize(anyString())).thenThrow(new StackOverflowError("deep")).thenReturn("ok");
+
+        listener.onMessage(event(1), channel, 1L);
+        verify(channel, timeout(2000)).basicNack(1L, false, false);
+
+        // mit nur einem Slot würde die zweite Nachricht ohne Freigabe ewig warten
+        listener.onMessage(event(2), channel, 2L);
+        verify(channel, timeout(2000)).basicAck(2L, false);
+    }
+
+    @Test
+    void onMessage_VirtualMode_ShouldCapInFlightCalls() throws Exception {
+        int cap = 3;
+        listener = new DocumentOcrCompletedListener(genAi, backend, resultCache, textStore, new SimpleMeterRegistry(), "virtual", cap);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(genAi.summarize(anyString())).thenAnswer(inv -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return "ok";
+        });
+
+        // Listener-Thread: die vierte Nachricht muss warten, bis ein Slot frei wird
+        Thread consumer = Thread.ofPlatform().start(() -> {
+            try {
+                for (int i = 0; i < 10; i++) listener.onMessage(event(i), channel, i);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread.sleep(300);
+        assertThat(running.get()).isEqualTo(cap);
+        assertThat(consumer.isAlive()).isTrue();
+
+        release.countDown();
+        consumer.join(5000);
+        verify(channel, timeout(5000).times(10)).basicAck(anyLong(), eq(false));
+        assertThat(maxRunning.get()).isEqualTo(cap);
+    }
+
+    private static DocumentOcrCompletedEvent event(int id) {
+        return new DocumentOcrCompletedEvent(id, "documents", "key-" + id, "Text von Dokument " + id, HASH);
+    }
+}
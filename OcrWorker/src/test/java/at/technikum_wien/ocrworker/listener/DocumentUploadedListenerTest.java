@@ -0,0 +1,71 @@
+package at.technikum_wien.ocrworker.listener;
+
+import at.technikum_wien.ocrworker.client.BackendClient;
+import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
+import at.technikum_wien.ocrworker.model.DocumentUploadedEvent;
+import at.technikum_wien.ocrworker.service.OcrService;
+import at.technikum_wien.ocrworker.service.ResultCache;
+import at.technikum_wien.ocrworker.service.TextStore;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DocumentUploadedListenerTest {
+
+    private static final String HASH = "cd".repeat(32);
+
+    private final MinioClient minio = mock(MinioClient.class);
+    private final OcrService ocrService = mock(OcrService.class);
+    private final BackendClient backend = mock(BackendClient.class);
+    private final RabbitTemplate rabbit = mock(RabbitTemplate.class);
+    private final ResultCache resultCache = mock(ResultCache.class);
+    private final TextStore textStore = new TextStore(minio, "texts", 65536, true, 7);
+    private final DocumentUploadedListener listener =
+            new DocumentUploadedListener(minio, ocrService, backend, rabbit, resultCache, textStore);
+
+    @Test
+    void onMessage_CachedText_ShouldSkipDownloadAndOcr() throws Exception {
+        when(resultCache.getText(HASH)).thenReturn(Optional.of("bekannter Text"));
+
+        long start = System.nanoTime();
+        listener.onMessage(event(1));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        verifyNoInteractions(minio, ocrService);
+        verify(backend).submitOcrResult(1, "bekannter Text");
+        verify(rabbit).convertAndSend(eq("documents.ocr.completed"),
+                eq(new DocumentOcrCompletedEvent(1, "documents", "key-1", "bekannter Text", HASH)));
+        assertThat(elapsedMs).isLessThan(500);
+    }
+
+    @Test
+    void onMessage_CacheMiss_ShouldOcrAndStoreText() throws Exception {
+        when(minio.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of(), "documents", "", "key-2", new ByteArrayInputStream(new byte[]{1, 2, 3})));
+        when(ocrService.extractPreferPdfTextThenOcr(any(Path.class))).thenReturn("OCR-Text");
+
+        listener.onMessage(event(2));
+
+        verify(ocrService).extractPreferPdfTextThenOcr(any(Path.class));
+        verify(resultCache).putText(HASH, "OCR-Text");
+        verify(backend).submitOcrResult(2, "OCR-Text");
+    }
+
+    private static DocumentUploadedEvent event(int id) {
+        return new DocumentUploadedEvent(id, "Titel", "a.pdf", "application/pdf", 3, LocalDateTime.now(),
+                "documents", "key-" + id, HASH);
+    }
+}
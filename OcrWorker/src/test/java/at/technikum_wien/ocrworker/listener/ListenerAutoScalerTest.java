@@ -0,0 +1,104 @@
+package at.technikum_wien.ocrworker.listener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ListenerAutoScalerTest {
+
+    private static final ListenerAutoScaler.Stage OCR =
+            new ListenerAutoScaler.Stage("ocr", "documents.uploaded", 1, 4, true);
+    private static final ListenerAutoScaler.Stage GENAI =
+            new ListenerAutoScaler.Stage("genai", "documents.ocr.completed", 2, 8, false);
+
+    private RabbitListenerEndpointRegistry registry;
+    private AmqpAdmin admin;
+    private SimpleMessageListenerContainer ocrContainer;
+    private SimpleMessageListenerContainer genAiContainer;
+    private MeterRegistry meters;
+    private ListenerAutoScaler scaler;
+
+    @BeforeEach
+    void setUp() {
+        registry = mock(RabbitListenerEndpointRegistry.class);
+        admin = mock(AmqpAdmin.class);
+        ocrContainer = container("ocr", 2);
+        genAiContainer = container("genai", 2);
+        meters = new SimpleMeterRegistry();
+        scaler = new ListenerAutoScaler(registry, admin, meters, () -> 0.5, List.of(OCR, GENAI));
+    }
+
+    @Test
+    void stages_GenAiInVirtualMode_ShouldOnlyScaleOcr() {
+        assertThat(ListenerAutoScaler.stages("documents.uploaded", 1, 4, "documents.ocr.completed", 2, 8, "virtual"))
+                .extracting(ListenerAutoScaler.Stage::listenerId).containsExactly("ocr");
+        assertThat(ListenerAutoScaler.stages("documents.uploaded", 1, 4, "documents.ocr.completed", 2, 8, "blocking"))
+                .extracting(ListenerAutoScaler.Stage::listenerId).containsExactly("ocr", "genai");
+    }
+
+    @Test
+    void scale_WithBacklog_ShouldAddConsumer() {
+        queueDepth("documents.uploaded", 10);
+
+        scaler.scale(OCR, 0.5);
+
+        verify(ocrContainer).setConcurrentConsumers(3);
+        assertThat(meters.get("ocrworker.listener.queue.depth").tag("stage", "ocr").gauge().value()).isEqualTo(10);
+    }
+
+    @Test
+    void scale_OcrWithBacklogButSaturatedCpu_ShouldRemoveConsumer() {
+        queueDepth("documents.uploaded", 10);
+
+        scaler.scale(OCR, 0.95);
+
+        verify(ocrContainer).setConcurrentConsumers(1);
+    }
+
+    @Test
+    void scale_GenAiIgnoresCpuLoad() {
+        queueDepth("documents.ocr.completed", 10);
+
+        scaler.scale(GENAI, 0.95);
+
+        verify(genAiContainer).setConcurrentConsumers(3);
+    }
+
+    @Test
+    void scale_WithEmptyQueueAtMinimum_ShouldNotChange() {
+        when(genAiContainer.getActiveConsumerCount()).thenReturn(2);
+        queueDepth("documents.ocr.completed", 0);
+
+        scaler.scale(GENAI, 0.1);
+
+        verify(genAiContainer, never()).setConcurrentConsumers(anyInt());
+    }
+
+    @Test
+    void consumersGauge_ShouldReportActiveConsumers() {
+        assertThat(meters.get("ocrworker.listener.consumers").tag("stage", "ocr").gauge().value()).isEqualTo(2);
+    }
+
+    private SimpleMessageListenerContainer container(String id, int consumers) {
+        SimpleMessageListenerContainer c = mock(SimpleMessageListenerContainer.class);
+        when(c.isRunning()).thenReturn(true);
+        when(c.getActiveConsumerCount()).thenReturn(consumers);
+        when(registry.getListenerContainer(id)).thenReturn(c);
+        return c;
+    }
+
+    private void queueDepth(String queue, int messages) {
+        when(admin.getQueueInfo(queue)).thenReturn(new QueueInformation(queue, messages, 1));
+    }
+}
@@ -1,15 +1,35 @@
 package at.technikum_wien.ocrworker.service;
 
+import net.sourceforge.tess4j.ITesseract;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class OcrServiceTest {
 
@@ -57,4 +77,137 @@ class OcrServiceTest {
         Boolean resultGarbage = (Boolean) ReflectionTestUtils.invokeMethod(ocrService, "isGoodEnough", garbage);
         assertThat(resultGarbage).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void ocrPages_ShouldRunInParallelButKeepPageOrder() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        OcrService parallel = new OcrService(tempDir.toString(), "eng", 72, 4, 4, () -> {
+            ITesseract t = mock(ITesseract.class);
+            try {
+                when(t.doOCR(any(BufferedImage.class))).thenAnswer(inv -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(30);
+                    running.decrementAndGet();
+                    // Seitenbreite identifiziert die Seite
+                    return "w" + ((BufferedImage) inv.getArgument(0)).getWidth();
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return t;
+        });
+
+        try (PDDocument doc = pdfWithPageWidths(100, 110, 120, 130, 140, 150, 160, 170)) {
+            String[] texts = parallel.ocrPages(doc, new int[]{0, 1, 2, 3, 4, 5, 6, 7});
+
+            assertThat(texts).containsExactly("w100", "w110", "w120", "w130", "w140", "w150", "w160", "w170");
+            assertThat(maxRunning.get()).isBetween(2, 4);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void ocrPages_WhenPageFails_ShouldPropagateAndReleaseAllPermits() throws Exception {
+        OcrService failing = new OcrService(tempDir.toString(), "eng", 72, 2, 2, () -> {
+            ITesseract t = mock(ITesseract.class);
+            try {
+                when(t.doOCR(any(BufferedImage.class))).thenThrow(new net.sourceforge.tess4j.TesseractException("boom"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return t;
+        });
+
+        try (PDDocument doc = pdfWithPageWidths(100, 100, 100, 100)) {
+            assertThatThrownBy(() -> failing.ocrPages(doc, new int[]{0, 1, 2, 3}))
+                    .hasMessageContaining("boom");
+            // Alle Permits müssen zurückgegeben sein, sonst würde der nächste Job blockieren
+            Thread.sleep(100);
+            Object semaphore = ReflectionTestUtils.getField(failing, "pagesInFlight");
+            assertThat(((java.util.concurrent.Semaphore) semaphore).availablePermits()).isEqualTo(2);
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    void extractPerPage_WithMixedDocument_ShouldOcrOnlyScannedPages() throws Exception {
+        ITesseract engine = mock(ITesseract.class);
+        when(engine.doOCR(any(BufferedImage.class))).thenReturn("Gescannter Text von Seite zwei\n");
+        OcrService hybrid = new OcrService(tempDir.toString(), "eng", 72, 1, 1, () -> engine);
+
+        try (PDDocument doc = new PDDocument()) {
+            addTextPage(doc, "Digitaler Text auf der ersten Seite des Dokuments");
+            addImagePage(doc);
+            doc.addPage(new PDPage(PDRectangle.A6)); // Leerseite ohne Bilder -> kein OCR
+            addTextPage(doc, "Noch eine digitale Seite mit ausreichend Text");
+
+            String text = hybrid.extractPerPage(doc);
+
+            verify(engine, times(1)).doOCR(any(BufferedImage.class));
+            assertThat(text).isEqualTo("Digitaler Text auf der ersten Seite des Dokuments"
+                    + "\n\n--- Page 2 ---\n\nGescannter Text von Seite zwei"
+                    + "\n\n--- Page 4 ---\n\nNoch eine digitale Seite mit ausreichend Text");
+        } finally {
+            hybrid.shutdown();
+        }
+    }
+
+    @Test
+    void extractPerPage_WithInlineImageOrOutlinedText_ShouldOcrThosePages() throws Exception {
+        ITesseract engine = mock(ITesseract.class);
+        when(engine.doOCR(any(BufferedImage.class))).thenReturn("Erkannter Text\n");
+        OcrService hybrid = new OcrService(tempDir.toString(), "eng", 72, 1, 1, () -> engine);
+
+        try (PDDocument doc = new PDDocument()) {
+            // Scan als Inline-Bild (BI/ID/EI) statt als Image-XObject
+            addRawPage(doc, "q 100 0 0 100 0 0 cm BI /W 2 /H 2 /CS /G /BPC 8 ID \u0000\u00ff\u00ff\u0000 EI Q");
+            // In Pfade umgewandelter Text: nur gefüllte Umrisse, kein Textlayer
+            addRawPage(doc, "10 10 m 50 90 l 90 10 l h f");
+
+            String text = hybrid.extractPerPage(doc);
+
+            verify(engine, times(2)).doOCR(any(BufferedImage.class));
+            assertThat(text).isEqualTo("Erkannter Text\n\n--- Page 2 ---\n\nErkannter Text");
+        } finally {
+            hybrid.shutdown();
+        }
+    }
+
+    private static void addRawPage(PDDocument doc, String content) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A6);
+        page.setContents(new PDStream(doc, new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1))));
+        doc.addPage(page);
+    }
+
+    private static void addTextPage(PDDocument doc, String text) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A6);
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            cs.beginText();
+            cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 8);
+            cs.newLineAtOffset(10, 200);
+            cs.showText(text);
+            cs.endText();
+        }
+    }
+
+    private static void addImagePage(PDDocument doc) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A6);
+        doc.addPage(page);
+        PDImageXObject scan = LosslessFactory.createFromImage(doc, new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB));
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            cs.drawImage(scan, 0, 0, 100, 100);
+        }
+    }
+
+    private static PDDocument pdfWithPageWidths(int... widths) {
+        PDDocument doc = new PDDocument();
+        for (int w : widths) {
+            doc.addPage(new PDPage(new PDRectangle(w, 50)));
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,71 @@
+package at.technikum_wien.ocrworker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ResultCacheTest {
+
+    private static final String HASH = "0f".repeat(32);
+
+    private final MinioClient minio = mock(MinioClient.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ResultCache cache = new ResultCache(minio, meters, "ocr-cache", true);
+
+    @Test
+    void getText_Hit_ShouldReturnStoredTextAndCountHit() throws Exception {
+        when(minio.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(Headers.of(),
+                "ocr-cache", "", "text/0f/" + HASH + ".txt",
+                new ByteArrayInputStream("Inhalt".getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(cache.getText(HASH)).contains("Inhalt");
+        assertThat(count("text", "hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void getSummary_MissingObject_ShouldBeMissNotError() throws Exception {
+        ErrorResponse notFound = new ErrorResponse("NoSuchKey", "not found", "ocr-cache", "x", null, null, null);
+        when(minio.getObject(any(GetObjectArgs.class)))
+                .thenThrow(new ErrorResponseException(notFound, null, null));
+
+        assertThat(cache.getSummary(HASH)).isEmpty();
+        assertThat(count("summary", "miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void putText_ShouldCreateBucketOnceAndStore() throws Exception {
+        when(minio.bucketExists(any())).thenReturn(false);
+
+        cache.putText(HASH, "a");
+        cache.putText(HASH, "b");
+
+        verify(minio, times(1)).makeBucket(any());
+        verify(minio, times(2)).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void missingOrInvalidHash_ShouldBypassCache() {
+        assertThat(cache.getText(null)).isEmpty();
+        cache.putText("not-a-hash", "x");
+
+        verifyNoInteractions(minio);
+        assertThat(meters.find("ocrworker.result_cache.lookups").counters()).isEmpty();
+    }
+
+    private double count(String kind, String result) {
+        return meters.get("ocrworker.result_cache.lookups").tag("kind", kind).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,100 @@
+package at.technikum_wien.ocrworker.service;
+
+import at.technikum_wien.ocrworker.model.DocumentOcrCompletedEvent;
+import at.technikum_wien.ocrworker.model.DocumentUploadedEvent;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import okhttp3.Headers;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TextStoreTest {
+
+    private final MinioClient minio = mock(MinioClient.class);
+    private final TextStore store = new TextStore(minio, "texts", 1000, true, 7);
+    private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+    @Test
+    void completedEvent_SmallText_ShouldStayInline() throws Exception {
+        DocumentOcrCompletedEvent evt = store.completedEvent(uploaded(1), "kurz");
+
+        assertThat(evt.offloaded()).isFalse();
+        assertThat(evt.extractedText()).isEqualTo("kurz");
+        verifyNoInteractions(minio);
+    }
+
+    @Test
+    void completedEvent_LargeText_ShouldOffloadCompressedAndRoundTrip() throws Exception {
+        String text = "Seite mit Umlauten äöü und Text. ".repeat(2000);
+        captureUploads();
+
+        DocumentOcrCompletedEvent evt = store.completedEvent(uploaded(2), text);
+
+        assertThat(evt.offloaded()).isTrue();
+        assertThat(evt.extractedText()).isNull();
+        assertThat(evt.textKey()).startsWith("2/").endsWith(".txt.gz");
+        assertThat(evt.textLength()).isEqualTo(text.getBytes(java.nio.charset.StandardCharsets.UTF_8).length);
+        // stark redundanter OCR-Text komprimiert gut
+        assertThat(stored.get().length).isLessThan((int) evt.textLength() / 10);
+
+        serveStored();
+        assertThat(store.text(evt)).isEqualTo(text);
+    }
+
+    @Test
+    void text_WithWrongChecksum_ShouldFail() throws Exception {
+        captureUploads();
+        DocumentOcrCompletedEvent evt = store.completedEvent(uploaded(3), "x".repeat(5000));
+        DocumentOcrCompletedEvent tampered = new DocumentOcrCompletedEvent(evt.id(), evt.storageBucket(),
+                evt.storageKey(), null, evt.contentHash(), evt.textKey(), "00".repeat(32), evt.textLength());
+
+        serveStored();
+        assertThatThrownBy(() -> store.text(tampered)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void text_ReadTwice_ShouldKeepObjectForRedelivery() throws Exception {
+        String text = "y".repeat(5000);
+        captureUploads();
+        DocumentOcrCompletedEvent evt = store.completedEvent(uploaded(4), text);
+
+        serveStored();
+        assertThat(store.text(evt)).isEqualTo(text);
+        assertThat(store.text(evt)).isEqualTo(text);
+        verify(minio, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void completedEvent_Inline_ShouldReportUtf8ByteLength() {
+        assertThat(new DocumentOcrCompletedEvent(5, "documents", "k", "äöü", null).textLength()).isEqualTo(6);
+    }
+
+    private void captureUploads() throws Exception {
+        when(minio.putObject(any(PutObjectArgs.class))).thenAnswer(inv -> {
+            stored.set(((PutObjectArgs) inv.getArgument(0)).stream().readAllBytes());
+            return null;
+        });
+    }
+
+    private void serveStored() throws Exception {
+        when(minio.getObject(any(GetObjectArgs.class))).thenAnswer(inv -> new GetObjectResponse(Headers.of(),
+                "texts", "", "obj", new ByteArrayInputStream(stored.get())));
+    }
+
+    private static DocumentUploadedEvent uploaded(int id) {
+        return new DocumentUploadedEvent(id, "T", "a.pdf", "application/pdf", 1, LocalDateTime.now(),
+                "documents", "key-" + id, "ab".repeat(32));
+    }
+}